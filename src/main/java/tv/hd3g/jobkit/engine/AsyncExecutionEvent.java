@@ -0,0 +1,300 @@
+package tv.hd3g.jobkit.engine;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Opt-in asynchronous dispatch for a slow ExecutionEvent (like a listener which write in a database): the events are
+ * published by the job threads in a bounded lock-free ring buffer, and sent to the listener by a dedicated dispatcher
+ * thread, in publish order. A slow listener don't hold the spool slots anymore.
+ * Use it in place of the listener, like new JobKitEngine(scheduledExecutor, new AsyncExecutionEvent(listener), ...)
+ */
+public class AsyncExecutionEvent implements ExecutionEvent {
+
+	private static Logger log = LogManager.getLogger();
+	public static final int DEFAULT_CAPACITY = 4096;
+	private static final long BLOCK_WAIT = TimeUnit.MICROSECONDS.toNanos(100);
+
+	private final ExecutionEvent listener;
+	private final EventOverflowPolicy overflowPolicy;
+	private final EventRingBuffer<Runnable> buffer;
+	private final Thread dispatcher;
+	/**
+	 * Published and not yet sent or dropped.
+	 */
+	private final AtomicInteger pendingEvents;
+	private final AtomicLong droppedEvents;
+	private volatile boolean dispatcherWaiting;
+	/**
+	 * Set by close: the dispatcher ends after the pending events.
+	 */
+	private volatile boolean closing;
+	/**
+	 * Set by the dispatcher at its end: the next events are sent directly, with directSendLock.
+	 */
+	private volatile boolean closed;
+	private final Object directSendLock;
+
+	/**
+	 * With a DEFAULT_CAPACITY buffer, and the DROP_NEWEST overflow policy.
+	 */
+	public AsyncExecutionEvent(final ExecutionEvent listener) {
+		this(listener, DEFAULT_CAPACITY, EventOverflowPolicy.DROP_NEWEST);
+	}
+
+	public AsyncExecutionEvent(final ExecutionEvent listener,
+	                           final int capacity,
+	                           final EventOverflowPolicy overflowPolicy) {
+		this(listener, capacity, overflowPolicy, r -> {
+			final var t = new Thread(r);
+			t.setDaemon(true);
+			t.setName("ExecutionEvent dispatcher");
+			return t;
+		});
+	}
+
+	/**
+	 * @param capacity max pending events, rounded up to a power of two
+	 * @param threadFactory for the dispatcher thread
+	 */
+	public AsyncExecutionEvent(final ExecutionEvent listener,
+	                           final int capacity,
+	                           final EventOverflowPolicy overflowPolicy,
+	                           final ThreadFactory threadFactory) {
+		this.listener = Objects.requireNonNull(listener, "\"listener\" can't to be null");
+		this.overflowPolicy = Objects.requireNonNull(overflowPolicy, "\"overflowPolicy\" can't to be null");
+		buffer = new EventRingBuffer<>(capacity);
+		pendingEvents = new AtomicInteger(0);
+		droppedEvents = new AtomicLong(0);
+		directSendLock = new Object();
+		dispatcher = threadFactory.newThread(this::dispatch);
+		dispatcher.start();
+	}
+
+	private void dispatch() {
+		while (true) {
+			final var event = buffer.poll();
+			if (event != null) {
+				send(event);
+				pendingEvents.decrementAndGet();
+			} else if (closing) {
+				break;
+			} else {
+				dispatcherWaiting = true;
+				if (buffer.isEmpty() && closing == false) {
+					/**
+					 * Until a publish or a close unpark it.
+					 */
+					LockSupport.park(this);
+				}
+				dispatcherWaiting = false;
+			}
+		}
+		synchronized (directSendLock) {
+			closed = true;
+			sendDirectly(null);
+		}
+	}
+
+	/**
+	 * Call it only with directSendLock. Send the events still in the buffer, then this event.
+	 * @param event can be null
+	 */
+	private void sendDirectly(final Runnable event) {
+		Runnable pending;
+		while ((pending = buffer.poll()) != null) {
+			send(pending);
+			pendingEvents.decrementAndGet();
+		}
+		if (event != null) {
+			send(event);
+		}
+	}
+
+	private void send(final Runnable event) {
+		try {
+			event.run();
+		} catch (final Exception e) {
+			log.warn("Can't send event", e);
+		}
+	}
+
+	private void publish(final Runnable event) {
+		if (closed) {
+			synchronized (directSendLock) {
+				sendDirectly(event);
+			}
+			return;
+		}
+		pendingEvents.incrementAndGet();
+		while (buffer.offer(event) == false) {
+			switch (overflowPolicy) {
+			case DROP_OLDEST:
+				if (buffer.poll() != null) {
+					pendingEvents.decrementAndGet();
+					droppedEvents.incrementAndGet();
+				}
+				break;
+			case BLOCK:
+				if (closed) {
+					pendingEvents.decrementAndGet();
+					synchronized (directSendLock) {
+						sendDirectly(event);
+					}
+					return;
+				}
+				LockSupport.parkNanos(this, BLOCK_WAIT);
+				break;
+			case CALLER_RUNS:
+				pendingEvents.decrementAndGet();
+				send(event);
+				return;
+			case DROP_NEWEST:
+			default:
+				pendingEvents.decrementAndGet();
+				droppedEvents.incrementAndGet();
+				return;
+			}
+		}
+		if (dispatcherWaiting) {
+			LockSupport.unpark(dispatcher);
+		}
+		if (closed) {
+			/**
+			 * Closed during this publish: the dispatcher may be already ended.
+			 */
+			synchronized (directSendLock) {
+				sendDirectly(null);
+			}
+		}
+	}
+
+	@Override
+	public void beforeStart(final String commandName,
+	                        final long startTime,
+	                        final SpoolExecutor executorReferer) {
+		publish(() -> listener.beforeStart(commandName, startTime, executorReferer));
+	}
+
+	@Override
+	public void afterRunCorrectly(final String commandName,
+	                              final long endTime,
+	                              final long duration,
+	                              final SpoolExecutor executorReferer) {
+		publish(() -> listener.afterRunCorrectly(commandName, endTime, duration, executorReferer));
+	}
+
+	@Override
+	public void afterFailedRun(final String commandName,
+	                           final long endTime,
+	                           final long duration,
+	                           final SpoolExecutor executorReferer,
+	                           final Exception error) {
+		publish(() -> listener.afterFailedRun(commandName, endTime, duration, executorReferer, error));
+	}
+
+	@Override
+	public void afterDroppedJob(final String commandName,
+	                            final long dropTime,
+	                            final SpoolExecutor executorReferer,
+	                            final QueueFullPolicy policy) {
+		publish(() -> listener.afterDroppedJob(commandName, dropTime, executorReferer, policy));
+	}
+
+	@Override
+	public void afterCancelledJob(final String commandName,
+	                              final long cancelTime,
+	                              final SpoolExecutor executorReferer,
+	                              final boolean wasRunning) {
+		publish(() -> listener.afterCancelledJob(commandName, cancelTime, executorReferer, wasRunning));
+	}
+
+	@Override
+	public void afterStuckJob(final String commandName,
+	                          final long timeout,
+	                          final SpoolExecutor executorReferer,
+	                          final String threadName,
+	                          final StackTraceElement[] stackTrace) {
+		publish(() -> listener.afterStuckJob(commandName, timeout, executorReferer, threadName, stackTrace));
+	}
+
+	@Override
+	public void afterCoalescedJob(final String commandName,
+	                              final long coalesceTime,
+	                              final SpoolExecutor executorReferer,
+	                              final String dedupKey,
+	                              final DedupPolicy policy) {
+		publish(() -> listener.afterCoalescedJob(commandName, coalesceTime, executorReferer, dedupKey, policy));
+	}
+
+	@Override
+	public void shutdownSpooler() {
+		publish(listener::shutdownSpooler);
+	}
+
+	/**
+	 * @return the events lost by the overflow policy (DROP_NEWEST or DROP_OLDEST).
+	 */
+	public long getDroppedEventsCount() {
+		return droppedEvents.get();
+	}
+
+	/**
+	 * @return the events published and not yet sent.
+	 */
+	public int getPendingEventsCount() {
+		return pendingEvents.get();
+	}
+
+	public EventOverflowPolicy getOverflowPolicy() {
+		return overflowPolicy;
+	}
+
+	public int getCapacity() {
+		return buffer.capacity();
+	}
+
+	/**
+	 * Blocking.
+	 * @return true if all the pending events are sent before the timeout.
+	 */
+	public boolean waitForDispatch(final Duration timeout) {
+		final var endOfWait = System.nanoTime() + timeout.toNanos();
+		while (pendingEvents.get() > 0) {
+			if (System.nanoTime() - endOfWait >= 0 || Thread.currentThread().isInterrupted()) {
+				return false;
+			}
+			LockSupport.parkNanos(this, BLOCK_WAIT);
+		}
+		return true;
+	}
+
+	/**
+	 * Blocking, until the pending events are sent and the dispatcher thread ends.
+	 * After that, new events are sent directly by the job threads, one at a time and in publish order.
+	 */
+	public void close() {
+		closing = true;
+		LockSupport.unpark(dispatcher);
+		if (Thread.currentThread() == dispatcher) {
+			/**
+			 * Called by the listener: the dispatcher ends after this event.
+			 */
+			return;
+		}
+		try {
+			dispatcher.join();
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+}
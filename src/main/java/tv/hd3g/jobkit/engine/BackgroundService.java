@@ -3,11 +3,17 @@ package tv.hd3g.jobkit.engine;
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
 
 import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -31,6 +37,33 @@ public class BackgroundService {
 	private long previousScheduledDate;
 	private int priority;
 	private double retryAfterTimeFactor;
+	private RetryDelayPolicy retryDelayPolicy;
+	private long previousRetryDelay;
+	/**
+	 * In ms, -1 for the timedInterval.
+	 */
+	private long initialDelay;
+	private boolean randomInitialDelay;
+	private double intervalJitter;
+	/**
+	 * null for the fixed delay mode.
+	 */
+	private MisfirePolicy misfirePolicy;
+	private boolean runInFlight;
+	/**
+	 * A runNow() during a run, in fixed delay mode: the next run will be queued just after the actual run.
+	 */
+	private boolean runNowRequested;
+	/**
+	 * Planned times of the runs to do after the actual run, in fixed-rate mode.
+	 */
+	private final ArrayDeque<Long> missedRuns;
+	private long misfiredRunsCount;
+	/**
+	 * Planned runs never queued, because the previous run was still queued or running.
+	 */
+	private long skippedRunsCount;
+	private long periodError;
 	private final AtomicInteger sequentialErrorCount;
 
 	public BackgroundService(final String name,
@@ -48,6 +81,8 @@ public class BackgroundService {
 		enabled = false;
 		priority = 0;
 		retryAfterTimeFactor = 1;
+		initialDelay = -1;
+		missedRuns = new ArrayDeque<>();
 		sequentialErrorCount = new AtomicInteger(0);
 	}
 
@@ -68,29 +103,271 @@ public class BackgroundService {
 			throw new IllegalStateException("Beware, this service is not enabled (" + name + ")");
 		}
 		event.scheduleNextBackgroundServiceTask(name, spoolName, priority, interval);
-		nextRunReference = scheduledExecutor.schedule(() -> {
-			event.nextBackgroundServiceTask(name, spoolName, priority);
-			spooler.getExecutor(spoolName).addToQueue(task, name, priority, lastExecException -> {
-				if (enabled == false) {
-					return;
+		final var plannedTime = System.currentTimeMillis() + interval;
+		nextRunReference = scheduledExecutor.schedule(() -> onNextRunReferenceFired(plannedTime),
+		        interval, TimeUnit.MILLISECONDS);
+		previousScheduledDate = System.currentTimeMillis();
+	}
+
+	private void queueRun(final long plannedTime) {
+		final Runnable command;
+		final Consumer<Exception> afterRunCommand;
+		synchronized (this) {
+			runInFlight = true;
+			if (misfirePolicy == null) {
+				command = task;
+				afterRunCommand = this::afterRun;
+			} else {
+				command = () -> {
+					onRunStart(plannedTime);
+					task.run();
+				};
+				afterRunCommand = this::afterFixedRateRun;
+			}
+		}
+		event.nextBackgroundServiceTask(name, spoolName, priority);
+		if (spooler.getExecutor(spoolName).addToQueue(command, name, priority, afterRunCommand) == false) {
+			/**
+			 * Refused by a full (or shutdown) spool: like a failed run, else this service will never run again.
+			 */
+			log.warn("The spool \"{}\" has refused the run of {}", spoolName, name);
+			afterRunCommand.accept(new RejectedExecutionException("Run refused by the spool \"" + spoolName + "\""));
+		}
+	}
+
+	private void afterRun(final Exception lastExecException) {
+		if (enabled == false) {
+			onRunEnd();
+			return;
+		}
+		long nextInterval;
+		if (lastExecException != null) {
+			event.onPreviousRunWithError(name, spoolName, lastExecException);
+			nextInterval = getRetryDelay(sequentialErrorCount.incrementAndGet());
+		} else {
+			onSuccessfulRun();
+			nextInterval = getNextRunDelay();
+		}
+		synchronized (this) {
+			/**
+			 * In the same lock: a runNow() can't start a new run before the next run is planned.
+			 */
+			if (onRunEnd()) {
+				nextInterval = 0;
+			}
+			if (enabled == false) {
+				return;
+			}
+			planNextExec(nextInterval);
+		}
+		log.debug("Schedule for {} the next run to {} sec, the {}", name, nextInterval / 1000d,
+		        new Date(System.currentTimeMillis() + nextInterval));
+		event.planNextExec(name, spoolName, nextInterval);
+	}
+
+	/**
+	 * The next run is already planned. Errors don't change the rate (no retry delay).
+	 */
+	private void afterFixedRateRun(final Exception lastExecException) {
+		if (lastExecException != null) {
+			event.onPreviousRunWithError(name, spoolName, lastExecException);
+			sequentialErrorCount.incrementAndGet();
+		} else {
+			onSuccessfulRun();
+		}
+		final Long nextMissedRun;
+		synchronized (this) {
+			nextMissedRun = missedRuns.poll();
+			if (enabled == false || nextMissedRun == null) {
+				missedRuns.clear();
+				runInFlight = false;
+				return;
+			}
+		}
+		queueRun(nextMissedRun);
+	}
+
+	private synchronized void onRunStart(final long plannedTime) {
+		periodError = System.currentTimeMillis() - plannedTime;
+	}
+
+	/**
+	 * @return true if a runNow() was requested during the run
+	 */
+	private synchronized boolean onRunEnd() {
+		runInFlight = false;
+		final var runNow = runNowRequested;
+		runNowRequested = false;
+		return runNow;
+	}
+
+	/**
+	 * Queue a run now, without wait the next planned run, like after an external notification.
+	 * Never more than one run queued or running: if a run is still queued or running, an other run will be queued just
+	 * after it (only one for all the runNow() calls in the meantime).
+	 * In fixed delay mode, the pending planned run is cancelled, and the normal schedule restarts after this run.
+	 * In fixed-rate mode, the boundary runs are kept (the misfire policy is applied if this run is still running).
+	 * @return true if the run is queued now, false if it will be queued after the actual run.
+	 * @throws IllegalStateException if this service is not enabled
+	 */
+	public boolean runNow() {
+		final var plannedTime = System.currentTimeMillis();
+		synchronized (this) {
+			if (enabled == false) {
+				throw new IllegalStateException("Beware, this service is not enabled (" + name + ")");
+			}
+			if (runInFlight) {
+				if (misfirePolicy == null) {
+					runNowRequested = true;
+				} else if (missedRuns.isEmpty()) {
+					missedRuns.add(plannedTime);
 				}
-				long nextInterval;
-				if (lastExecException != null) {
-					event.onPreviousRunWithError(name, spoolName, lastExecException);
-					nextInterval = Math.round(timedInterval
-					                          * Math.pow(retryAfterTimeFactor, sequentialErrorCount.incrementAndGet()));
-					planNextExec(nextInterval);
-				} else {
-					sequentialErrorCount.set(0);
-					nextInterval = timedInterval;
-					planNextExec(nextInterval);
+				log.debug("Run now {} after the actual run", name);
+				return false;
+			}
+			if (misfirePolicy == null) {
+				ifNextRunReferenceScheduled(() -> {
+					nextRunReference.cancel(false);
+					nextRunReference = null;
+				});
+			}
+			/**
+			 * Set before to leave this lock, for the others runNow() and the planned run.
+			 */
+			runInFlight = true;
+		}
+		log.debug("Run now {}", name);
+		queueRun(plannedTime);
+		return true;
+	}
+
+	private synchronized long getRetryDelay(final int errorCount) {
+		final long retryDelay;
+		if (retryDelayPolicy == null) {
+			retryDelay = Math.round(timedInterval * Math.pow(retryAfterTimeFactor, errorCount));
+		} else {
+			final var previousDelay = errorCount > 1 ? previousRetryDelay : timedInterval;
+			retryDelay = retryDelayPolicy.getRetryDelay(timedInterval, errorCount, previousDelay);
+		}
+		previousRetryDelay = retryDelay;
+		return retryDelay;
+	}
+
+	/**
+	 * @return the timedInterval, with the interval jitter
+	 */
+	private synchronized long getNextRunDelay() {
+		if (intervalJitter == 0d) {
+			return timedInterval;
+		}
+		final var jitter = ThreadLocalRandom.current().nextDouble(-intervalJitter, intervalJitter);
+		return Math.max(1, Math.round(timedInterval * (1d + jitter)));
+	}
+
+	/**
+	 * Call it only with this lock.
+	 */
+	private long getFirstRunDelay() {
+		if (misfirePolicy != null) {
+			final var now = System.currentTimeMillis();
+			return getNextFixedRateTime(now) - now;
+		}
+		final var delay = initialDelay < 0 ? timedInterval : initialDelay;
+		if (randomInitialDelay && delay > 0) {
+			return ThreadLocalRandom.current().nextLong(delay + 1);
+		}
+		return delay;
+	}
+
+	private synchronized void onSuccessfulRun() {
+		if (retryDelayPolicy == null) {
+			sequentialErrorCount.set(0);
+		} else {
+			sequentialErrorCount.set(retryDelayPolicy.getErrorCountAfterSuccess(sequentialErrorCount.get()));
+		}
+	}
+
+	/**
+	 * Call it only with this lock.
+	 * @return the first fixed-rate boundary after this time (in ms). The boundaries are aligned on the wall-clock,
+	 *         like each hour for a 1 hour interval, shifted by the initial delay.
+	 */
+	private long getNextFixedRateTime(final long after) {
+		final var offset = initialDelay < 0 ? 0 : initialDelay % timedInterval;
+		return (Math.floorDiv(after - offset, timedInterval) + 1) * timedInterval + offset;
+	}
+
+	/**
+	 * Call it only with this lock.
+	 */
+	private void replanPendingRun() {
+		ifNextRunReferenceScheduled(() -> {
+			nextRunReference.cancel(false);
+			nextRunReference = null;
+			planNextExec(getFirstRunDelay());
+		});
+	}
+
+	/**
+	 * A fired nextRunReference is not pending anymore, even if its future is not yet done:
+	 * the queued task can run and ends (and plan the next exec) before it.
+	 * In fixed-rate mode, the next run is planned now.
+	 * Never more than one run queued or running by service: else, this run is skipped (fixed delay mode), or the
+	 * misfire policy is applied (fixed-rate mode).
+	 */
+	private void onNextRunReferenceFired(final long plannedTime) {
+		synchronized (this) {
+			nextRunReference = null;
+			if (misfirePolicy != null) {
+				if (enabled) {
+					final var now = System.currentTimeMillis();
+					planNextExec(getNextFixedRateTime(Math.max(plannedTime, now)) - now);
 				}
-				log.debug("Schedule for {} the next run to {} sec, the {}", name, nextInterval / 1000d,
-				        new Date(System.currentTimeMillis() + nextInterval));
-				event.planNextExec(name, spoolName, nextInterval);
-			});
-		}, interval, TimeUnit.MILLISECONDS);
-		previousScheduledDate = System.currentTimeMillis();
+				if (runInFlight) {
+					onMisfire(plannedTime);
+					return;
+				}
+			} else if (runInFlight) {
+				/**
+				 * The actual run will plan the next one.
+				 */
+				onSkippedRun();
+				return;
+			}
+		}
+		queueRun(plannedTime);
+	}
+
+	/**
+	 * Call it only with this lock.
+	 */
+	private void onMisfire(final long plannedTime) {
+		misfiredRunsCount++;
+		log.debug("Misfire for {}, the previous run is still queued or running ({})", name, misfirePolicy);
+		switch (misfirePolicy) {
+		case COALESCE:
+			if (missedRuns.isEmpty() == false) {
+				missedRuns.clear();
+				onSkippedRun();
+			}
+			missedRuns.add(plannedTime);
+			break;
+		case CATCH_UP:
+			missedRuns.add(plannedTime);
+			break;
+		default:
+			onSkippedRun();
+			break;
+		}
+	}
+
+	/**
+	 * Call it only with this lock.
+	 */
+	private void onSkippedRun() {
+		skippedRunsCount++;
+		log.debug("Skip a run for {}, the previous run is still queued or running", name);
+		event.skipNextBackgroundServiceTask(name, spoolName, priority);
 	}
 
 	private synchronized void refreshInternalState(final boolean newEnabled, final long newTimedInterval) {
@@ -112,18 +389,26 @@ public class BackgroundService {
 			if (newTimedInterval != timedInterval) {
 				log.info("Change Service interval time \"{}\", from {} to {}", name, timedInterval,
 				        newTimedInterval);
-				ifNextRunReferenceScheduled(() -> {
-					final var eta = timedInterval - nextRunReference.getDelay(TimeUnit.MILLISECONDS);
-					if (newTimedInterval > eta) {
-						/**
-						 * Extend interval: replan next time newTimedInterval-eta
-						 */
-						nextRunReference.cancel(false);
-						nextRunReference = null;
-						planNextExec(newTimedInterval - eta);
-					}
-				});
-				timedInterval = newTimedInterval;
+				if (misfirePolicy != null) {
+					/**
+					 * Realign on the new boundaries
+					 */
+					timedInterval = newTimedInterval;
+					replanPendingRun();
+				} else {
+					ifNextRunReferenceScheduled(() -> {
+						final var eta = timedInterval - nextRunReference.getDelay(TimeUnit.MILLISECONDS);
+						if (newTimedInterval > eta) {
+							/**
+							 * Extend interval: replan next time newTimedInterval-eta
+							 */
+							nextRunReference.cancel(false);
+							nextRunReference = null;
+							planNextExec(newTimedInterval - eta);
+						}
+					});
+					timedInterval = newTimedInterval;
+				}
 				event.onChangeTimedInterval(name, spoolName, timedInterval);
 			}
 		} else {
@@ -136,7 +421,7 @@ public class BackgroundService {
 			log.info("Enable Service \"{}\" for each {}", name, timedInterval);
 			enabled = true;
 			event.onChangeEnabled(name, spoolName, enabled);
-			planNextExec(timedInterval);
+			planNextExec(getFirstRunDelay());
 		}
 	}
 
@@ -161,6 +446,10 @@ public class BackgroundService {
 		}
 	}
 
+	public String getName() {
+		return name;
+	}
+
 	public int getPriority() {
 		return priority;
 	}
@@ -217,6 +506,7 @@ public class BackgroundService {
 	 *        - 5000, 25000, 125000, 625000, 3125000, 15625000 (aprox. 260 min)
 	 *        With retryAfterTimeFactor = 10
 	 *        - 10000, 100000, 1000000, 10000000, 100000000, (aprox. 28 hrs)
+	 *        Not used with a RetryDelayPolicy.
 	 */
 	public synchronized BackgroundService setRetryAfterTimeFactor(final double retryAfterTimeFactor) {
 		if (retryAfterTimeFactor <= 0d) {
@@ -235,6 +525,121 @@ public class BackgroundService {
 		return retryAfterTimeFactor;
 	}
 
+	/**
+	 * @param initialDelay the delay of the first run after enable(), null (the default) for the timedInterval.
+	 *        For a service already enabled, the actual pending run is replanned with it.
+	 */
+	public synchronized BackgroundService setInitialDelay(final Duration initialDelay) {
+		if (initialDelay == null) {
+			this.initialDelay = -1;
+			return this;
+		}
+		if (initialDelay.isNegative()) {
+			throw new IllegalArgumentException("Invalid initialDelay: " + initialDelay);
+		}
+		this.initialDelay = initialDelay.toMillis();
+		if (enabled) {
+			replanPendingRun();
+		}
+		return this;
+	}
+
+	/**
+	 * @return null for the timedInterval
+	 */
+	public synchronized Duration getInitialDelay() {
+		if (initialDelay < 0) {
+			return null;
+		}
+		return Duration.ofMillis(initialDelay);
+	}
+
+	/**
+	 * @param randomInitialDelay if true, the first run after enable() is after a random delay, between 0 and the
+	 *        initial delay (or the timedInterval): the services started together don't run together.
+	 */
+	public synchronized BackgroundService setRandomInitialDelay(final boolean randomInitialDelay) {
+		this.randomInitialDelay = randomInitialDelay;
+		return this;
+	}
+
+	public synchronized boolean isRandomInitialDelay() {
+		return randomInitialDelay;
+	}
+
+	/**
+	 * @param intervalJitter from 0 (the default, no jitter) to less than 1. Each next run (without error) is after
+	 *        timedInterval +/- a random part of timedInterval * intervalJitter.
+	 */
+	public synchronized BackgroundService setIntervalJitter(final double intervalJitter) {
+		if (intervalJitter < 0d || intervalJitter >= 1d || Double.isNaN(intervalJitter)) {
+			throw new IllegalArgumentException("Invalid intervalJitter: " + intervalJitter);
+		}
+		this.intervalJitter = intervalJitter;
+		return this;
+	}
+
+	public synchronized double getIntervalJitter() {
+		return intervalJitter;
+	}
+
+	/**
+	 * @param misfirePolicy not null for the fixed-rate mode, null for the fixed delay mode (the default).
+	 *        In fixed-rate mode, the runs are planned on the wall-clock boundaries of the timedInterval (shifted by the
+	 *        initial delay), regardless of the queue wait and the run time of the previous runs. If a run is still queued
+	 *        or running on the next boundary, the misfirePolicy is applied. The errors don't change the rate, and the
+	 *        random initial delay and the interval jitter are not used.
+	 *        For a service already enabled, the actual pending run is replanned.
+	 */
+	public synchronized BackgroundService setFixedRate(final MisfirePolicy misfirePolicy) {
+		this.misfirePolicy = misfirePolicy;
+		if (enabled) {
+			replanPendingRun();
+		}
+		return this;
+	}
+
+	public synchronized boolean isFixedRate() {
+		return misfirePolicy != null;
+	}
+
+	/**
+	 * @return null in fixed delay mode
+	 */
+	public synchronized MisfirePolicy getMisfirePolicy() {
+		return misfirePolicy;
+	}
+
+	/**
+	 * Stagger evenly some services on their intervals: with n services, the first run of the service #i (from 0) is
+	 * after (i + 1) * timedInterval / n. The enabled services are replanned now, the others on enable().
+	 */
+	public static void spread(final Collection<? extends BackgroundService> services) {
+		final var allServices = new ArrayList<BackgroundService>(services);
+		final var count = allServices.size();
+		for (var pos = 0; pos < count; pos++) {
+			final var service = allServices.get(pos);
+			final var interval = service.getTimedInterval(MILLISECONDS);
+			service.setInitialDelay(Duration.ofMillis(interval * (pos + 1) / count));
+		}
+	}
+
+	/**
+	 * @param retryDelayPolicy replace the retryAfterTimeFactor, like a BackoffRetryDelayPolicy with a max delay and a
+	 *        jitter. Set null for get back to the retryAfterTimeFactor.
+	 */
+	public synchronized BackgroundService setRetryDelayPolicy(final RetryDelayPolicy retryDelayPolicy) {
+		this.retryDelayPolicy = retryDelayPolicy;
+		return this;
+	}
+
+	/**
+	 * @return null if the retryAfterTimeFactor is used.
+	 */
+	public synchronized RetryDelayPolicy getRetryDelayPolicy() {
+		return retryDelayPolicy;
+	}
+
 	public synchronized BackgroundServiceStatus getLastStatus() {
 		long nextRunReferenceDelay;
 		if (nextRunReference != null) {
@@ -252,7 +657,7 @@ public class BackgroundService {
 		}
 
 		return new BackgroundServiceStatus(name, spoolName, nextRunReferenceDelay, previousScheduledDate,
-		        this, sequentialErrorCount.get(), sTask);
+		        this, sequentialErrorCount.get(), sTask, periodError, misfiredRunsCount, skippedRunsCount);
 	}
 
 }
@@ -11,6 +11,12 @@ public interface BackgroundServiceEvent {
 	default void nextBackgroundServiceTask(final String name, final String spoolName, final int priority) {
 	}
 
+	/**
+	 * A planned run is never queued, because the previous run is still queued or running.
+	 */
+	default void skipNextBackgroundServiceTask(final String name, final String spoolName, final int priority) {
+	}
+
 	default void planNextExec(final String name, final String spoolName, final long nextInterval) {
 	}
 
@@ -0,0 +1,23 @@
+package tv.hd3g.jobkit.engine;
+
+/**
+ * Randomize the retry delays of a BackoffRetryDelayPolicy, so the services in error after the same failure don't retry
+ * at the same moment. The delay is never less than the service interval, and never more than the max delay.
+ */
+public enum BackoffJitter {
+
+	/**
+	 * interval * factor ^ errors
+	 */
+	NONE,
+	/**
+	 * Random, between the interval and interval * factor ^ errors
+	 */
+	FULL,
+	/**
+	 * Random, between the interval and the previous delay * factor: each delay depends on the previous one, not on the
+	 * error count. A factor of 3 is a good start.
+	 */
+	DECORRELATED;
+
+}
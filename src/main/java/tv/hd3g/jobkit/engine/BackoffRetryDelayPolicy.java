@@ -0,0 +1,116 @@
+package tv.hd3g.jobkit.engine;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/**
+ * Exponential backoff, with a max delay and a jitter. Can be shared by some BackgroundServices.
+ */
+public class BackoffRetryDelayPolicy implements RetryDelayPolicy {
+
+	private final Supplier<Random> random;
+	private final double factor;
+	private volatile long maxDelay;
+	private volatile BackoffJitter jitter;
+	private volatile boolean gradualReset;
+
+	/**
+	 * Without max delay and jitter: like BackgroundService.setRetryAfterTimeFactor
+	 * @param factor more than 0
+	 */
+	public BackoffRetryDelayPolicy(final double factor) {
+		this(factor, ThreadLocalRandom::current);
+	}
+
+	BackoffRetryDelayPolicy(final double factor, final Supplier<Random> random) {
+		if (factor <= 0d || Double.isFinite(factor) == false) {
+			throw new IllegalArgumentException("Invalid factor: " + factor);
+		}
+		this.factor = factor;
+		this.random = random;
+		maxDelay = Long.MAX_VALUE;
+		jitter = BackoffJitter.NONE;
+	}
+
+	public double getFactor() {
+		return factor;
+	}
+
+	/**
+	 * @param maxDelay the retry delays are capped to it, but never less than the service interval.
+	 */
+	public BackoffRetryDelayPolicy setMaxDelay(final Duration maxDelay) {
+		if (maxDelay.isNegative() || maxDelay.isZero()) {
+			throw new IllegalArgumentException("Invalid maxDelay: " + maxDelay);
+		}
+		this.maxDelay = maxDelay.toMillis();
+		return this;
+	}
+
+	public Duration getMaxDelay() {
+		return Duration.ofMillis(maxDelay);
+	}
+
+	public BackoffRetryDelayPolicy setJitter(final BackoffJitter jitter) {
+		this.jitter = Objects.requireNonNull(jitter, "\"jitter\" can't to be null");
+		return this;
+	}
+
+	public BackoffJitter getJitter() {
+		return jitter;
+	}
+
+	/**
+	 * @param gradualReset if true, a successful run divide by two the sequential error count, else (the default) it's
+	 *        reset to 0. With a flapping resource, the service keeps a part of its backoff.
+	 */
+	public BackoffRetryDelayPolicy setGradualReset(final boolean gradualReset) {
+		this.gradualReset = gradualReset;
+		return this;
+	}
+
+	public boolean isGradualReset() {
+		return gradualReset;
+	}
+
+	@Override
+	public long getRetryDelay(final long timedInterval, final int sequentialErrorCount, final long previousDelay) {
+		final var cap = Math.max(timedInterval, maxDelay);
+		switch (jitter) {
+		case FULL:
+			return randomBetween(timedInterval, exponential(timedInterval, sequentialErrorCount, cap));
+		case DECORRELATED:
+			final var upper = Math.min(cap, Math.round(Math.max(timedInterval, previousDelay) * Math.max(1d, factor)));
+			return randomBetween(timedInterval, upper);
+		default:
+			return exponential(timedInterval, sequentialErrorCount, cap);
+		}
+	}
+
+	private long exponential(final long timedInterval, final int sequentialErrorCount, final long cap) {
+		final var delay = timedInterval * Math.pow(factor, sequentialErrorCount);
+		if (delay >= cap) {
+			return cap;
+		}
+		return Math.round(delay);
+	}
+
+	private long randomBetween(final long min, final long max) {
+		if (max <= min) {
+			return min;
+		}
+		return min + Math.round(random.get().nextDouble() * (max - min));
+	}
+
+	@Override
+	public int getErrorCountAfterSuccess(final int sequentialErrorCount) {
+		if (gradualReset) {
+			return sequentialErrorCount / 2;
+		}
+		return 0;
+	}
+
+}
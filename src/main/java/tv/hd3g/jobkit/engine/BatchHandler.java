@@ -0,0 +1,19 @@
+package tv.hd3g.jobkit.engine;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Process in one time a batch of items, see SpoolBatcher.
+ */
+@FunctionalInterface
+public interface BatchHandler<T> {
+
+	/**
+	 * If it throws an Exception, all the items of this batch fail with it.
+	 * @param items in add order
+	 * @return the failed items errors, by item index in items. Can be null or empty if all the items are done.
+	 */
+	Map<Integer, Exception> process(String batchKey, List<T> items) throws Exception;
+
+}
@@ -0,0 +1,26 @@
+package tv.hd3g.jobkit.engine;
+
+/**
+ * What a SpoolExecutor do with a new job when a job with the same dedup key is still queued.
+ * In all cases, only one job runs for all these submissions, and each submission get its afterRunCommand and its handle
+ * completed by the end of this job. Running jobs are never coalesced.
+ */
+public enum DedupPolicy {
+
+	/**
+	 * The queued job is kept as is, the new job will never run.
+	 */
+	KEEP_FIRST,
+	/**
+	 * The queued job is removed, and the new job is queued like without dedup key: it will run after the jobs queued in
+	 * the meantime.
+	 */
+	REPLACE_WITH_LATEST,
+	/**
+	 * The queued job keeps its place, but it will run the command of the new job, with the highest priority of the two.
+	 * When its priority is raised, a HEAP queue keeps its submit order between the jobs of the new priority, but a
+	 * PRIORITY_BUCKETS queue put it after them, like a new job.
+	 */
+	MERGE;
+
+}
@@ -0,0 +1,98 @@
+package tv.hd3g.jobkit.engine;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.ToDoubleFunction;
+import java.util.stream.Stream;
+
+/**
+ * Deficit round-robin between the active items: on its turn, an item get its weight as credit, and it's chosen while it
+ * has at least 1 of credit. Each item is chosen in proportion of its weight.
+ * Not thread safe.
+ */
+class DeficitRoundRobin<T> {
+
+	private final ToDoubleFunction<T> weightOf;
+	/**
+	 * Round-robin order, the first is the actual turn.
+	 */
+	private final ArrayDeque<T> active;
+	private final Map<T, Double> deficits;
+	/**
+	 * The item which has already get its credit for the actual turn.
+	 */
+	private T turn;
+
+	/**
+	 * @param weightOf must be more than 0
+	 */
+	DeficitRoundRobin(final ToDoubleFunction<T> weightOf) {
+		this.weightOf = weightOf;
+		active = new ArrayDeque<>();
+		deficits = new HashMap<>();
+	}
+
+	/**
+	 * Add at the end of the round, if not already active.
+	 */
+	void activate(final T item) {
+		if (deficits.containsKey(item) == false) {
+			deficits.put(item, 0d);
+			active.add(item);
+		}
+	}
+
+	/**
+	 * Remove from the round, and forget its credit.
+	 */
+	void deactivate(final T item) {
+		if (deficits.remove(item) != null) {
+			active.remove(item);
+			if (turn == item) {
+				turn = null;
+			}
+		}
+	}
+
+	boolean isActive(final T item) {
+		return deficits.containsKey(item);
+	}
+
+	boolean isEmpty() {
+		return active.isEmpty();
+	}
+
+	/**
+	 * @return the next item, still active, or null if empty
+	 */
+	T next() {
+		while (active.isEmpty() == false) {
+			final var first = active.peek();
+			final double deficit = deficits.get(first);
+			if (deficit >= 1d) {
+				deficits.put(first, deficit - 1d);
+				return first;
+			}
+			if (turn == first) {
+				/**
+				 * The turn is over, the remaining credit is kept for the next turn.
+				 */
+				active.add(active.poll());
+				turn = null;
+			} else {
+				deficits.put(first, deficit + weightOf.applyAsDouble(first));
+				turn = first;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @return active items, in round order
+	 */
+	Stream<T> stream() {
+		return active.stream();
+	}
+
+}
@@ -0,0 +1,21 @@
+package tv.hd3g.jobkit.engine;
+
+/**
+ * How a SpoolExecutor sort its queued jobs with the same priority.
+ */
+public enum EqualPriorityOrder {
+
+	/**
+	 * The first submitted job runs first.
+	 */
+	SUBMIT_ORDER,
+	/**
+	 * The job with the shortest expected duration runs first, then by submit order. The expected duration of a job is
+	 * the runtime estimate of its command name, when it's queued. A command never seen before runs first, to learn its
+	 * duration. It reduces the mean queue wait time of a spool with short and long jobs, but a steady flow of short
+	 * jobs can delay a long job.
+	 * Only for the HEAP queue type: the PRIORITY_BUCKETS queue always keep the submit order in a priority.
+	 */
+	SHORTEST_EXPECTED_FIRST;
+
+}
@@ -0,0 +1,25 @@
+package tv.hd3g.jobkit.engine;
+
+/**
+ * What an AsyncExecutionEvent do with a new event when its buffer is full.
+ */
+public enum EventOverflowPolicy {
+
+	/**
+	 * The new event is dropped: a job thread never wait a slow listener.
+	 */
+	DROP_NEWEST,
+	/**
+	 * The oldest pending event is dropped for the new event.
+	 */
+	DROP_OLDEST,
+	/**
+	 * The job thread wait some free space in the buffer: no event is lost, but a slow listener can delay the jobs.
+	 */
+	BLOCK,
+	/**
+	 * The new event is sent directly by the job thread, before some pending events.
+	 */
+	CALLER_RUNS;
+
+}
@@ -0,0 +1,113 @@
+package tv.hd3g.jobkit.engine;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded lock-free ring buffer, for many producers and many consumers: each slot has a sequence number, which tells if
+ * it's free for the offer at this position, or ready for the poll at this position. Offer and poll never block, and
+ * never allocate.
+ */
+class EventRingBuffer<E> {
+
+	private final int mask;
+	private final AtomicReferenceArray<E> items;
+	private final AtomicLongArray sequences;
+	/**
+	 * Next offer position
+	 */
+	private final AtomicLong tail;
+	/**
+	 * Next poll position
+	 */
+	private final AtomicLong head;
+
+	/**
+	 * @param capacity rounded up to a power of two, and 2 at least: with a single slot, a polled slot sequence would
+	 *        be the same as an offered slot sequence.
+	 */
+	EventRingBuffer(final int capacity) {
+		if (capacity < 1 || capacity > 1 << 30) {
+			throw new IllegalArgumentException("Invalid capacity: " + capacity);
+		}
+		final var size = capacity <= 2 ? 2 : Integer.highestOneBit(capacity - 1) << 1;
+		mask = size - 1;
+		items = new AtomicReferenceArray<>(size);
+		sequences = new AtomicLongArray(size);
+		for (var pos = 0; pos < size; pos++) {
+			sequences.set(pos, pos);
+		}
+		tail = new AtomicLong(0);
+		head = new AtomicLong(0);
+	}
+
+	/**
+	 * @return false if full
+	 */
+	boolean offer(final E item) {
+		var pos = tail.get();
+		while (true) {
+			final var index = (int) (pos & mask);
+			final var diff = sequences.get(index) - pos;
+			if (diff == 0) {
+				if (tail.compareAndSet(pos, pos + 1)) {
+					items.set(index, item);
+					sequences.set(index, pos + 1);
+					return true;
+				}
+				pos = tail.get();
+			} else if (diff < 0) {
+				/**
+				 * This slot is not yet polled since the previous round.
+				 */
+				return false;
+			} else {
+				pos = tail.get();
+			}
+		}
+	}
+
+	/**
+	 * @return null if empty
+	 */
+	E poll() {
+		var pos = head.get();
+		while (true) {
+			final var index = (int) (pos & mask);
+			final var diff = sequences.get(index) - (pos + 1);
+			if (diff == 0) {
+				if (head.compareAndSet(pos, pos + 1)) {
+					final var item = items.get(index);
+					items.set(index, null);
+					sequences.set(index, pos + mask + 1);
+					return item;
+				}
+				pos = head.get();
+			} else if (diff < 0) {
+				/**
+				 * This slot is not yet offered, or its offer is not yet ended.
+				 */
+				return null;
+			} else {
+				pos = head.get();
+			}
+		}
+	}
+
+	/**
+	 * @return an approximation, during concurrent offers and polls.
+	 */
+	int size() {
+		return (int) Math.max(0, Math.min(tail.get() - head.get(), capacity()));
+	}
+
+	boolean isEmpty() {
+		return size() == 0;
+	}
+
+	int capacity() {
+		return mask + 1;
+	}
+
+}
@@ -20,6 +20,49 @@ public interface ExecutionEvent {
 	                            final Exception error) {
 	}
 
+	/**
+	 * A job was refused or removed from a full queue, according to the spool QueueFullPolicy. It will never run.
+	 */
+	default void afterDroppedJob(final String commandName,
+	                             final long dropTime,
+	                             final SpoolExecutor executorReferer,
+	                             final QueueFullPolicy policy) {
+	}
+
+	/**
+	 * A job handle was cancelled.
+	 * @param wasRunning if false, the job was removed from the queue and will never run.
+	 *        If true, the job was running: it may be interrupted, and it will send its own afterRun event.
+	 */
+	default void afterCancelledJob(final String commandName,
+	                               final long cancelTime,
+	                               final SpoolExecutor executorReferer,
+	                               final boolean wasRunning) {
+	}
+
+	/**
+	 * A job runs after its timeout: its thread is interrupted and forgotten by the spool.
+	 * Called before the afterFailedRun event (with a TimeoutException) for this job.
+	 * @param stackTrace where the job thread was stuck, just before its interrupt.
+	 */
+	default void afterStuckJob(final String commandName,
+	                           final long timeout,
+	                           final SpoolExecutor executorReferer,
+	                           final String threadName,
+	                           final StackTraceElement[] stackTrace) {
+	}
+
+	/**
+	 * A new job was coalesced with a queued job of the same dedup key, according to the spool DedupPolicy.
+	 * @param commandName the new job name
+	 */
+	default void afterCoalescedJob(final String commandName,
+	                               final long coalesceTime,
+	                               final SpoolExecutor executorReferer,
+	                               final String dedupKey,
+	                               final DedupPolicy policy) {
+	}
+
 	default void shutdownSpooler() {
 	}
 
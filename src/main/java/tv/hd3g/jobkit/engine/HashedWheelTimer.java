@@ -0,0 +1,499 @@
+package tv.hd3g.jobkit.engine;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Hashed timing wheel, for a lot of pending timers: the time is cut in ticks, and each timer is put in the wheel bucket
+ * of its deadline tick, with the count of wheel rounds to wait. Schedule and cancel cost O(1): the timers are added and
+ * removed in the buckets by the wheel thread, which also runs the expired tasks.
+ * The timers can expire up to one tick late, never before their deadline.
+ * The tasks must be short (like queue a job in a spool): a long task delays all the next timers.
+ * Without pending timers, the wheel thread don't tick: it waits the next schedule.
+ */
+class HashedWheelTimer {
+
+	private static Logger log = LogManager.getLogger();
+	static final Duration DEFAULT_TICK = Duration.ofMillis(10);
+	static final int DEFAULT_WHEEL_SIZE = 512;
+
+	private static final int INIT = 0;
+	private static final int STARTED = 1;
+	private static final int STOPPED = 2;
+	/**
+	 * Without an AtomicInteger by timer.
+	 */
+	private static final AtomicIntegerFieldUpdater<Timeout> TIMEOUT_STATE = AtomicIntegerFieldUpdater.newUpdater(
+	        Timeout.class, "timeoutState");
+
+	private final long tickDuration;
+	private final Bucket[] wheel;
+	private final int mask;
+	private final ThreadFactory threadFactory;
+	private final Queue<Timeout> pendingAdds;
+	private final Queue<Timeout> pendingCancels;
+	private final AtomicInteger state;
+	private final AtomicLong pendingCount;
+	private final Consumer<Runnable> onUnprocessedTask;
+	/**
+	 * In ns, the time of the tick 0.
+	 */
+	private volatile long startTime;
+	private Thread worker;
+	/**
+	 * Only for the wheel thread.
+	 */
+	private long tick;
+	/**
+	 * Set by the wheel thread when it ends.
+	 */
+	private volatile List<Runnable> unprocessedTasks;
+	/**
+	 * Set by the wheel thread before it waits a schedule, without pending timers.
+	 */
+	private volatile boolean idle;
+	/**
+	 * Set by stopWhenEmpty: the wheel thread stops after the last pending timer.
+	 */
+	private volatile boolean draining;
+
+	HashedWheelTimer(final ThreadFactory threadFactory, final Consumer<Runnable> onUnprocessedTask) {
+		this(threadFactory, DEFAULT_TICK, DEFAULT_WHEEL_SIZE, onUnprocessedTask);
+	}
+
+	/**
+	 * @param wheelSize rounded up to a power of two
+	 * @param onUnprocessedTask called by the wheel thread when it ends, for each task of the pending timers (never run).
+	 */
+	HashedWheelTimer(final ThreadFactory threadFactory,
+	                 final Duration tick,
+	                 final int wheelSize,
+	                 final Consumer<Runnable> onUnprocessedTask) {
+		this.threadFactory = Objects.requireNonNull(threadFactory, "\"threadFactory\" can't to be null");
+		this.onUnprocessedTask = Objects.requireNonNull(onUnprocessedTask,
+		        "\"onUnprocessedTask\" can't to be null");
+		if (tick.isNegative() || tick.isZero()) {
+			throw new IllegalArgumentException("Invalid tick: " + tick);
+		}
+		if (wheelSize < 1 || wheelSize > 1 << 30) {
+			throw new IllegalArgumentException("Invalid wheelSize: " + wheelSize);
+		}
+		tickDuration = tick.toNanos();
+		final var size = wheelSize == 1 ? 1 : Integer.highestOneBit(wheelSize - 1) << 1;
+		wheel = new Bucket[size];
+		for (var pos = 0; pos < size; pos++) {
+			wheel[pos] = new Bucket();
+		}
+		mask = size - 1;
+		pendingAdds = new ConcurrentLinkedQueue<>();
+		pendingCancels = new ConcurrentLinkedQueue<>();
+		state = new AtomicInteger(INIT);
+		pendingCount = new AtomicLong(0);
+	}
+
+	/**
+	 * A pending timer.
+	 */
+	class Timeout {
+		private static final int PENDING = 0;
+		private static final int CANCELLED = 1;
+		private static final int EXPIRED = 2;
+
+		private final Runnable task;
+		/**
+		 * In ns, since startTime
+		 */
+		private final long deadline;
+		volatile int timeoutState;
+		/**
+		 * Only for the wheel thread.
+		 */
+		private long remainingRounds;
+		private Timeout next;
+		private Timeout prev;
+		private Bucket bucket;
+
+		private Timeout(final Runnable task, final long deadline) {
+			this.task = task;
+			this.deadline = deadline;
+		}
+
+		/**
+		 * @return false if already expired or cancelled
+		 */
+		boolean cancel() {
+			if (TIMEOUT_STATE.compareAndSet(this, PENDING, CANCELLED) == false) {
+				return false;
+			}
+			pendingCancels.add(this);
+			return true;
+		}
+
+		boolean isCancelled() {
+			return timeoutState == CANCELLED;
+		}
+
+		boolean isExpired() {
+			return timeoutState == EXPIRED;
+		}
+
+		private void expire() {
+			if (TIMEOUT_STATE.compareAndSet(this, PENDING, EXPIRED) == false) {
+				return;
+			}
+			try {
+				task.run();
+			} catch (final RuntimeException e) {
+				log.error("Timer task fails", e);
+			}
+		}
+	}
+
+	/**
+	 * Doubly linked list of timers. Only for the wheel thread.
+	 */
+	private class Bucket {
+		private Timeout head;
+		private Timeout tail;
+
+		void add(final Timeout timeout) {
+			timeout.bucket = this;
+			if (head == null) {
+				head = timeout;
+				tail = timeout;
+			} else {
+				tail.next = timeout;
+				timeout.prev = tail;
+				tail = timeout;
+			}
+		}
+
+		void remove(final Timeout timeout) {
+			if (timeout.prev != null) {
+				timeout.prev.next = timeout.next;
+			} else {
+				head = timeout.next;
+			}
+			if (timeout.next != null) {
+				timeout.next.prev = timeout.prev;
+			} else {
+				tail = timeout.prev;
+			}
+			timeout.prev = null;
+			timeout.next = null;
+			timeout.bucket = null;
+			pendingCount.decrementAndGet();
+		}
+
+		void expireTimeouts(final long now) {
+			var timeout = head;
+			while (timeout != null) {
+				final var next = timeout.next;
+				if (timeout.remainingRounds <= 0 && timeout.deadline <= now) {
+					remove(timeout);
+					timeout.expire();
+				} else if (timeout.isCancelled()) {
+					remove(timeout);
+				} else if (timeout.remainingRounds > 0) {
+					timeout.remainingRounds--;
+				}
+				timeout = next;
+			}
+		}
+
+		void collectPending(final List<Runnable> tasks) {
+			var timeout = head;
+			while (timeout != null) {
+				if (timeout.isCancelled() == false && timeout.isExpired() == false) {
+					tasks.add(timeout.task);
+				}
+				timeout = timeout.next;
+			}
+			head = null;
+			tail = null;
+		}
+	}
+
+	/**
+	 * The wheel thread is started with the first timer.
+	 * @throws IllegalStateException if this timer is stopped. A timer scheduled during a stop is never lost: it's
+	 *         refused, or its task is given to onUnprocessedTask.
+	 */
+	Timeout schedule(final Runnable task, final long delay, final TimeUnit unit) {
+		Objects.requireNonNull(task, "\"task\" can't to be null");
+		start();
+		var deadline = System.nanoTime() + unit.toNanos(Math.max(0, delay)) - startTime;
+		if (delay > 0 && deadline < 0) {
+			/**
+			 * Overflow: never.
+			 */
+			deadline = Long.MAX_VALUE;
+		}
+		final var timeout = new Timeout(task, deadline);
+		pendingCount.incrementAndGet();
+		pendingAdds.add(timeout);
+		if (state.get() == STOPPED && pendingAdds.remove(timeout)) {
+			/**
+			 * Else, the ended wheel thread has already taken it as unprocessed.
+			 */
+			pendingCount.decrementAndGet();
+			throw new IllegalStateException("This timer is stopped");
+		}
+		if (idle) {
+			LockSupport.unpark(worker);
+		}
+		return timeout;
+	}
+
+	private void start() {
+		switch (state.get()) {
+		case STARTED:
+			return;
+		case STOPPED:
+			throw new IllegalStateException("This timer is stopped");
+		default:
+			synchronized (this) {
+				if (state.get() == INIT) {
+					/**
+					 * Set before the state, for the other threads.
+					 */
+					startTime = System.nanoTime();
+					worker = threadFactory.newThread(this::run);
+					state.set(STARTED);
+					worker.start();
+				} else if (state.get() == STOPPED) {
+					throw new IllegalStateException("This timer is stopped");
+				}
+			}
+		}
+	}
+
+	private void run() {
+		while (state.get() != STOPPED) {
+			if (pendingCount.get() == 0) {
+				if (draining) {
+					state.set(STOPPED);
+					break;
+				}
+				waitForSchedule();
+				continue;
+			}
+			final var now = waitForNextTick();
+			if (now < 0) {
+				break;
+			}
+			processCancelled();
+			transferPendingAdds();
+			wheel[(int) (tick & mask)].expireTimeouts(now);
+			tick++;
+		}
+		final var tasks = new ArrayList<Runnable>();
+		for (final var bucket : wheel) {
+			bucket.collectPending(tasks);
+		}
+		Timeout timeout;
+		while ((timeout = pendingAdds.poll()) != null) {
+			if (timeout.isCancelled() == false) {
+				tasks.add(timeout.task);
+			}
+		}
+		pendingCancels.clear();
+		pendingCount.set(0);
+		unprocessedTasks = tasks;
+		tasks.forEach(task -> {
+			try {
+				onUnprocessedTask.accept(task);
+			} catch (final RuntimeException e) {
+				log.error("Can't end an unprocessed timer task", e);
+			}
+		});
+	}
+
+	/**
+	 * Without pending timers, until a schedule or a stop.
+	 */
+	private void waitForSchedule() {
+		idle = true;
+		if (pendingCount.get() == 0 && draining == false && state.get() != STOPPED) {
+			LockSupport.park(this);
+			/**
+			 * A stop is checked by the state, not by the interrupt flag.
+			 */
+			Thread.interrupted();
+		}
+		idle = false;
+		/**
+		 * The wheel is empty: skip the ticks without timers.
+		 */
+		tick = Math.max(tick, (System.nanoTime() - startTime) / tickDuration);
+	}
+
+	/**
+	 * @return the actual time (since startTime), or -1 if stopped during the wait
+	 */
+	private long waitForNextTick() {
+		final var deadline = tickDuration * (tick + 1);
+		while (true) {
+			final var now = System.nanoTime() - startTime;
+			final var sleepTime = deadline - now;
+			if (sleepTime <= 0) {
+				return now;
+			}
+			try {
+				TimeUnit.NANOSECONDS.sleep(sleepTime);
+			} catch (final InterruptedException e) {
+				if (state.get() == STOPPED) {
+					return -1;
+				}
+			}
+		}
+	}
+
+	private void processCancelled() {
+		Timeout timeout;
+		while ((timeout = pendingCancels.poll()) != null) {
+			if (timeout.bucket != null) {
+				timeout.bucket.remove(timeout);
+			}
+		}
+	}
+
+	/**
+	 * The cancelled timers before this transfer are removed by the next processCancelled.
+	 */
+	private void transferPendingAdds() {
+		Timeout timeout;
+		while ((timeout = pendingAdds.poll()) != null) {
+			if (timeout.isCancelled()) {
+				pendingCount.decrementAndGet();
+				continue;
+			}
+			final var deadlineTick = timeout.deadline / tickDuration;
+			timeout.remainingRounds = (deadlineTick - tick) / wheel.length;
+			/**
+			 * A late timer expires on the actual tick.
+			 */
+			final var targetTick = Math.max(deadlineTick, tick);
+			wheel[(int) (targetTick & mask)].add(timeout);
+		}
+	}
+
+	/**
+	 * @return the pending timers count (expired and cancelled timers can be still counted until the next tick).
+	 */
+	long getPendingCount() {
+		return pendingCount.get();
+	}
+
+	boolean isStopped() {
+		return state.get() == STOPPED;
+	}
+
+	/**
+	 * @return true if stopped, and the wheel thread is ended (or never started).
+	 */
+	boolean isTerminated() {
+		if (state.get() != STOPPED) {
+			return false;
+		}
+		final var actualWorker = getWorker();
+		return actualWorker == null || actualWorker.isAlive() == false;
+	}
+
+	/**
+	 * @return true if terminated before the timeout.
+	 */
+	boolean awaitTermination(final long timeout, final TimeUnit unit) throws InterruptedException {
+		final var endOfWait = System.nanoTime() + unit.toNanos(timeout);
+		while (state.get() != STOPPED) {
+			final var timeToWait = endOfWait - System.nanoTime();
+			if (timeToWait <= 0) {
+				return false;
+			}
+			TimeUnit.NANOSECONDS.sleep(Math.min(timeToWait, tickDuration));
+		}
+		final var actualWorker = getWorker();
+		if (actualWorker == null) {
+			return true;
+		}
+		final var timeToWait = endOfWait - System.nanoTime();
+		if (timeToWait > 0) {
+			TimeUnit.NANOSECONDS.timedJoin(actualWorker, timeToWait);
+		}
+		return actualWorker.isAlive() == false;
+	}
+
+	private synchronized Thread getWorker() {
+		return worker;
+	}
+
+	/**
+	 * Non-blocking. The pending timers will expire, then the wheel thread ends.
+	 */
+	void stopWhenEmpty() {
+		synchronized (this) {
+			if (state.get() == INIT) {
+				state.set(STOPPED);
+				return;
+			}
+		}
+		draining = true;
+		LockSupport.unpark(getWorker());
+	}
+
+	/**
+	 * Non-blocking. The wheel thread ends after its actual task, and gives the tasks of the pending timers (never run)
+	 * to onUnprocessedTask.
+	 * @return true if the wheel thread was started, and not already stopped.
+	 */
+	boolean requestStop() {
+		synchronized (this) {
+			if (state.getAndSet(STOPPED) != STARTED) {
+				return false;
+			}
+		}
+		worker.interrupt();
+		return true;
+	}
+
+	/**
+	 * Blocking, until the wheel thread ends (if it's not this thread), also after a requestStop or a stopWhenEmpty.
+	 * @return the tasks of the pending timers, never run, and given to onUnprocessedTask.
+	 *         Empty if called by the wheel thread: onUnprocessedTask will be called after the actual task.
+	 *         Empty if already stopped.
+	 */
+	List<Runnable> stop() {
+		final var stopped = requestStop();
+		final var actualWorker = getWorker();
+		if (actualWorker == null || Thread.currentThread() == actualWorker) {
+			return List.of();
+		}
+		var interrupted = false;
+		while (actualWorker.isAlive()) {
+			try {
+				actualWorker.join();
+			} catch (final InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+		return stopped ? unprocessedTasks : List.of();
+	}
+
+}
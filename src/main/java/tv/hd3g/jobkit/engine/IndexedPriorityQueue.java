@@ -0,0 +1,125 @@
+package tv.hd3g.jobkit.engine;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * Binary heap where each entry know its position: offer, poll and remove an entry cost O(log n).
+ * Not thread safe.
+ */
+class IndexedPriorityQueue<E extends SpoolQueue.Entry> implements SpoolQueue<E> {
+
+	private final Comparator<? super E> comparator;
+	private final ArrayList<E> heap;
+
+	IndexedPriorityQueue(final Comparator<? super E> comparator) {
+		this.comparator = comparator;
+		heap = new ArrayList<>();
+	}
+
+	@Override
+	public void offer(final E entry) {
+		entry.setQueueIndex(heap.size());
+		heap.add(entry);
+		siftUp(heap.size() - 1);
+	}
+
+	@Override
+	public E peek() {
+		if (heap.isEmpty()) {
+			return null;
+		}
+		return heap.get(0);
+	}
+
+	@Override
+	public E poll() {
+		if (heap.isEmpty()) {
+			return null;
+		}
+		final var first = heap.get(0);
+		removeAt(0);
+		return first;
+	}
+
+	@Override
+	public boolean remove(final E entry) {
+		final var index = entry.getQueueIndex();
+		if (index < 0 || index >= heap.size() || heap.get(index) != entry) {
+			return false;
+		}
+		removeAt(index);
+		return true;
+	}
+
+	@Override
+	public int size() {
+		return heap.size();
+	}
+
+	@Override
+	public void clear() {
+		heap.forEach(entry -> entry.setQueueIndex(-1));
+		heap.clear();
+	}
+
+	@Override
+	public Stream<E> stream() {
+		return heap.stream();
+	}
+
+	private void removeAt(final int index) {
+		heap.get(index).setQueueIndex(-1);
+		final var last = heap.remove(heap.size() - 1);
+		if (index == heap.size()) {
+			return;
+		}
+		place(last, index);
+		if (siftUp(index) == index) {
+			siftDown(index);
+		}
+	}
+
+	/**
+	 * @return the new position
+	 */
+	private int siftUp(int index) {
+		final var entry = heap.get(index);
+		while (index > 0) {
+			final var parent = (index - 1) / 2;
+			if (comparator.compare(entry, heap.get(parent)) >= 0) {
+				break;
+			}
+			place(heap.get(parent), index);
+			index = parent;
+		}
+		place(entry, index);
+		return index;
+	}
+
+	private void siftDown(int index) {
+		final var entry = heap.get(index);
+		final var size = heap.size();
+		final var half = size / 2;
+		while (index < half) {
+			var child = 2 * index + 1;
+			final var right = child + 1;
+			if (right < size && comparator.compare(heap.get(right), heap.get(child)) < 0) {
+				child = right;
+			}
+			if (comparator.compare(entry, heap.get(child)) <= 0) {
+				break;
+			}
+			place(heap.get(child), index);
+			index = child;
+		}
+		place(entry, index);
+	}
+
+	private void place(final E entry, final int index) {
+		heap.set(index, entry);
+		entry.setQueueIndex(index);
+	}
+
+}
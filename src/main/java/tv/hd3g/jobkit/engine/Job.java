@@ -1,5 +1,7 @@
 package tv.hd3g.jobkit.engine;
 
+import java.time.Duration;
+
 public interface Job extends Runnable {
 
 	String getJobName();
@@ -10,6 +12,21 @@ public interface Job extends Runnable {
 		return 0;
 	}
 
+	/**
+	 * @return max run time for this job, null for the spool default.
+	 */
+	default Duration getJobTimeout() {
+		return null;
+	}
+
+	/**
+	 * @return a key for the same logical job (like "reindex folder X"), null for never coalesce this job.
+	 *         A new job is coalesced with a queued job of the same key, see DedupPolicy.
+	 */
+	default String getJobDedupKey() {
+		return null;
+	}
+
 	default void onJobStart() {
 	}
 
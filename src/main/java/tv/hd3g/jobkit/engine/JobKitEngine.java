@@ -3,8 +3,15 @@ package tv.hd3g.jobkit.engine;
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
 
 import java.time.Duration;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
@@ -14,24 +21,90 @@ import tv.hd3g.jobkit.engine.status.JobKitEngineStatus;
 public class JobKitEngine implements JobTrait {
 
 	private final ConcurrentHashMap<String, BackgroundService> backgroundServices;
+	private final ConcurrentHashMap<String, SpoolBatcher<?>> batchers;
 	private final ScheduledExecutorService scheduledExecutor;
+	/**
+	 * Created (and shutdown) by this engine.
+	 */
+	private final boolean ownScheduledExecutor;
 	private final BackgroundServiceEvent backgroundServiceEvent;
 	private final Spooler spooler;
+	/**
+	 * For the delayed one-shot jobs.
+	 */
+	private final HashedWheelTimer delayedJobsTimer;
 
 	public JobKitEngine(final ScheduledExecutorService scheduledExecutor,
 	                    final ExecutionEvent executionEvent,
 	                    final BackgroundServiceEvent backgroundServiceEvent) {
+		this(scheduledExecutor, false, backgroundServiceEvent, new Spooler(executionEvent));
+	}
+
+	/**
+	 * @param spoolThreadFactory used by all spools to create its worker threads, like a VirtualThreadFactory.
+	 */
+	public JobKitEngine(final ScheduledExecutorService scheduledExecutor,
+	                    final ExecutionEvent executionEvent,
+	                    final BackgroundServiceEvent backgroundServiceEvent,
+	                    final ThreadFactory spoolThreadFactory) {
+		this(scheduledExecutor, false, backgroundServiceEvent, new Spooler(executionEvent, spoolThreadFactory));
+	}
+
+	/**
+	 * The BackgroundServices and the batchers use an internal TimingWheelScheduledExecutor, shutdown with this engine.
+	 * @param tick the timing wheel resolution, like TimingWheelScheduledExecutor.DEFAULT_TICK
+	 */
+	public JobKitEngine(final Duration tick,
+	                    final ExecutionEvent executionEvent,
+	                    final BackgroundServiceEvent backgroundServiceEvent) {
+		this(new TimingWheelScheduledExecutor(tick), true, backgroundServiceEvent, new Spooler(executionEvent));
+	}
+
+	/**
+	 * The BackgroundServices and the batchers use an internal TimingWheelScheduledExecutor, shutdown with this engine.
+	 * @param tick the timing wheel resolution, like TimingWheelScheduledExecutor.DEFAULT_TICK
+	 * @param spoolThreadFactory used by all spools to create its worker threads, like a VirtualThreadFactory.
+	 */
+	public JobKitEngine(final Duration tick,
+	                    final ExecutionEvent executionEvent,
+	                    final BackgroundServiceEvent backgroundServiceEvent,
+	                    final ThreadFactory spoolThreadFactory) {
+		this(new TimingWheelScheduledExecutor(tick), true, backgroundServiceEvent,
+		        new Spooler(executionEvent, spoolThreadFactory));
+	}
+
+	/**
+	 * @param ownScheduledExecutor true if this engine must shutdown the scheduledExecutor
+	 */
+	private JobKitEngine(final ScheduledExecutorService scheduledExecutor,
+	                     final boolean ownScheduledExecutor,
+	                     final BackgroundServiceEvent backgroundServiceEvent,
+	                     final Spooler spooler) {
 		this.scheduledExecutor = scheduledExecutor;
+		this.ownScheduledExecutor = ownScheduledExecutor;
 		this.backgroundServiceEvent = backgroundServiceEvent;
-		spooler = new Spooler(executionEvent);
+		this.spooler = spooler;
 		backgroundServices = new ConcurrentHashMap<>();
+		batchers = new ConcurrentHashMap<>();
+		delayedJobsTimer = new HashedWheelTimer(JobKitEngine::newTimerThread,
+		        delayedJob -> ((DelayedJob) delayedJob).reject());
 	}
 
 	protected JobKitEngine() {
+		ownScheduledExecutor = false;
 		scheduledExecutor = null;
 		backgroundServiceEvent = null;
 		spooler = null;
 		backgroundServices = null;
+		batchers = null;
+		delayedJobsTimer = null;
+	}
+
+	private static Thread newTimerThread(final Runnable r) {
+		final var t = new Thread(r);
+		t.setDaemon(true);
+		t.setName("JobKitEngine timer");
+		return t;
 	}
 
 	/**
@@ -46,6 +119,178 @@ public class JobKitEngine implements JobTrait {
 		return spooler.getExecutor(spoolName).addToQueue(task, name, priority, afterRunCommand);
 	}
 
+	/**
+	 * The task is coalesced according to the DedupPolicy of the spool.
+	 * @return true if the task is queued (or coalesced)
+	 */
+	@Override
+	public boolean runOneShot(final String name,
+	                          final String spoolName,
+	                          final int priority,
+	                          final String dedupKey,
+	                          final Runnable task,
+	                          final Consumer<Exception> afterRunCommand) {
+		return spooler.getExecutor(spoolName).addToQueue(task, name, priority, null, dedupKey, afterRunCommand);
+	}
+
+	/**
+	 * The job timeout and dedup key are applied by the spool.
+	 * @return true if the job is queued (or coalesced)
+	 */
+	@Override
+	public boolean runOneShot(final Job job) {
+		return spooler.getExecutor(job.getJobSpoolname()).addToQueue(SpoolExecutor.jobCommand(job),
+		        job.getJobName(), job.getJobPriority(), job.getJobTimeout(), job.getJobDedupKey(),
+		        SpoolExecutor.jobAfterRunCommand(job));
+	}
+
+	/**
+	 * The job timeout and dedup key are applied by the spool.
+	 * @see SpoolExecutor#submit(Runnable, String, int, Duration, String, Consumer)
+	 */
+	@Override
+	public CompletableFuture<Void> submitOneShot(final Job job) {
+		return spooler.getExecutor(job.getJobSpoolname()).submit(SpoolExecutor.jobCommand(job),
+		        job.getJobName(), job.getJobPriority(), job.getJobTimeout(), job.getJobDedupKey(),
+		        SpoolExecutor.jobAfterRunCommand(job));
+	}
+
+	/**
+	 * Cancel the returned handle remove the queued task, or interrupt the running task.
+	 * @see SpoolExecutor#submit(Runnable, String, int, Consumer)
+	 */
+	@Override
+	public CompletableFuture<Void> submitOneShot(final String name,
+	                                             final String spoolName,
+	                                             final int priority,
+	                                             final Runnable task,
+	                                             final Consumer<Exception> afterRunCommand) {
+		return spooler.getExecutor(spoolName).submit(task, name, priority, afterRunCommand);
+	}
+
+	/**
+	 * Cancel the returned handle remove the queued task, or interrupt the running task.
+	 * @see SpoolExecutor#submit(Callable, String, int)
+	 */
+	@Override
+	public <T> CompletableFuture<T> submitOneShot(final String name,
+	                                              final String spoolName,
+	                                              final int priority,
+	                                              final Callable<T> task) {
+		return spooler.getExecutor(spoolName).submit(task, name, priority);
+	}
+
+	/**
+	 * The delay is handled by a hashed timing wheel, shared by all the delayed jobs of this engine: a pending delayed
+	 * job cost only a wheel entry. It's queued in its spool by the wheel thread, up to 10 ms after the delay.
+	 * Beware, with a BLOCK or CALLER_RUNS QueueFullPolicy, a full spool will hold the wheel thread.
+	 * Cancel the returned handle before the delay to never queue the task, or after, like submitOneShot.
+	 * @return completed by a RejectedExecutionException if this engine is shutdown before the delay.
+	 */
+	@Override
+	public CompletableFuture<Void> runOneShotAfter(final Duration delay,
+	                                               final String name,
+	                                               final String spoolName,
+	                                               final int priority,
+	                                               final Runnable task,
+	                                               final Consumer<Exception> afterRunCommand) {
+		final var delayedJob = new DelayedJob(name, spoolName, priority, task, afterRunCommand);
+		try {
+			delayedJob.timeout = delayedJobsTimer.schedule(delayedJob, delay.toMillis(), MILLISECONDS);
+		} catch (final IllegalStateException e) {
+			delayedJob.completeExceptionally(new RejectedExecutionException("Can't delay \"" + name
+			                                                                + "\", this engine is shutdown", e));
+		}
+		return delayedJob;
+	}
+
+	private class DelayedJob extends CompletableFuture<Void> implements Runnable {
+		private final String name;
+		private final String spoolName;
+		private final int priority;
+		private final Runnable task;
+		private final Consumer<Exception> afterRunCommand;
+		private volatile HashedWheelTimer.Timeout timeout;
+		private volatile CompletableFuture<Void> spoolHandle;
+
+		DelayedJob(final String name,
+		           final String spoolName,
+		           final int priority,
+		           final Runnable task,
+		           final Consumer<Exception> afterRunCommand) {
+			this.name = name;
+			this.spoolName = spoolName;
+			this.priority = priority;
+			this.task = task;
+			this.afterRunCommand = afterRunCommand;
+		}
+
+		/**
+		 * Called by the wheel thread, after the delay.
+		 */
+		@Override
+		public void run() {
+			if (isDone()) {
+				return;
+			}
+			final var spoolExecutor = spooler.getExecutor(spoolName);
+			if (spoolExecutor == null) {
+				completeExceptionally(new RejectedExecutionException("Can't queue \"" + name + "\""));
+				return;
+			}
+			final var handle = spoolExecutor.submit(task, name, priority, afterRunCommand);
+			spoolHandle = handle;
+			handle.whenComplete((v, e) -> {
+				if (e != null) {
+					completeExceptionally(e);
+				} else {
+					complete(null);
+				}
+			});
+			if (isCancelled()) {
+				handle.cancel(false);
+			}
+		}
+
+		@Override
+		public boolean cancel(final boolean mayInterruptIfRunning) {
+			if (super.cancel(mayInterruptIfRunning) == false) {
+				return false;
+			}
+			final var actualTimeout = timeout;
+			if (actualTimeout != null) {
+				actualTimeout.cancel();
+			}
+			final var actualSpoolHandle = spoolHandle;
+			if (actualSpoolHandle != null) {
+				actualSpoolHandle.cancel(mayInterruptIfRunning);
+			}
+			return true;
+		}
+
+		/**
+		 * Never queued, after a shutdown.
+		 */
+		void reject() {
+			completeExceptionally(new RejectedExecutionException("Can't queue \"" + name + "\", the engine is shutdown"));
+		}
+	}
+
+	/**
+	 * Jobs are grouped by spool, and each group is queued in one time.
+	 * @return true if all the tasks are queued
+	 */
+	@Override
+	public boolean runOneShot(final Collection<? extends Job> jobs) {
+		return jobs.stream()
+		        .collect(Collectors.groupingBy(Job::getJobSpoolname,
+		                LinkedHashMap::new,
+		                Collectors.toUnmodifiableList()))
+		        .entrySet().stream()
+		        .map(entry -> spooler.getExecutor(entry.getKey()).addAllToQueue(entry.getValue()))
+		        .reduce(true, Boolean::logicalAnd);
+	}
+
 	/**
 	 * @return a new service or the existing service for "name"
 	 */
@@ -82,29 +327,107 @@ public class JobKitEngine implements JobTrait {
 		return startService(name, spoolName, duration.toMillis(), MILLISECONDS, task);
 	}
 
+	/**
+	 * Stagger evenly all the services of this engine on their intervals, ordered by name.
+	 * @see BackgroundService#spread(Collection)
+	 */
+	public void spreadServices() {
+		BackgroundService.spread(backgroundServices.values().stream()
+		        .sorted(Comparator.comparing(BackgroundService::getName))
+		        .collect(Collectors.toUnmodifiableList()));
+	}
+
+	/**
+	 * @param name unique for this engine: a batcher can't be reused with another handler and items type.
+	 * @return a new batcher
+	 * @throws IllegalArgumentException if a batcher was already created with this name
+	 */
+	public <T> SpoolBatcher<T> createBatcher(final String name,
+	                                         final String spoolName,
+	                                         final BatchHandler<T> handler) {
+		final var batcher = new SpoolBatcher<>(name, spoolName, spooler, scheduledExecutor, handler);
+		if (batchers.putIfAbsent(name, batcher) != null) {
+			throw new IllegalArgumentException("Invalid name: " + name + ", a batcher already exists with this name");
+		}
+		return batcher;
+	}
+
 	public Spooler getSpooler() {
 		return spooler;
 	}
 
+	public ScheduledExecutorService getScheduledExecutor() {
+		return scheduledExecutor;
+	}
+
 	/**
 	 * Stop all services and shutdown spooler.
-	 * Non-blocking.
-	 * Don't forget to shutdown the scheduled executor.
+	 * Non-blocking: can be called by a job or a scheduled task. The pending delayed jobs will never be queued, and
+	 * the pending scheduled tasks (like batcher delays) of an internal scheduled executor are ended by a spool
+	 * rejection.
+	 * Don't forget to shutdown the scheduled executor, if it's not created by this engine.
 	 */
 	public void shutdown() {
 		backgroundServices.entrySet().stream()
 		        .forEach(bS -> bS.getValue().disable());
+		/**
+		 * The pending delayed jobs are rejected by the timer thread.
+		 */
+		delayedJobsTimer.requestStop();
+		if (ownScheduledExecutor) {
+			scheduledExecutor.shutdown();
+		}
 		spooler.shutdown();
 	}
 
 	/**
-	 * Blocking. It call shutdown() before.
+	 * Blocking, until the timer threads end.
+	 * The pending delayed jobs will never be queued, and the pending scheduled tasks (like batcher delays) will never
+	 * run with an internal scheduled executor.
+	 */
+	private void stopDelayedJobs() {
+		/**
+		 * The pending delayed jobs are rejected by the timer.
+		 */
+		delayedJobsTimer.stop();
+		if (ownScheduledExecutor) {
+			scheduledExecutor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Blocking, without limit. It call shutdown() before.
 	 */
 	public void waitToClose() {
 		shutdown();
+		stopDelayedJobs();
 		spooler.waitToClose();
 	}
 
+	/**
+	 * Blocking. Stop all services before.
+	 * @return true if all jobs are ended before the timeout.
+	 */
+	public boolean waitToClose(final Duration timeout) {
+		return waitToClose(timeout, false);
+	}
+
+	/**
+	 * Blocking. Stop all services before.
+	 * @param drainQueues if true, all actual queued jobs (and pending batches) will be run before to close, else all
+	 *        queues are cleared.
+	 * @return true if all jobs are ended before the timeout.
+	 */
+	public boolean waitToClose(final Duration timeout, final boolean drainQueues) {
+		backgroundServices.entrySet().stream()
+		        .forEach(bS -> bS.getValue().disable());
+		if (drainQueues) {
+			batchers.values().forEach(SpoolBatcher::flush);
+		}
+		stopDelayedJobs();
+		return spooler.waitToClose(timeout, drainQueues);
+	}
+
 	public JobKitEngineStatus getLastStatus() {
 		final var spoolerStatus = spooler.getLastStatus();
 		final var backgroundServicesStatus = backgroundServices.entrySet().stream()
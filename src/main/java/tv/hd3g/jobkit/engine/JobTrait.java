@@ -1,5 +1,15 @@
 package tv.hd3g.jobkit.engine;
 
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
 
 public interface JobTrait {
@@ -13,24 +23,151 @@ public interface JobTrait {
 	                   final Runnable task,
 	                   final Consumer<Exception> afterRunCommand);
 
+	/**
+	 * Like runOneShot, with a dedup key: a new task is coalesced with a queued task of the same key in the same spool.
+	 * This default implementation ignore the dedup key.
+	 * @param dedupKey null for never coalesce this task
+	 * @return true if the task is queued (or coalesced)
+	 * @see DedupPolicy
+	 */
+	default boolean runOneShot(final String name,
+	                           final String spoolName,
+	                           final int priority,
+	                           final String dedupKey,
+	                           final Runnable task,
+	                           final Consumer<Exception> afterRunCommand) {
+		return runOneShot(name, spoolName, priority, task, afterRunCommand);
+	}
+
 	/**
 	 * @return true if the task is queued
 	 */
 	default boolean runOneShot(final Job job) {
-		final Runnable run = () -> {
-			job.onJobStart();
-			job.run();
-		};
-
-		final Consumer<Exception> afterRunCommand = e -> {
-			if (e != null) {
-				job.onJobFail(e);
-			} else {
-				job.onJobDone();
+		return runOneShot(job.getJobName(),
+		        job.getJobSpoolname(),
+		        job.getJobPriority(),
+		        SpoolExecutor.jobCommand(job),
+		        SpoolExecutor.jobAfterRunCommand(job));
+	}
+
+	/**
+	 * @return true if all the tasks are queued
+	 */
+	default boolean runOneShot(final Collection<? extends Job> jobs) {
+		var allQueued = true;
+		for (final var job : jobs) {
+			allQueued &= runOneShot(job);
+		}
+		return allQueued;
+	}
+
+	/**
+	 * Like runOneShot, but return a handle on the task.
+	 * This default implementation can't cancel the task: the handle only follow its ends.
+	 * @return completed after the afterRunCommand, with the task error, if any.
+	 *         Completed by a RejectedExecutionException if the task is not queued.
+	 */
+	default CompletableFuture<Void> submitOneShot(final String name,
+	                                              final String spoolName,
+	                                              final int priority,
+	                                              final Runnable task,
+	                                              final Consumer<Exception> afterRunCommand) {
+		final var handle = new CompletableFuture<Void>();
+		final var queued = runOneShot(name, spoolName, priority, task, e -> {
+			try {
+				afterRunCommand.accept(e);
+			} finally {
+				if (e != null) {
+					handle.completeExceptionally(e);
+				} else {
+					handle.complete(null);
+				}
+			}
+		});
+		if (queued == false) {
+			handle.completeExceptionally(new RejectedExecutionException("Can't queue \"" + name + "\""));
+		}
+		return handle;
+	}
+
+	/**
+	 * Like runOneShot, but return a handle on the job.
+	 * @return completed after the onJobDone/onJobFail, with the job error, if any.
+	 */
+	default CompletableFuture<Void> submitOneShot(final Job job) {
+		return submitOneShot(job.getJobName(),
+		        job.getJobSpoolname(),
+		        job.getJobPriority(),
+		        SpoolExecutor.jobCommand(job),
+		        SpoolExecutor.jobAfterRunCommand(job));
+	}
+
+	/**
+	 * Queue the task in its spool after a delay.
+	 * This default implementation use the common delayed executor, and can't cancel the task once queued.
+	 * @param delay zero or negative for now
+	 * @return completed after the afterRunCommand, with the task error, if any.
+	 *         Cancel it before the delay to never queue the task.
+	 */
+	default CompletableFuture<Void> runOneShotAfter(final Duration delay,
+	                                                final String name,
+	                                                final String spoolName,
+	                                                final int priority,
+	                                                final Runnable task,
+	                                                final Consumer<Exception> afterRunCommand) {
+		final var handle = new CompletableFuture<Void>();
+		CompletableFuture.delayedExecutor(Math.max(0, delay.toMillis()), MILLISECONDS).execute(() -> {
+			if (handle.isDone()) {
+				return;
 			}
-		};
+			submitOneShot(name, spoolName, priority, task, afterRunCommand).whenComplete((v, e) -> {
+				if (e != null) {
+					handle.completeExceptionally(e);
+				} else {
+					handle.complete(null);
+				}
+			});
+		});
+		return handle;
+	}
 
-		return runOneShot(job.getJobName(), job.getJobSpoolname(), job.getJobPriority(), run, afterRunCommand);
+	/**
+	 * Queue the task in its spool at a date.
+	 * @param date in the past for now
+	 * @see JobTrait#runOneShotAfter(Duration, String, String, int, Runnable, Consumer)
+	 */
+	default CompletableFuture<Void> runOneShotAt(final Instant date,
+	                                             final String name,
+	                                             final String spoolName,
+	                                             final int priority,
+	                                             final Runnable task,
+	                                             final Consumer<Exception> afterRunCommand) {
+		return runOneShotAfter(Duration.between(Instant.now(), date), name, spoolName, priority, task,
+		        afterRunCommand);
+	}
+
+	/**
+	 * Callable variant, for async pipelines: the next stage can be chained on the returned handle, like
+	 * submitOneShot(scan).thenCompose(files -&gt; submitOneShot(checksum(files)))
+	 * @return completed by the task result or error, after the task run.
+	 *         Completed by a RejectedExecutionException if the task is not queued.
+	 */
+	default <T> CompletableFuture<T> submitOneShot(final String name,
+	                                               final String spoolName,
+	                                               final int priority,
+	                                               final Callable<T> task) {
+		final var result = new AtomicReference<T>();
+		return submitOneShot(name, spoolName, priority, () -> {
+			try {
+				result.set(task.call());
+			} catch (final Exception e) {
+				/**
+				 * The returned handle get the task error as cause, like with a thenApply.
+				 */
+				throw new CompletionException(e);
+			}
+		}, e -> {
+		}).thenApply(v -> result.get());
 	}
 
 }
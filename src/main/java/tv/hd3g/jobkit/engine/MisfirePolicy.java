@@ -0,0 +1,21 @@
+package tv.hd3g.jobkit.engine;
+
+/**
+ * For a fixed-rate BackgroundService: what to do with a planned run, when the previous run is still queued or running.
+ */
+public enum MisfirePolicy {
+
+	/**
+	 * The planned run is lost.
+	 */
+	SKIP,
+	/**
+	 * All the missed runs are done in one run, just after the actual run.
+	 */
+	COALESCE,
+	/**
+	 * Each missed run is done, one after the other, after the actual run.
+	 */
+	CATCH_UP;
+
+}
@@ -0,0 +1,275 @@
+package tv.hd3g.jobkit.engine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.ToIntFunction;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * One FIFO bucket by priority value, and a bitmap of the non-empty buckets: offer, poll and remove an entry cost O(1),
+ * and entries with the same priority are polled in offer order.
+ * Only a new priority value cost O(k), with k the count of priority values actually queued.
+ * With a head comparator, poll and peek compare the first entry of each bucket, and cost O(k).
+ * The priority of an entry must not change while it is queued.
+ * Not thread safe.
+ */
+class PriorityBucketQueue<E extends SpoolQueue.Entry> implements SpoolQueue<E> {
+
+	private final ToIntFunction<? super E> priorityOf;
+	private final Comparator<? super E> headComparator;
+	private final Map<Integer, Bucket> bucketsByPriority;
+	/**
+	 * Sorted by priority, the highest first.
+	 */
+	private List<Bucket> levels;
+	/**
+	 * One bit by levels item, set if the bucket is not empty.
+	 */
+	private long[] nonEmptyLevels;
+	private int size;
+
+	PriorityBucketQueue(final ToIntFunction<? super E> priorityOf) {
+		this(priorityOf, null);
+	}
+
+	/**
+	 * @param headComparator to choose between the first entries of each bucket, instead of the highest priority bucket.
+	 *        It must keep the offer order for the entries of a same bucket. Can be null.
+	 */
+	PriorityBucketQueue(final ToIntFunction<? super E> priorityOf, final Comparator<? super E> headComparator) {
+		this.priorityOf = Objects.requireNonNull(priorityOf, "\"priorityOf\" can't to be null");
+		this.headComparator = headComparator;
+		bucketsByPriority = new HashMap<>();
+		levels = List.of();
+		nonEmptyLevels = new long[0];
+		size = 0;
+	}
+
+	private class Bucket {
+		final int priority;
+		int level;
+		/**
+		 * The removed items are let as null, until a compact.
+		 */
+		final ArrayList<E> items;
+		/**
+		 * Before it, all items are null.
+		 */
+		int head;
+		/**
+		 * Without the removed items
+		 */
+		int count;
+
+		Bucket(final int priority) {
+			this.priority = priority;
+			items = new ArrayList<>();
+		}
+
+		void add(final E entry) {
+			if (items.size() >= 16 && items.size() > count * 2) {
+				compact();
+			}
+			entry.setQueueIndex(items.size());
+			items.add(entry);
+			count++;
+		}
+
+		/**
+		 * Remove the holes let by the removed items.
+		 */
+		private void compact() {
+			items.removeIf(Objects::isNull);
+			for (var pos = 0; pos < items.size(); pos++) {
+				items.get(pos).setQueueIndex(pos);
+			}
+			head = 0;
+		}
+
+		/**
+		 * @return null if empty
+		 */
+		E first() {
+			while (head < items.size()) {
+				final var entry = items.get(head);
+				if (entry != null) {
+					return entry;
+				}
+				head++;
+			}
+			return null;
+		}
+
+		boolean remove(final E entry) {
+			final var index = entry.getQueueIndex();
+			if (index < 0 || index >= items.size() || items.get(index) != entry) {
+				return false;
+			}
+			items.set(index, null);
+			entry.setQueueIndex(-1);
+			count--;
+			if (count == 0) {
+				items.clear();
+				head = 0;
+			}
+			return true;
+		}
+
+		Stream<E> stream() {
+			return items.subList(head, items.size()).stream()
+			        .filter(Objects::nonNull);
+		}
+
+		void clear() {
+			items.stream()
+			        .filter(Objects::nonNull)
+			        .forEach(entry -> entry.setQueueIndex(-1));
+			items.clear();
+			head = 0;
+			count = 0;
+		}
+	}
+
+	@Override
+	public void offer(final E entry) {
+		var bucket = bucketsByPriority.get(priorityOf.applyAsInt(entry));
+		if (bucket == null) {
+			bucket = addLevel(priorityOf.applyAsInt(entry));
+		}
+		bucket.add(entry);
+		setNonEmpty(bucket.level);
+		size++;
+	}
+
+	/**
+	 * Rebuild all the levels, and forget the empty buckets.
+	 */
+	private Bucket addLevel(final int priority) {
+		final var newBucket = new Bucket(priority);
+		levels = Stream.concat(levels.stream().filter(b -> b.count > 0), Stream.of(newBucket))
+		        .sorted((l, r) -> Integer.compare(r.priority, l.priority))
+		        .collect(Collectors.toUnmodifiableList());
+		nonEmptyLevels = new long[(levels.size() + 63) / 64];
+		bucketsByPriority.clear();
+		for (var level = 0; level < levels.size(); level++) {
+			final var bucket = levels.get(level);
+			bucket.level = level;
+			bucketsByPriority.put(bucket.priority, bucket);
+			if (bucket.count > 0) {
+				setNonEmpty(level);
+			}
+		}
+		return newBucket;
+	}
+
+	private void setNonEmpty(final int level) {
+		nonEmptyLevels[level >>> 6] |= 1L << level;
+	}
+
+	private void setEmpty(final int level) {
+		nonEmptyLevels[level >>> 6] &= ~(1L << level);
+	}
+
+	/**
+	 * @return null if all buckets are empty
+	 */
+	private Bucket firstNonEmptyBucket() {
+		if (headComparator != null) {
+			return firstBucketByHead();
+		}
+		for (var word = 0; word < nonEmptyLevels.length; word++) {
+			if (nonEmptyLevels[word] != 0) {
+				return levels.get(word * 64 + Long.numberOfTrailingZeros(nonEmptyLevels[word]));
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @return null if all buckets are empty
+	 */
+	private Bucket firstBucketByHead() {
+		Bucket best = null;
+		E bestHead = null;
+		for (var word = 0; word < nonEmptyLevels.length; word++) {
+			var bits = nonEmptyLevels[word];
+			while (bits != 0) {
+				final var bucket = levels.get(word * 64 + Long.numberOfTrailingZeros(bits));
+				final var head = bucket.first();
+				if (best == null || headComparator.compare(head, bestHead) < 0) {
+					best = bucket;
+					bestHead = head;
+				}
+				bits &= bits - 1;
+			}
+		}
+		return best;
+	}
+
+	@Override
+	public E peek() {
+		final var bucket = firstNonEmptyBucket();
+		if (bucket == null) {
+			return null;
+		}
+		return bucket.first();
+	}
+
+	@Override
+	public E poll() {
+		final var bucket = firstNonEmptyBucket();
+		if (bucket == null) {
+			return null;
+		}
+		final var first = bucket.first();
+		removeFrom(bucket, first);
+		return first;
+	}
+
+	@Override
+	public boolean remove(final E entry) {
+		final var bucket = bucketsByPriority.get(priorityOf.applyAsInt(entry));
+		if (bucket == null) {
+			return false;
+		}
+		return removeFrom(bucket, entry);
+	}
+
+	private boolean removeFrom(final Bucket bucket, final E entry) {
+		if (bucket.remove(entry) == false) {
+			return false;
+		}
+		if (bucket.count == 0) {
+			setEmpty(bucket.level);
+		}
+		size--;
+		return true;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public void clear() {
+		levels.forEach(Bucket::clear);
+		Arrays.fill(nonEmptyLevels, 0);
+		size = 0;
+	}
+
+	/**
+	 * @return all entries, sorted by priority and offer order.
+	 */
+	@Override
+	public Stream<E> stream() {
+		return levels.stream().flatMap(Bucket::stream);
+	}
+
+}
@@ -0,0 +1,33 @@
+package tv.hd3g.jobkit.engine;
+
+/**
+ * What a SpoolExecutor do with a new job when its queue is full.
+ */
+public enum QueueFullPolicy {
+
+	/**
+	 * The caller wait some free space in the queue (or the spool shutdown).
+	 */
+	BLOCK,
+	/**
+	 * The new job is refused (addToQueue return false), and its afterRunCommand will never be called.
+	 * A BackgroundService run refused like this is handled like a failed run: the next run is planned after the
+	 * retry delay.
+	 */
+	REJECT,
+	/**
+	 * The queued job with the lowest priority (the newest if equals) is removed for the new job, and
+	 * its afterRunCommand get a RejectedExecutionException.
+	 * If the new job has the lowest priority, it will be refused like with REJECT.
+	 */
+	DROP_LOWEST_PRIORITY,
+	/**
+	 * The first queued job is removed for the new job, and its afterRunCommand get a RejectedExecutionException.
+	 */
+	DROP_OLDEST,
+	/**
+	 * The new job is run directly by the caller thread, outside the spool.
+	 */
+	CALLER_RUNS;
+
+}
@@ -0,0 +1,25 @@
+package tv.hd3g.jobkit.engine;
+
+/**
+ * How a BackgroundService computes its next run delay after an error.
+ * @see BackoffRetryDelayPolicy
+ */
+@FunctionalInterface
+public interface RetryDelayPolicy {
+
+	/**
+	 * @param timedInterval the normal interval of the service, in ms
+	 * @param sequentialErrorCount 1 for the first retry
+	 * @param previousDelay the previous delay, in ms (the timedInterval for the first retry)
+	 * @return the next run delay, in ms
+	 */
+	long getRetryDelay(long timedInterval, int sequentialErrorCount, long previousDelay);
+
+	/**
+	 * @return the sequential error count to keep after a successful run, 0 for a full reset (the default).
+	 */
+	default int getErrorCountAfterSuccess(final int sequentialErrorCount) {
+		return 0;
+	}
+
+}
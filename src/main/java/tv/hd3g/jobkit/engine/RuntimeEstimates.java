@@ -0,0 +1,71 @@
+package tv.hd3g.jobkit.engine;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Rolling runtime estimate by command name: an exponentially weighted moving average (EWMA) of its run durations.
+ * Bounded: the least recently used command names are forgotten first.
+ * Thread safe.
+ */
+class RuntimeEstimates {
+
+	static final int DEFAULT_MAX_COMMANDS = 1000;
+	/**
+	 * Weight of the last run duration in the estimate.
+	 */
+	static final double SMOOTHING = 0.2d;
+
+	private final LinkedHashMap<String, Double> estimates;
+
+	RuntimeEstimates() {
+		this(DEFAULT_MAX_COMMANDS);
+	}
+
+	RuntimeEstimates(final int maxCommands) {
+		if (maxCommands < 1) {
+			throw new IllegalArgumentException("Invalid maxCommands: " + maxCommands);
+		}
+		estimates = new LinkedHashMap<>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(final Map.Entry<String, Double> eldest) {
+				return size() > maxCommands;
+			}
+		};
+	}
+
+	/**
+	 * @param duration in ms
+	 */
+	synchronized void record(final String commandName, final long duration) {
+		estimates.merge(commandName, (double) duration,
+		        (estimate, last) -> estimate + SMOOTHING * (last - estimate));
+	}
+
+	/**
+	 * @return in ms, -1 if unknown
+	 */
+	synchronized long estimate(final String commandName) {
+		final var estimate = estimates.get(commandName);
+		if (estimate == null) {
+			return -1;
+		}
+		return Math.round(estimate);
+	}
+
+	/**
+	 * @return in ms, by command name
+	 */
+	synchronized Map<String, Long> getAll() {
+		return estimates.entrySet().stream()
+		        .collect(Collectors.toUnmodifiableMap(Map.Entry::getKey, entry -> Math.round(entry.getValue())));
+	}
+
+	synchronized int size() {
+		return estimates.size();
+	}
+
+}
@@ -0,0 +1,291 @@
+package tv.hd3g.jobkit.engine;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Micro-batching for many tiny jobs of the same kind (like a DB insert by detected file): the added items are
+ * collected by batch key, up to maxBatchSize items or maxBatchDelay after the first item, and processed by the
+ * BatchHandler in one spool job. The spool job fixed cost (events, logs, thread handoff) is paid once by batch, and
+ * each item still get its own afterRunCommand.
+ */
+public class SpoolBatcher<T> {
+
+	private static Logger log = LogManager.getLogger();
+	public static final int DEFAULT_MAX_BATCH_SIZE = 100;
+	public static final Duration DEFAULT_MAX_BATCH_DELAY = Duration.ofMillis(10);
+
+	private final String name;
+	private final String spoolName;
+	private final Spooler spooler;
+	private final ScheduledExecutorService scheduledExecutor;
+	private final BatchHandler<T> handler;
+
+	/**
+	 * Not yet queued batches, by batch key.
+	 */
+	private final Map<String, Batch> pendingBatches;
+	private int maxBatchSize;
+	private long maxBatchDelay;
+	private int priority;
+
+	public SpoolBatcher(final String name,
+	                    final String spoolName,
+	                    final Spooler spooler,
+	                    final ScheduledExecutorService scheduledExecutor,
+	                    final BatchHandler<T> handler) {
+		this.name = name;
+		this.spoolName = spoolName;
+		this.spooler = spooler;
+		this.scheduledExecutor = scheduledExecutor;
+		this.handler = Objects.requireNonNull(handler, "\"handler\" can't to be null");
+		pendingBatches = new HashMap<>();
+		maxBatchSize = DEFAULT_MAX_BATCH_SIZE;
+		maxBatchDelay = DEFAULT_MAX_BATCH_DELAY.toMillis();
+		priority = 0;
+	}
+
+	private class Item {
+		final T value;
+		final Consumer<Exception> afterRunCommand;
+		final CompletableFuture<Void> handle;
+
+		Item(final T value, final Consumer<Exception> afterRunCommand) {
+			this.value = value;
+			this.afterRunCommand = afterRunCommand;
+			handle = new CompletableFuture<>();
+		}
+
+		void onEnd(final Exception error) {
+			try {
+				afterRunCommand.accept(error);
+			} catch (final Exception e) {
+				log.error("Fail to run afterRunCommand for an item of \"{}\"", name, e);
+			}
+			if (error != null) {
+				handle.completeExceptionally(error);
+			} else {
+				handle.complete(null);
+			}
+		}
+	}
+
+	private class Batch {
+		final String batchKey;
+		final List<Item> items;
+		/**
+		 * Null if this batch is full before its delay.
+		 */
+		ScheduledFuture<?> delayedFlush;
+		/**
+		 * Set by the handler, read by the spool job afterRunCommand.
+		 */
+		Map<Integer, Exception> failures;
+
+		Batch(final String batchKey) {
+			this.batchKey = batchKey;
+			items = new ArrayList<>();
+		}
+
+		void process() {
+			try {
+				failures = handler.process(batchKey, items.stream()
+				        .map(item -> item.value)
+				        .collect(Collectors.toUnmodifiableList()));
+			} catch (final Exception e) {
+				/**
+				 * Unwrapped by onEnd.
+				 */
+				throw new CompletionException(e);
+			}
+		}
+
+		void onEnd(final Exception processError) {
+			final Exception error;
+			if (processError instanceof CompletionException && processError.getCause() instanceof Exception) {
+				error = (Exception) processError.getCause();
+			} else {
+				error = processError;
+			}
+			for (var pos = 0; pos < items.size(); pos++) {
+				if (error != null) {
+					items.get(pos).onEnd(error);
+				} else if (failures != null) {
+					items.get(pos).onEnd(failures.get(pos));
+				} else {
+					items.get(pos).onEnd(null);
+				}
+			}
+		}
+	}
+
+	/**
+	 * @param maxBatchSize a batch is queued in the spool as soon as it has this items count (DEFAULT_MAX_BATCH_SIZE by
+	 *        default).
+	 */
+	public synchronized SpoolBatcher<T> setMaxBatchSize(final int maxBatchSize) {
+		if (maxBatchSize < 1) {
+			throw new IllegalArgumentException("Invalid maxBatchSize: " + maxBatchSize);
+		}
+		this.maxBatchSize = maxBatchSize;
+		return this;
+	}
+
+	public synchronized int getMaxBatchSize() {
+		return maxBatchSize;
+	}
+
+	/**
+	 * @param maxBatchDelay max wait time for the first item of a batch, before to queue it in the spool
+	 *        (DEFAULT_MAX_BATCH_DELAY by default).
+	 */
+	public synchronized SpoolBatcher<T> setMaxBatchDelay(final Duration maxBatchDelay) {
+		if (maxBatchDelay.isNegative()) {
+			throw new IllegalArgumentException("Invalid maxBatchDelay: " + maxBatchDelay);
+		}
+		this.maxBatchDelay = maxBatchDelay.toMillis();
+		return this;
+	}
+
+	public synchronized Duration getMaxBatchDelay() {
+		return Duration.ofMillis(maxBatchDelay);
+	}
+
+	/**
+	 * @param priority for the spool jobs of the batches.
+	 */
+	public synchronized SpoolBatcher<T> setPriority(final int priority) {
+		this.priority = priority;
+		return this;
+	}
+
+	public synchronized int getPriority() {
+		return priority;
+	}
+
+	/**
+	 * @param afterRunCommand called after the batch process, with this item error, if any. A refused batch (like with a
+	 *        shutdown spool) call it with a RejectedExecutionException.
+	 */
+	public void add(final String batchKey, final T item, final Consumer<Exception> afterRunCommand) {
+		addItem(batchKey, new Item(item, afterRunCommand));
+	}
+
+	/**
+	 * Like add, but return a handle on the item.
+	 * @return completed after the batch process, with this item error, if any.
+	 */
+	public CompletableFuture<Void> submit(final String batchKey, final T item) {
+		final var newItem = new Item(item, e -> {
+		});
+		addItem(batchKey, newItem);
+		return newItem.handle;
+	}
+
+	private void addItem(final String batchKey, final Item item) {
+		Objects.requireNonNull(batchKey, "\"batchKey\" can't to be null");
+		final Batch fullBatch;
+		synchronized (this) {
+			var batch = pendingBatches.get(batchKey);
+			if (batch == null) {
+				batch = new Batch(batchKey);
+				pendingBatches.put(batchKey, batch);
+				if (maxBatchSize > 1) {
+					final var delayed = batch;
+					batch.delayedFlush = scheduledExecutor.schedule(() -> flushIfPending(delayed),
+					        maxBatchDelay, MILLISECONDS);
+				}
+			}
+			batch.items.add(item);
+			if (batch.items.size() < maxBatchSize) {
+				return;
+			}
+			pendingBatches.remove(batchKey);
+			if (batch.delayedFlush != null) {
+				batch.delayedFlush.cancel(false);
+			}
+			fullBatch = batch;
+		}
+		queue(fullBatch);
+	}
+
+	private void flushIfPending(final Batch batch) {
+		synchronized (this) {
+			if (pendingBatches.remove(batch.batchKey, batch) == false) {
+				return;
+			}
+		}
+		queue(batch);
+	}
+
+	/**
+	 * Queue now all the pending batches in the spool, without wait its maxBatchDelay.
+	 */
+	public void flush() {
+		final List<Batch> batches;
+		synchronized (this) {
+			batches = List.copyOf(pendingBatches.values());
+			pendingBatches.clear();
+		}
+		batches.forEach(batch -> {
+			if (batch.delayedFlush != null) {
+				batch.delayedFlush.cancel(false);
+			}
+			queue(batch);
+		});
+	}
+
+	/**
+	 * @return the items count not yet queued in the spool.
+	 */
+	public synchronized int getPendingCount() {
+		return pendingBatches.values().stream()
+		        .mapToInt(batch -> batch.items.size())
+		        .sum();
+	}
+
+	private void queue(final Batch batch) {
+		final int batchPriority;
+		synchronized (this) {
+			batchPriority = priority;
+		}
+		final var spoolExecutor = spooler.getExecutor(spoolName);
+		final var queued = spoolExecutor != null
+		                   && spoolExecutor.addToQueue(
+		                           batch::process,
+		                           name + " " + batch.batchKey + " (" + batch.items.size() + " items)",
+		                           batchPriority,
+		                           batch::onEnd);
+		if (queued == false) {
+			log.warn("Can't queue the batch \"{}\" of \"{}\" ({} items) in \"{}\"",
+			        batch.batchKey, name, batch.items.size(), spoolName);
+			batch.onEnd(new RejectedExecutionException("Can't queue the batch \"" + batch.batchKey
+			                                           + "\" of \"" + name + "\""));
+		}
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public String getSpoolName() {
+		return spoolName;
+	}
+
+}
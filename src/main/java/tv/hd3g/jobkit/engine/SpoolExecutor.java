@@ -1,136 +1,1455 @@
 package tv.hd3g.jobkit.engine;
 
-import static java.util.Optional.ofNullable;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Comparator;
-import java.util.concurrent.PriorityBlockingQueue;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import tv.hd3g.jobkit.engine.status.SpoolExecutorStatus;
+import tv.hd3g.jobkit.engine.status.SpoolWorkerStatus;
 
 public class SpoolExecutor {
 
 	private static Logger log = LogManager.getLogger();
+	/**
+	 * An idle worker waits the next job during this time, so a sparse spool don't create a thread by job.
+	 * The default Spooler workers are daemon threads: an idle worker never keep alive the JVM.
+	 */
+	public static final Duration DEFAULT_WORKER_KEEP_ALIVE = Duration.ofSeconds(10);
 
 	private final String name;
 	private final ExecutionEvent event;
 	private final ThreadFactory threadFactory;
+	/**
+	 * Can be null
+	 */
+	private final SpoolerAdmission admission;
+	/**
+	 * Get the actual executor of the Spooler for a spool name. Can be null (never evicted).
+	 */
+	private final Function<String, SpoolExecutor> evictedRedirect;
 
-	private Thread currentOperation;
-	private String currentOperationName;
-	private final Comparator<SpoolJob> queueComparator;
-	private final PriorityBlockingQueue<SpoolJob> queue;
+	/**
+	 * Long-lived threads, reused from one job to the next while there is some work to do.
+	 */
+	private final List<SpoolWorker> workers;
+	private int runningCount;
+	private int maxConcurrentJobs;
+	private long workerKeepAlive;
+	/**
+	 * By priority (or aged priority), then by expected duration (if needed) and by submit order. Protected by lock
+	 */
+	private Comparator<SpoolJob> queueComparator;
+	/**
+	 * For all the spool state.
+	 */
+	private final Object lock;
+	/**
+	 * Protected by lock
+	 */
+	private SpoolQueue<SpoolJob> queue;
+	/**
+	 * The queued jobs, the next job to drop first, only with a DROP_LOWEST_PRIORITY or DROP_OLDEST QueueFullPolicy:
+	 * a full queue never scans all its jobs. Else null. Protected by lock
+	 */
+	private SpoolQueue<DropEntry> dropOrder;
+	/**
+	 * The queued jobs with a dedup key, by key. Protected by lock
+	 */
+	private final Map<String, SpoolJob> queuedByKey;
+	private DedupPolicy dedupPolicy;
+	private SpoolQueueType queueType;
 	private final AtomicBoolean shutdown;
+	private final AtomicBoolean drainQueue;
+	private final AtomicLong jobSequence;
+	private int maxQueueSize;
+	private QueueFullPolicy queueFullPolicy;
+	private long jobTimeout;
+	private long priorityAging;
+	private EqualPriorityOrder equalPriorityOrder;
+	private final RuntimeEstimates runtimeEstimates;
+	/**
+	 * Last queued job or last job end. Protected by lock
+	 */
+	private long lastActivity;
+	/**
+	 * Protected by lock
+	 */
+	private int pendingSubmits;
+	/**
+	 * Protected by lock
+	 */
+	private boolean evicted;
+	/**
+	 * Protected by lock. Set by a setter: this spool can't be evicted, its settings would be lost.
+	 */
+	private boolean configured;
 
 	public SpoolExecutor(final String name, final ExecutionEvent event, final ThreadFactory threadFactory) {
+		this(name, event, threadFactory, null, null, DEFAULT_WORKER_KEEP_ALIVE);
+	}
+
+	/**
+	 * @param admission shared with the other spools of a Spooler, null for no shared limit.
+	 * @param evictedRedirect after an eviction, get the actual executor for this spool name. Null for never evicted.
+	 * @param workerKeepAlive the default worker keep alive, it don't prevent the eviction.
+	 */
+	SpoolExecutor(final String name,
+	              final ExecutionEvent event,
+	              final ThreadFactory threadFactory,
+	              final SpoolerAdmission admission,
+	              final Function<String, SpoolExecutor> evictedRedirect,
+	              final Duration workerKeepAlive) {
 		this.name = name;
 		this.event = event;
 		this.threadFactory = threadFactory;
-		queueComparator = (l, r) -> Integer.compare(r.priority, l.priority);
-		queue = new PriorityBlockingQueue<>(1, queueComparator);
+		this.admission = admission;
+		this.evictedRedirect = evictedRedirect;
+		lastActivity = System.currentTimeMillis();
+		queueComparator = makeQueueComparator(0, false);
+		equalPriorityOrder = EqualPriorityOrder.SUBMIT_ORDER;
+		runtimeEstimates = new RuntimeEstimates();
+		lock = new Object();
+		queueType = SpoolQueueType.HEAP;
+		queue = new IndexedPriorityQueue<>(queueComparator);
+		queuedByKey = new HashMap<>();
+		dedupPolicy = DedupPolicy.KEEP_FIRST;
 		shutdown = new AtomicBoolean(false);
+		drainQueue = new AtomicBoolean(false);
+		jobSequence = new AtomicLong(0);
+		maxQueueSize = Integer.MAX_VALUE;
+		queueFullPolicy = QueueFullPolicy.REJECT;
+		this.workerKeepAlive = workerKeepAlive.toMillis();
+		workers = new ArrayList<>();
+		maxConcurrentJobs = 1;
+	}
+
+	/**
+	 * @param maxConcurrentJobs how many jobs this spool can run at the same time (1 by default).
+	 *        Queued jobs are always started by priority order.
+	 */
+	public SpoolExecutor setMaxConcurrentJobs(final int maxConcurrentJobs) {
+		if (maxConcurrentJobs < 1) {
+			throw new IllegalArgumentException("Invalid maxConcurrentJobs: " + maxConcurrentJobs);
+		}
+		synchronized (lock) {
+			this.maxConcurrentJobs = maxConcurrentJobs;
+			configured = true;
+		}
+		runNext();
+		return this;
+	}
+
+	public int getMaxConcurrentJobs() {
+		synchronized (lock) {
+			return maxConcurrentJobs;
+		}
+	}
+
+	/**
+	 * @param keepAlive how long an idle worker thread wait a new job before to ends, DEFAULT_WORKER_KEEP_ALIVE by
+	 *        default. Duration.ZERO for ends as soon as the queue is empty. With a non-daemon ThreadFactory, an idle
+	 *        worker keep alive the JVM during this time, until a shutdown.
+	 */
+	public SpoolExecutor setWorkerKeepAlive(final Duration keepAlive) {
+		if (keepAlive.isNegative()) {
+			throw new IllegalArgumentException("Invalid keepAlive: " + keepAlive);
+		}
+		synchronized (lock) {
+			workerKeepAlive = keepAlive.toMillis();
+			configured = true;
+		}
+		return this;
+	}
+
+	public Duration getWorkerKeepAlive() {
+		synchronized (lock) {
+			return Duration.ofMillis(workerKeepAlive);
+		}
+	}
+
+	/**
+	 * @param maxQueueSize max queued jobs (without the running jobs), unlimited by default.
+	 * @param queueFullPolicy what to do with a new job when the queue is full.
+	 */
+	public SpoolExecutor setMaxQueueSize(final int maxQueueSize, final QueueFullPolicy queueFullPolicy) {
+		if (maxQueueSize < 1) {
+			throw new IllegalArgumentException("Invalid maxQueueSize: " + maxQueueSize);
+		}
+		synchronized (lock) {
+			this.maxQueueSize = maxQueueSize;
+			this.queueFullPolicy = Objects.requireNonNull(queueFullPolicy, "\"queueFullPolicy\" can't to be null");
+			configured = true;
+			rebuildDropOrder();
+			lock.notifyAll();
+		}
+		return this;
+	}
+
+	/**
+	 * @param jobTimeout default max run time for the jobs of this spool, Duration.ZERO (the default) for no limit.
+	 *        When a job runs after its timeout, its thread is interrupted and abandoned: the job is reported as failed by
+	 *        a TimeoutException, and the spool slot is freed for the next job.
+	 *        Jobs run by the caller thread (CALLER_RUNS QueueFullPolicy) are not watched.
+	 */
+	public SpoolExecutor setJobTimeout(final Duration jobTimeout) {
+		if (jobTimeout.isNegative()) {
+			throw new IllegalArgumentException("Invalid jobTimeout: " + jobTimeout);
+		}
+		synchronized (lock) {
+			this.jobTimeout = jobTimeout.toMillis();
+			configured = true;
+		}
+		return this;
 	}
 
-	// SpoolJobStatus
+	public Duration getJobTimeout() {
+		synchronized (lock) {
+			return Duration.ofMillis(jobTimeout);
+		}
+	}
 
+	/**
+	 * Actual queued jobs are moved to the new queue.
+	 * @param queueType HEAP by default.
+	 */
+	public SpoolExecutor setQueueType(final SpoolQueueType queueType) {
+		Objects.requireNonNull(queueType, "\"queueType\" can't to be null");
+		synchronized (lock) {
+			configured = true;
+			if (this.queueType != queueType) {
+				this.queueType = queueType;
+				rebuildQueue();
+			}
+		}
+		return this;
+	}
+
+	/**
+	 * Without aging, a steady flow of high priority jobs can block forever the low priority jobs.
+	 * With aging, the priority of a queued job is raised by 1 for each agingStep waited in the queue: a job can't wait
+	 * more than (highest priority - its priority) * agingStep behind new jobs.
+	 * The original priority of a job is never changed, see SpoolJobStatus.getEffectivePriority.
+	 * @param agingStep Duration.ZERO (the default) for no aging.
+	 */
+	public SpoolExecutor setPriorityAging(final Duration agingStep) {
+		if (agingStep.isNegative()) {
+			throw new IllegalArgumentException("Invalid agingStep: " + agingStep);
+		}
+		synchronized (lock) {
+			configured = true;
+			if (priorityAging != agingStep.toMillis()) {
+				priorityAging = agingStep.toMillis();
+				rebuildQueue();
+			}
+		}
+		return this;
+	}
+
+	public Duration getPriorityAging() {
+		synchronized (lock) {
+			return Duration.ofMillis(priorityAging);
+		}
+	}
+
+	/**
+	 * Actual queued jobs are sorted again.
+	 * @param equalPriorityOrder SUBMIT_ORDER by default.
+	 */
+	public SpoolExecutor setEqualPriorityOrder(final EqualPriorityOrder equalPriorityOrder) {
+		Objects.requireNonNull(equalPriorityOrder, "\"equalPriorityOrder\" can't to be null");
+		synchronized (lock) {
+			configured = true;
+			if (this.equalPriorityOrder != equalPriorityOrder) {
+				this.equalPriorityOrder = equalPriorityOrder;
+				rebuildQueue();
+			}
+		}
+		return this;
+	}
+
+	public EqualPriorityOrder getEqualPriorityOrder() {
+		synchronized (lock) {
+			return equalPriorityOrder;
+		}
+	}
+
+	/**
+	 * @return the rolling runtime estimate (EWMA) of the last run durations, in ms, by command name. Only for the
+	 *         last used command names.
+	 */
+	public Map<String, Long> getRuntimeEstimates() {
+		return runtimeEstimates.getAll();
+	}
+
+	/**
+	 * With aging, the effective priority of a job is priority + waitTime / agingStep: compare two jobs don't depends on
+	 * the current time, only on queuedTime - priority * agingStep.
+	 * @param agingStep in ms, 0 for no aging
+	 * @param byExpectedDuration for the jobs with the same (aged) priority
+	 */
+	private static Comparator<SpoolJob> makeQueueComparator(final long agingStep, final boolean byExpectedDuration) {
+		Comparator<SpoolJob> byPriority;
+		if (agingStep == 0) {
+			byPriority = (l, r) -> Integer.compare(r.priority, l.priority);
+		} else {
+			byPriority = Comparator.comparingLong(j -> j.queuedTime - j.priority * agingStep);
+		}
+		if (byExpectedDuration) {
+			byPriority = byPriority.thenComparingLong(j -> j.expectedDuration);
+		}
+		return byPriority.thenComparingLong(j -> j.sequence);
+	}
+
+	/**
+	 * Call it only with the lock.
+	 * Move all queued jobs to a new queue, with the actual queueType, priorityAging and equalPriorityOrder.
+	 */
+	private void rebuildQueue() {
+		final var byExpectedDuration = equalPriorityOrder == EqualPriorityOrder.SHORTEST_EXPECTED_FIRST
+		                               && queueType == SpoolQueueType.HEAP;
+		queueComparator = makeQueueComparator(priorityAging, byExpectedDuration);
+		final SpoolQueue<SpoolJob> newQueue;
+		if (queueType == SpoolQueueType.PRIORITY_BUCKETS) {
+			newQueue = new PriorityBucketQueue<>(j -> j.priority, priorityAging == 0 ? null : queueComparator);
+		} else {
+			newQueue = new IndexedPriorityQueue<>(queueComparator);
+		}
+		final var queuedJobs = queue.stream()
+		        .sorted(queueComparator)
+		        .collect(Collectors.toUnmodifiableList());
+		queue.clear();
+		queuedJobs.forEach(newQueue::offer);
+		queue = newQueue;
+		rebuildDropOrder();
+	}
+
+	/**
+	 * Call it only with the lock.
+	 * Index again all the queued jobs, with the actual queueFullPolicy and queueComparator.
+	 */
+	private void rebuildDropOrder() {
+		if (dropOrder != null) {
+			dropOrder.clear();
+		}
+		final var comparator = queueComparator;
+		switch (queueFullPolicy) {
+		case DROP_LOWEST_PRIORITY:
+			dropOrder = new IndexedPriorityQueue<>((l, r) -> comparator.compare(r.spoolJob, l.spoolJob));
+			break;
+		case DROP_OLDEST:
+			dropOrder = new IndexedPriorityQueue<>((l, r) -> Long.compare(l.spoolJob.sequence, r.spoolJob.sequence));
+			break;
+		default:
+			dropOrder = null;
+			return;
+		}
+		queue.stream().forEach(spoolJob -> dropOrder.offer(spoolJob.getDropEntry()));
+	}
+
+	/**
+	 * @param dedupPolicy what to do with a new job when a job with the same dedup key is still queued.
+	 *        KEEP_FIRST by default. Jobs without dedup key are never coalesced.
+	 */
+	public SpoolExecutor setDedupPolicy(final DedupPolicy dedupPolicy) {
+		Objects.requireNonNull(dedupPolicy, "\"dedupPolicy\" can't to be null");
+		synchronized (lock) {
+			this.dedupPolicy = dedupPolicy;
+			configured = true;
+		}
+		return this;
+	}
+
+	public DedupPolicy getDedupPolicy() {
+		synchronized (lock) {
+			return dedupPolicy;
+		}
+	}
+
+	public SpoolQueueType getQueueType() {
+		synchronized (lock) {
+			return queueType;
+		}
+	}
+
+	public int getMaxQueueSize() {
+		synchronized (lock) {
+			return maxQueueSize;
+		}
+	}
+
+	public QueueFullPolicy getQueueFullPolicy() {
+		synchronized (lock) {
+			return queueFullPolicy;
+		}
+	}
+
+	/**
+	 * @return true if the task is queued (or run by caller, with CALLER_RUNS QueueFullPolicy)
+	 */
 	public boolean addToQueue(final Runnable command,
 	                          final String name,
 	                          final int priority,
 	                          final Consumer<Exception> afterRunCommand) {
-		if (shutdown.get()) {
-			log.error("Can't add to queue new command \"{}\" by \"{}\": the spool is shutdown", name, this.name);
-			return false;
+		return addToQueue(command, name, priority, null, afterRunCommand);
+	}
+
+	/**
+	 * @param timeout max run time for this job, null for the spool default (see setJobTimeout).
+	 * @return true if the task is queued (or run by caller, with CALLER_RUNS QueueFullPolicy)
+	 */
+	public boolean addToQueue(final Runnable command,
+	                          final String name,
+	                          final int priority,
+	                          final Duration timeout,
+	                          final Consumer<Exception> afterRunCommand) {
+		return addToQueue(command, name, priority, timeout, null, afterRunCommand);
+	}
+
+	/**
+	 * @param dedupKey for the same logical job, null for never coalesce this job. A job coalesced with a queued job is
+	 *        counted as queued, see setDedupPolicy.
+	 * @see SpoolExecutor#addToQueue(Runnable, String, int, Duration, Consumer)
+	 */
+	public boolean addToQueue(final Runnable command,
+	                          final String name,
+	                          final int priority,
+	                          final Duration timeout,
+	                          final String dedupKey,
+	                          final Consumer<Exception> afterRunCommand) {
+		final var target = startSubmit();
+		if (target != this) {
+			return target.addToQueue(command, name, priority, timeout, dedupKey, afterRunCommand);
+		}
+		try {
+			final var spoolJob = new SpoolJob(command, name, priority, afterRunCommand, this);
+			spoolJob.setTimeout(timeout);
+			spoolJob.dedupKey = dedupKey;
+			return enqueue(spoolJob);
+		} finally {
+			endSubmit();
+		}
+	}
+
+	/**
+	 * Like addToQueue, but return a handle on the job.
+	 * A refused or dropped job get a handle completed by a RejectedExecutionException.
+	 * Cancel the handle remove the queued job (its afterRunCommand get a CancellationException), or, with
+	 * mayInterruptIfRunning, interrupt the thread of the running job. Running jobs must react to the interrupt by itself.
+	 * @return completed after the afterRunCommand, with the job error, if any.
+	 */
+	public CompletableFuture<Void> submit(final Runnable command,
+	                                      final String name,
+	                                      final int priority,
+	                                      final Consumer<Exception> afterRunCommand) {
+		return submit(command, name, priority, null, afterRunCommand);
+	}
+
+	/**
+	 * @param timeout max run time for this job, null for the spool default (see setJobTimeout).
+	 * @see SpoolExecutor#submit(Runnable, String, int, Consumer)
+	 */
+	public CompletableFuture<Void> submit(final Runnable command,
+	                                      final String name,
+	                                      final int priority,
+	                                      final Duration timeout,
+	                                      final Consumer<Exception> afterRunCommand) {
+		return submit(command, name, priority, timeout, null, afterRunCommand);
+	}
+
+	/**
+	 * @param dedupKey for the same logical job, null for never coalesce this job. The handle of a coalesced job follow
+	 *        the job which runs for it, see setDedupPolicy.
+	 * @see SpoolExecutor#submit(Runnable, String, int, Consumer)
+	 */
+	public CompletableFuture<Void> submit(final Runnable command,
+	                                      final String name,
+	                                      final int priority,
+	                                      final Duration timeout,
+	                                      final String dedupKey,
+	                                      final Consumer<Exception> afterRunCommand) {
+		final var target = startSubmit();
+		if (target != this) {
+			return target.submit(command, name, priority, timeout, dedupKey, afterRunCommand);
+		}
+		try {
+			final var handle = new SpoolJobHandle<Void>();
+			final var spoolJob = new SpoolJob(handle, Executors.callable(command, null), name, priority,
+			        afterRunCommand, this);
+			spoolJob.setTimeout(timeout);
+			spoolJob.dedupKey = dedupKey;
+			enqueue(spoolJob);
+			return handle;
+		} finally {
+			endSubmit();
 		}
+	}
 
-		if (queue.offer(new SpoolJob(command, name, priority, afterRunCommand, this)) == false) {
-			throw new IllegalStateException("Can't submit a new task in queue");
+	/**
+	 * Like submit(Runnable...), for a task with a result. Chain the next stages directly on the returned handle.
+	 * @return completed by the command result or error, after the run events.
+	 */
+	public <T> CompletableFuture<T> submit(final Callable<T> command,
+	                                       final String name,
+	                                       final int priority) {
+		final var target = startSubmit();
+		if (target != this) {
+			return target.submit(command, name, priority);
+		}
+		try {
+			final var handle = new SpoolJobHandle<T>();
+			enqueue(new SpoolJob(handle, command, name, priority, e -> {
+			}, this));
+			return handle;
+		} finally {
+			endSubmit();
+		}
+	}
+
+	/**
+	 * Protect this spool against an eviction during a submit.
+	 * @return this, or the actual spool for this name if this one was evicted: the caller must submit to it.
+	 */
+	private SpoolExecutor startSubmit() {
+		synchronized (lock) {
+			if (evicted == false) {
+				pendingSubmits++;
+				return this;
+			}
+		}
+		/**
+		 * Wait until the Spooler ends to remove this spool.
+		 */
+		final var actual = evictedRedirect.apply(name);
+		if (actual == null || actual == this) {
+			/**
+			 * Can't be redirected (the Spooler is shutdown): this evicted and shutdown spool will refuse the job.
+			 */
+			synchronized (lock) {
+				pendingSubmits++;
+			}
+			return this;
+		}
+		log.debug("\"{}\" was evicted, redirect the new job(s) to its new executor", name);
+		return actual;
+	}
+
+	private void endSubmit() {
+		synchronized (lock) {
+			pendingSubmits--;
+		}
+	}
+
+	/**
+	 * Set shutdown this spool if it's empty, not used for a while, and never configured by a setter. After that, all
+	 * new jobs will be redirected to the actual Spooler executor for this spool name.
+	 * @return true if this spool is now evicted
+	 */
+	boolean evictIfIdle(final long idleTTL, final long now) {
+		synchronized (lock) {
+			if (evicted) {
+				return true;
+			}
+			if (evictedRedirect == null
+			    || configured
+			    || shutdown.get()
+			    || runningCount > 0
+			    || pendingSubmits > 0
+			    || queue.isEmpty() == false
+			    || now - lastActivity < idleTTL) {
+				return false;
+			}
+			evicted = true;
+			shutdown.set(true);
+			lock.notifyAll();
+		}
+		log.debug("Evict idle executor {}", name);
+		return true;
+	}
+
+	private boolean enqueue(final SpoolJob spoolJob) {
+		final var queued = enqueue(List.of(spoolJob));
+		if (queued) {
+			log.debug("Add new command \"{}\" by \"{}\" with P{}", spoolJob.commandName, name, spoolJob.priority);
+		}
+		return queued;
+	}
+
+	/**
+	 * Add all jobs to this queue (regardless of its getJobSpoolname), with a single lock and a single dispatch.
+	 * @return true if all the jobs are queued (or run by caller, with CALLER_RUNS QueueFullPolicy)
+	 */
+	public boolean addAllToQueue(final Collection<? extends Job> jobs) {
+		if (jobs.isEmpty()) {
+			return true;
+		}
+		final var target = startSubmit();
+		if (target != this) {
+			return target.addAllToQueue(jobs);
+		}
+		try {
+			final var queued = enqueue(jobs.stream()
+			        .map(job -> {
+				        final var spoolJob = new SpoolJob(jobCommand(job), job.getJobName(), job.getJobPriority(),
+				                jobAfterRunCommand(job), this);
+				        spoolJob.setTimeout(job.getJobTimeout());
+				        spoolJob.dedupKey = job.getJobDedupKey();
+				        return spoolJob;
+			        })
+			        .collect(Collectors.toUnmodifiableList()));
+			log.debug("Add {} new commands by \"{}\"", jobs.size(), name);
+			return queued;
+		} finally {
+			endSubmit();
+		}
+	}
+
+	/**
+	 * Dropped jobs will never run: its afterRunCommand get a RejectedExecutionException.
+	 * Refused jobs are not queued: the caller get false.
+	 * @return false if one job is refused
+	 */
+	private boolean enqueue(final List<SpoolJob> spoolJobs) {
+		final var refusedJobs = new ArrayList<SpoolJob>();
+		final var droppedJobs = new ArrayList<SpoolJob>();
+		final var callerRunsJobs = new ArrayList<SpoolJob>();
+		final var coalescedJobs = new ArrayList<SpoolJob>();
+		final QueueFullPolicy policy;
+		final DedupPolicy coalescePolicy;
+		final boolean isShutdown;
+
+		synchronized (lock) {
+			policy = queueFullPolicy;
+			coalescePolicy = dedupPolicy;
+			isShutdown = shutdown.get();
+			if (isShutdown == false) {
+				for (final var spoolJob : spoolJobs) {
+					final var queueIt = makeRoomFor(spoolJob, policy,
+					        refusedJobs, droppedJobs, callerRunsJobs, coalescedJobs);
+					if (queueIt == false) {
+						continue;
+					}
+					spoolJob.queuedTime = System.currentTimeMillis();
+					spoolJob.expectedDuration = runtimeEstimates.estimate(spoolJob.commandName);
+					lastActivity = spoolJob.queuedTime;
+					queue.offer(spoolJob);
+					if (dropOrder != null) {
+						dropOrder.offer(spoolJob.getDropEntry());
+					}
+					if (spoolJob.dedupKey != null) {
+						queuedByKey.put(spoolJob.dedupKey, spoolJob);
+					}
+				}
+			}
+		}
+		if (isShutdown) {
+			log.error("Can't add to queue {} new command(s) (like \"{}\") by \"{}\": the spool is shutdown",
+			        spoolJobs.size(), spoolJobs.get(0).commandName, name);
+			spoolJobs.forEach(spoolJob -> spoolJob.handle.completeExceptionally(
+			        new RejectedExecutionException("The spool \"" + name + "\" is shutdown")));
+			return false;
 		}
-		log.debug("Add new command \"{}\" by \"{}\" with P{}", name, this.name, priority);
 		runNext();
+
+		final var now = System.currentTimeMillis();
+		coalescedJobs.forEach(spoolJob -> onCoalesced(spoolJob, now, coalescePolicy));
+		refusedJobs.forEach(spoolJob -> onDropped(spoolJob, now, policy, null));
+		droppedJobs.forEach(spoolJob -> onDropped(spoolJob, now, policy,
+		        new RejectedExecutionException("Removed from the full queue of \"" + name + "\"")));
+		callerRunsJobs.forEach(spoolJob -> {
+			log.info("The queue of \"{}\" is full, the caller will run \"{}\"", name, spoolJob.commandName);
+			spoolJob.run();
+		});
+		return refusedJobs.isEmpty();
+	}
+
+	/**
+	 * Call it only with the lock.
+	 * Coalesce the new job with a queued job of the same dedupKey, or make room for it in a full queue.
+	 * @return true if the new job must be queued now, else it's added to one of the lists.
+	 */
+	private boolean makeRoomFor(final SpoolJob spoolJob,
+	                            final QueueFullPolicy policy,
+	                            final List<SpoolJob> refusedJobs,
+	                            final List<SpoolJob> droppedJobs,
+	                            final List<SpoolJob> callerRunsJobs,
+	                            final List<SpoolJob> coalescedJobs) {
+		var isCoalesced = false;
+		while (true) {
+			if (spoolJob.dedupKey != null && queuedByKey.containsKey(spoolJob.dedupKey)) {
+				if (isCoalesced == false) {
+					coalescedJobs.add(spoolJob);
+					isCoalesced = true;
+				}
+				if (coalesce(queuedByKey.get(spoolJob.dedupKey), spoolJob)) {
+					return false;
+				}
+			}
+			if (queue.size() < maxQueueSize) {
+				return true;
+			}
+			switch (policy) {
+			case BLOCK:
+				if (waitForQueueSpace() == false) {
+					refusedJobs.add(spoolJob);
+					return false;
+				}
+				/**
+				 * The lock was released during the wait: check again the dedupKey and the free space.
+				 */
+				continue;
+			case DROP_LOWEST_PRIORITY:
+				final var lowest = dropOrder.peek().spoolJob;
+				if (lowest.priority >= spoolJob.priority) {
+					refusedJobs.add(spoolJob);
+					return false;
+				}
+				removeFromQueue(lowest);
+				droppedJobs.add(lowest);
+				return true;
+			case DROP_OLDEST:
+				final var oldest = dropOrder.peek().spoolJob;
+				removeFromQueue(oldest);
+				droppedJobs.add(oldest);
+				return true;
+			case CALLER_RUNS:
+				callerRunsJobs.add(spoolJob);
+				return false;
+			case REJECT:
+			default:
+				refusedJobs.add(spoolJob);
+				return false;
+			}
+		}
+	}
+
+	/**
+	 * Call it only with the lock.
+	 * @return true if the new job is coalesced in the queued job, false if the new job must be queued, in place of the
+	 *         queued job.
+	 */
+	private boolean coalesce(final SpoolJob queuedJob, final SpoolJob newJob) {
+		switch (dedupPolicy) {
+		case REPLACE_WITH_LATEST:
+			removeFromQueue(queuedJob);
+			newJob.addCoalesced(queuedJob);
+			return false;
+		case MERGE:
+			queuedJob.command = newJob.command;
+			queuedJob.timeout = newJob.timeout;
+			if (newJob.priority > queuedJob.priority) {
+				/**
+				 * Keep its sequence: its place between the jobs of the new priority with a HEAP queue, but the end of
+				 * the new priority FIFO with a PRIORITY_BUCKETS queue.
+				 */
+				queue.remove(queuedJob);
+				if (dropOrder != null) {
+					dropOrder.remove(queuedJob.getDropEntry());
+				}
+				queuedJob.priority = newJob.priority;
+				queue.offer(queuedJob);
+				if (dropOrder != null) {
+					dropOrder.offer(queuedJob.getDropEntry());
+				}
+			}
+			queuedJob.addCoalesced(newJob);
+			return true;
+		case KEEP_FIRST:
+		default:
+			queuedJob.addCoalesced(newJob);
+			return true;
+		}
+	}
+
+	/**
+	 * Call it only with the lock.
+	 */
+	private boolean removeFromQueue(final SpoolJob spoolJob) {
+		if (queue.remove(spoolJob) == false) {
+			return false;
+		}
+		if (dropOrder != null) {
+			dropOrder.remove(spoolJob.getDropEntry());
+		}
+		if (spoolJob.dedupKey != null) {
+			queuedByKey.remove(spoolJob.dedupKey, spoolJob);
+		}
 		return true;
 	}
 
+	private void onCoalesced(final SpoolJob spoolJob, final long coalesceTime, final DedupPolicy policy) {
+		log.info("Coalesce command \"{}\" by \"{}\" with the queued job of key \"{}\" ({})",
+		        spoolJob.commandName, name, spoolJob.dedupKey, policy);
+		try {
+			event.afterCoalescedJob(spoolJob.commandName, coalesceTime, this, spoolJob.dedupKey, policy);
+		} catch (final Exception e) {
+			log.warn("Can't send event afterCoalescedJob", e);
+		}
+	}
+
+	/**
+	 * Call it only with the lock.
+	 * Start the queued jobs before to wait: with a batch bigger than the queue, the jobs already queued by this batch
+	 * would never start else.
+	 * @return false if the spool is shutdown or the thread interrupted during the wait
+	 */
+	private boolean waitForQueueSpace() {
+		while (queue.size() >= maxQueueSize) {
+			if (shutdown.get()) {
+				return false;
+			}
+			startQueuedJobs();
+			if (queue.size() < maxQueueSize) {
+				break;
+			}
+			try {
+				lock.wait();
+			} catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return false;
+			}
+		}
+		return shutdown.get() == false;
+	}
+
+	private void onDropped(final SpoolJob spoolJob,
+	                       final long dropTime,
+	                       final QueueFullPolicy policy,
+	                       final Exception afterRunError) {
+		log.warn("The queue of \"{}\" is full, drop \"{}\" ({})", name, spoolJob.commandName, policy);
+		try {
+			event.afterDroppedJob(spoolJob.commandName, dropTime, this, policy);
+		} catch (final Exception e) {
+			log.warn("Can't send event afterDroppedJob", e);
+		}
+		if (afterRunError == null) {
+			final var error = new RejectedExecutionException("The queue of \"" + name + "\" is full");
+			spoolJob.handle.completeExceptionally(error);
+			spoolJob.endCoalesced(error);
+			return;
+		}
+		try {
+			spoolJob.afterRunCommand.accept(afterRunError);
+		} catch (final Exception e) {
+			log.error("Fail to run afterRunCommand for  \"{}\" by \"{}\"", spoolJob.commandName, name, e);
+		}
+		spoolJob.handle.completeExceptionally(afterRunError);
+		spoolJob.endCoalesced(afterRunError);
+	}
+
+	/**
+	 * @return false if the job is not queued or running (it ends or it was never queued), or if the handle is done.
+	 */
+	private boolean cancel(final SpoolJob spoolJob, final boolean mayInterruptIfRunning) {
+		final boolean wasRunning;
+		SpoolWorker runningWorker = null;
+		synchronized (lock) {
+			if (spoolJob.handle.isDone()) {
+				return false;
+			}
+			if (spoolJob.coalescedIn != null) {
+				/**
+				 * Only this submission is cancelled, the job which runs for it goes on.
+				 */
+				spoolJob.coalescedIn.coalescedJobs.remove(spoolJob);
+				spoolJob.coalescedIn = null;
+				wasRunning = false;
+			} else if (removeFromQueue(spoolJob)) {
+				wasRunning = false;
+				lock.notifyAll();
+			} else {
+				final var worker = workers.stream()
+				        .filter(w -> w.currentJob == spoolJob)
+				        .findFirst();
+				if (worker.isEmpty()) {
+					return false;
+				}
+				wasRunning = true;
+				runningWorker = worker.get();
+			}
+		}
+
+		/**
+		 * Cancel the handle before the interrupt: else, the interrupted job can end, and complete its handle, first.
+		 */
+		if (spoolJob.handle.cancelHandle(mayInterruptIfRunning) == false) {
+			return false;
+		}
+		if (runningWorker != null && mayInterruptIfRunning) {
+			synchronized (lock) {
+				/**
+				 * The worker clear the interrupt flag with the lock, before to take an another job.
+				 */
+				if (runningWorker.currentJob == spoolJob) {
+					runningWorker.thread.interrupt();
+				}
+			}
+		}
+		log.info("Cancel command \"{}\" by \"{}\"{}", spoolJob.commandName, name,
+		        wasRunning ? (mayInterruptIfRunning ? " (interrupt it)" : " (let it run)") : "");
+		try {
+			event.afterCancelledJob(spoolJob.commandName, System.currentTimeMillis(), this, wasRunning);
+		} catch (final Exception e) {
+			log.warn("Can't send event afterCancelledJob", e);
+		}
+		if (wasRunning == false) {
+			final var error = new CancellationException("Removed from the queue of \"" + name + "\"");
+			try {
+				spoolJob.afterRunCommand.accept(error);
+			} catch (final Exception e) {
+				log.error("Fail to run afterRunCommand for  \"{}\" by \"{}\"", spoolJob.commandName, name, e);
+			}
+			spoolJob.endCoalesced(error);
+		}
+		return true;
+	}
+
+	static Runnable jobCommand(final Job job) {
+		return () -> {
+			job.onJobStart();
+			job.run();
+		};
+	}
+
+	static Consumer<Exception> jobAfterRunCommand(final Job job) {
+		return e -> {
+			if (e != null) {
+				job.onJobFail(e);
+			} else {
+				job.onJobDone();
+			}
+		};
+	}
+
 	public int getQueueSize() {
-		return queue.size();
+		synchronized (lock) {
+			return queue.size();
+		}
 	}
 
 	public boolean isRunning() {
-		return currentOperation != null && currentOperation.isAlive();
+		synchronized (lock) {
+			return runningCount > 0;
+		}
+	}
+
+	public int getRunningCount() {
+		synchronized (lock) {
+			return runningCount;
+		}
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Also called by the admission, when it's the turn of this spool.
+	 */
+	void runNext() {
+		startQueuedJobs();
+		if (admission != null) {
+			admission.releaseUnused(this);
+		}
 	}
 
-	private void runNext() {
-		if (shutdown.get()) {
+	private void startQueuedJobs() {
+		if (shutdown.get() && drainQueue.get() == false) {
 			return;
 		}
-		synchronized (queue) {
-			if (currentOperation != null && currentOperation.isAlive()) {
-				return;
+		synchronized (lock) {
+			while (runningCount < maxConcurrentJobs) {
+				if (queue.isEmpty()
+				    || admission != null && admission.tryAcquire(this, queue.size() > 1) == false) {
+					return;
+				}
+				final var next = queue.poll();
+				if (dropOrder != null) {
+					dropOrder.remove(next.getDropEntry());
+				}
+				if (next.dedupKey != null) {
+					queuedByKey.remove(next.dedupKey, next);
+				}
+				runningCount++;
+				lock.notifyAll();
+				final var idleWorker = workers.stream()
+				        .filter(w -> w.currentJob == null)
+				        .findFirst();
+				if (idleWorker.isPresent()) {
+					idleWorker.get().currentJob = next;
+				} else {
+					startWorker(next);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Call it without the lock, after a job ends.
+	 */
+	private void releaseAdmission() {
+		if (admission != null) {
+			admission.release();
+		}
+	}
+
+	/**
+	 * Call it only with the lock.
+	 */
+	private void startWorker(final SpoolJob firstJob) {
+		final var worker = new SpoolWorker(firstJob);
+		workers.add(worker);
+		worker.thread.start();
+	}
+
+	private class SpoolWorker implements Runnable {
+
+		final Thread thread;
+		/**
+		 * Protected by lock
+		 */
+		SpoolJob currentJob;
+		/**
+		 * Protected by lock
+		 */
+		boolean abandoned;
+
+		SpoolWorker(final SpoolJob firstJob) {
+			currentJob = firstJob;
+			thread = threadFactory.newThread(this);
+		}
+
+		@Override
+		public void run() {
+			try {
+				SpoolJob job;
+				while ((job = waitForAssignedJob()) != null) {
+					final var watchdogTask = startWatchdog(this, job);
+					try {
+						job.run();
+					} finally {
+						if (watchdogTask != null) {
+							watchdogTask.cancel(false);
+						}
+						synchronized (lock) {
+							if (abandoned) {
+								/**
+								 * The job has timed out, this thread is no longer a part of this spool.
+								 */
+								currentJob = null;
+								return;
+							}
+							/**
+							 * Don't let the next job run with an interrupted thread.
+							 */
+							Thread.interrupted();// NOSONAR
+							currentJob = null;
+							runningCount--;
+							lastActivity = System.currentTimeMillis();
+							lock.notifyAll();
+						}
+						releaseAdmission();
+					}
+					runNext();
+				}
+			} finally {
+				synchronized (lock) {
+					if (workers.remove(this) && currentJob != null) {
+						/**
+						 * Ends abnormally, the assigned job must go on.
+						 */
+						startWorker(currentJob);
+					}
+					lock.notifyAll();
+				}
+				runNext();
 			}
-			final var next = queue.poll();
-			if (next == null) {
-				currentOperation = null;
-				currentOperationName = null;
+		}
+
+		/**
+		 * @return null if the worker should ends (keep alive time is over, or shutdown)
+		 */
+		private SpoolJob waitForAssignedJob() {
+			synchronized (lock) {
+				final var endOfWait = System.currentTimeMillis() + workerKeepAlive;
+				var timeToWait = workerKeepAlive;
+				while (currentJob == null && shutdown.get() == false && timeToWait > 0) {
+					try {
+						lock.wait(timeToWait);
+					} catch (final InterruptedException e) {
+						Thread.currentThread().interrupt();
+						break;
+					}
+					timeToWait = endOfWait - System.currentTimeMillis();
+				}
+				if (currentJob == null) {
+					workers.remove(this);
+					lock.notifyAll();
+				}
+				return currentJob;
+			}
+		}
+
+	}
+
+	/**
+	 * Shared by all spools, only for timeouts. Never runs a job.
+	 */
+	private static class Watchdog {
+		static final ScheduledExecutorService scheduler;
+
+		static {
+			final var executor = new ScheduledThreadPoolExecutor(1, r -> {
+				final var t = new Thread(r);
+				t.setDaemon(true);
+				t.setName("SpoolExecutor watchdog");
+				return t;
+			});
+			executor.setRemoveOnCancelPolicy(true);
+			scheduler = executor;
+		}
+	}
+
+	/**
+	 * @return null if this job can run without limit
+	 */
+	private ScheduledFuture<?> startWatchdog(final SpoolWorker worker, final SpoolJob spoolJob) {
+		final long timeout;
+		synchronized (lock) {
+			timeout = spoolJob.timeout > 0 ? spoolJob.timeout : jobTimeout;
+		}
+		if (timeout == 0) {
+			return null;
+		}
+		return Watchdog.scheduler.schedule(() -> onTimeout(worker, spoolJob, timeout), timeout, MILLISECONDS);
+	}
+
+	private void onTimeout(final SpoolWorker worker, final SpoolJob spoolJob, final long timeout) {
+		synchronized (lock) {
+			if (worker.currentJob != spoolJob
+			    || worker.abandoned
+			    || spoolJob.ended.compareAndSet(false, true) == false) {
 				return;
 			}
-			currentOperation = threadFactory.newThread(next);
-			currentOperationName = next.commandName;
-			currentOperation.start();
+			worker.abandoned = true;
+			workers.remove(worker);
+			runningCount--;
+			lastActivity = System.currentTimeMillis();
+			lock.notifyAll();
 		}
+		releaseAdmission();
+
+		final var stackTrace = worker.thread.getStackTrace();
+		worker.thread.interrupt();
+		final var error = new TimeoutException("Command \"" + spoolJob.commandName + "\" by \"" + name
+		                                       + "\" don't ends after " + timeout + " ms");
+		error.setStackTrace(stackTrace);
+		log.error("Command \"{}\" by \"{}\" has timed out after {} ms, interrupt and forget its thread \"{}\"",
+		        spoolJob.commandName, name, timeout, worker.thread.getName(), error);
+		try {
+			event.afterStuckJob(spoolJob.commandName, timeout, this, worker.thread.getName(), stackTrace);
+		} catch (final Exception e) {
+			log.warn("Can't send event afterStuckJob", e);
+		}
+		spoolJob.onEnd(error, System.currentTimeMillis() - timeout);
+		runNext();
 	}
 
 	/**
-	 * Non-blocking
+	 * Non-blocking. Clear the queue, current running jobs will continue.
 	 */
 	public void shutdown() {
-		log.debug("Set shutdown for {}", name);
-		shutdown.set(true);
-		queue.clear();
+		shutdown(false);
 	}
 
 	/**
-	 * Blocking
+	 * Non-blocking. New jobs will be refused, current running jobs will continue.
+	 * @param drainQueue if true, all actual queued jobs will be run before to close, else the queue is cleared.
+	 */
+	public void shutdown(final boolean drainQueue) {
+		log.debug("Set shutdown for {}{}", name, drainQueue ? " (drain the queue)" : "");
+		final List<SpoolJob> clearedJobs;
+		synchronized (lock) {
+			this.drainQueue.set(drainQueue);
+			shutdown.set(true);
+			if (drainQueue) {
+				clearedJobs = List.of();
+			} else {
+				clearedJobs = queue.stream()
+				        .flatMap(SpoolJob::withCoalesced)
+				        .collect(Collectors.toUnmodifiableList());
+				queue.clear();
+				if (dropOrder != null) {
+					dropOrder.clear();
+				}
+				queuedByKey.clear();
+			}
+			lock.notifyAll();
+		}
+		clearedJobs.forEach(spoolJob -> spoolJob.handle.completeExceptionally(
+		        new CancellationException("The spool \"" + name + "\" is shutdown")));
+	}
+
+	/**
+	 * Blocking, without limit. It call shutdown() before, if needed.
 	 */
 	public void waitToClose() {
 		if (shutdown.get() == false) {
 			shutdown();
-		} else if (currentOperation == null) {
-			return;
 		}
-		log.debug("Wait to close {}...", name);
+		waitForClose(null);
+	}
 
-		try {
-			while (currentOperation.isAlive()) {
-				Thread.onSpinWait();
+	/**
+	 * Blocking. It call shutdown() before, if needed.
+	 * @return true if all jobs are ended before the timeout.
+	 */
+	public boolean waitToClose(final Duration timeout) {
+		return waitToClose(timeout, false);
+	}
+
+	/**
+	 * Blocking. It call shutdown(drainQueue) before, if needed.
+	 * @return true if all jobs are ended before the timeout.
+	 */
+	public boolean waitToClose(final Duration timeout, final boolean drainQueue) {
+		if (shutdown.get() == false) {
+			shutdown(drainQueue);
+		}
+		return waitForClose(timeout);
+	}
+
+	/**
+	 * Call it only with the lock.
+	 */
+	private boolean isClosed() {
+		return runningCount == 0 && workers.isEmpty() && queue.isEmpty();
+	}
+
+	/**
+	 * @param timeout null for no timeout
+	 */
+	private boolean waitForClose(final Duration timeout) {
+		final var endOfWait = timeout == null ? Long.MAX_VALUE : System.currentTimeMillis() + timeout.toMillis();
+		synchronized (lock) {
+			if (isClosed()) {
+				return true;
+			}
+			log.debug("Wait to close {}...", name);
+			while (isClosed() == false) {
+				final var timeToWait = endOfWait - System.currentTimeMillis();
+				if (timeToWait <= 0) {
+					log.debug("{} can't be closed before {}", name, timeout);
+					return false;
+				}
+				try {
+					lock.wait(timeToWait);
+				} catch (final InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return false;
+				}
 			}
-		} catch (final NullPointerException e) {// NOSONAR
 		}
 		log.debug("{} is now closed", name);
+		return true;
 	}
 
-	private class SpoolJob implements Runnable, SpoolJobStatus {
+	private class SpoolJob implements Runnable, SpoolJobStatus, SpoolQueue.Entry {
 
-		final Runnable command;
+		/**
+		 * Can be changed while queued (MERGE DedupPolicy). Protected by lock
+		 */
+		private Callable<?> command;
 		final String commandName;
-		final int priority;
+		/**
+		 * Can be changed while queued (MERGE DedupPolicy). Protected by lock
+		 */
+		private int priority;
 		final Consumer<Exception> afterRunCommand;
 		final SpoolExecutor executorReferer;
+		final long sequence;
+		final SpoolJobHandle<?> handle;
+		/**
+		 * Set only once, by the job ends or by its timeout.
+		 */
+		final AtomicBoolean ended;
+		/**
+		 * In ms, 0 for the spool default. Protected by lock
+		 */
+		private long timeout;
+		/**
+		 * Set just before to be queued, and never changed while queued. Protected by lock
+		 */
+		private long queuedTime;
+		/**
+		 * Protected by lock
+		 */
+		private int queueIndex;
+		/**
+		 * Runtime estimate in ms, -1 if unknown. Set just before to be queued, and never changed while queued.
+		 * Protected by lock
+		 */
+		private long expectedDuration;
+		/**
+		 * Set just before to be queued, null for never coalesce this job.
+		 */
+		private String dedupKey;
+		/**
+		 * The submissions ended with this job, null if none. Protected by lock
+		 */
+		private List<SpoolJob> coalescedJobs;
+		/**
+		 * The job which ends this submission, null if none. Protected by lock
+		 */
+		private SpoolJob coalescedIn;
+		/**
+		 * Created with the first dropOrder usage. Protected by lock
+		 */
+		private DropEntry dropEntry;
 
 		SpoolJob(final Runnable command,
 		         final String commandName,
 		         final int priority,
 		         final Consumer<Exception> afterRunCommand,
 		         final SpoolExecutor executorReferer) {
-			this.command = command;
+			this(new SpoolJobHandle<Void>(), Executors.callable(command, null), commandName, priority, afterRunCommand,
+			        executorReferer);
+		}
+
+		<T> SpoolJob(final SpoolJobHandle<T> handle,
+		             final Callable<T> command,
+		             final String commandName,
+		             final int priority,
+		             final Consumer<Exception> afterRunCommand,
+		             final SpoolExecutor executorReferer) {
+			this.handle = handle;
+			this.command = handle.keepResult(command);
+			handle.spoolJob = this;
 			this.commandName = commandName;
 			this.priority = priority;
 			this.afterRunCommand = afterRunCommand;
 			this.executorReferer = executorReferer;
+			sequence = jobSequence.getAndIncrement();
+			ended = new AtomicBoolean(false);
+			queueIndex = -1;
+		}
+
+		/**
+		 * @param timeout null for the spool default
+		 */
+		void setTimeout(final Duration timeout) {
+			if (timeout != null && timeout.isNegative()) {
+				throw new IllegalArgumentException("Invalid timeout: " + timeout);
+			}
+			synchronized (lock) {
+				this.timeout = timeout == null ? 0 : timeout.toMillis();
+			}
+		}
+
+		/**
+		 * Call it only with the lock.
+		 * Take also the submissions already coalesced in this one.
+		 */
+		void addCoalesced(final SpoolJob spoolJob) {
+			if (coalescedJobs == null) {
+				coalescedJobs = new ArrayList<>();
+			}
+			coalescedJobs.add(spoolJob);
+			spoolJob.coalescedIn = this;
+			if (spoolJob.coalescedJobs != null) {
+				spoolJob.coalescedJobs.forEach(this::addCoalesced);
+				spoolJob.coalescedJobs = null;
+			}
+		}
+
+		/**
+		 * Call it only with the lock. Detach the coalesced submissions from this job.
+		 * @return this job and its coalesced submissions
+		 */
+		Stream<SpoolJob> withCoalesced() {
+			if (coalescedJobs == null) {
+				return Stream.of(this);
+			}
+			final var all = new ArrayList<SpoolJob>();
+			all.add(this);
+			all.addAll(coalescedJobs);
+			coalescedJobs.forEach(j -> j.coalescedIn = null);
+			coalescedJobs = null;
+			return all.stream();
+		}
+
+		/**
+		 * Call it without the lock. Run the afterRunCommand and complete the handle of the coalesced submissions.
+		 */
+		void endCoalesced(final Exception error) {
+			final List<SpoolJob> toEnd;
+			synchronized (lock) {
+				if (coalescedJobs == null) {
+					return;
+				}
+				toEnd = coalescedJobs;
+				coalescedJobs = null;
+				toEnd.forEach(j -> j.coalescedIn = null);
+			}
+			for (final var coalesced : toEnd) {
+				try {
+					coalesced.afterRunCommand.accept(error);
+				} catch (final Exception e) {
+					log.error("Fail to run afterRunCommand for  \"{}\" by \"{}\"", coalesced.commandName, name, e);
+				}
+				if (error instanceof CancellationException) {
+					coalesced.handle.cancelHandle(false);
+				} else if (error != null) {
+					coalesced.handle.completeExceptionally(error);
+				} else {
+					coalesced.handle.completeByResult();
+				}
+			}
+		}
+
+		/**
+		 * Call it only with the lock.
+		 */
+		DropEntry getDropEntry() {
+			if (dropEntry == null) {
+				dropEntry = new DropEntry(this);
+			}
+			return dropEntry;
+		}
+
+		@Override
+		public int getQueueIndex() {
+			return queueIndex;
+		}
+
+		@Override
+		public void setQueueIndex(final int index) {
+			queueIndex = index;
 		}
 
 		@Override
@@ -145,7 +1464,7 @@ public class SpoolExecutor {
 			Exception error = null;
 			try {
 				log.info("Start new command \"{}\" by \"{}\"", commandName, name);
-				command.run();
+				command.call();
 				log.info("Ends correcly command \"{}\" by \"{}\", after {} sec", commandName, name,
 				        (System.currentTimeMillis() - startTime) / 1000f);
 			} catch (final Exception e) {
@@ -154,7 +1473,16 @@ public class SpoolExecutor {
 				        (System.currentTimeMillis() - startTime) / 1000f, e);
 			}
 
+			if (ended.compareAndSet(false, true)) {
+				onEnd(error, startTime);
+			} else {
+				log.warn("Command \"{}\" by \"{}\" finally ends, after its timeout", commandName, name);
+			}
+		}
+
+		private void onEnd(final Exception error, final long startTime) {
 			final long endTime = System.currentTimeMillis();
+			runtimeEstimates.record(commandName, endTime - startTime);
 			try {
 				if (error != null) {
 					event.afterFailedRun(commandName, endTime, endTime - startTime, executorReferer, error);
@@ -172,11 +1500,12 @@ public class SpoolExecutor {
 				log.error("Fail to run afterRunCommand for  \"{}\" by \"{}\"", commandName, name, e);
 			}
 
-			synchronized (queue) {
-				currentOperation = null;
-				currentOperationName = null;
+			if (error != null) {
+				handle.completeExceptionally(error);
+			} else {
+				handle.completeByResult();
 			}
-			runNext();
+			endCoalesced(error);
 		}
 
 		@Override
@@ -191,20 +1520,117 @@ public class SpoolExecutor {
 
 		@Override
 		public int getPriority() {
-			return priority;
+			synchronized (lock) {
+				return priority;
+			}
+		}
+
+		@Override
+		public int getEffectivePriority() {
+			synchronized (lock) {
+				if (priorityAging == 0 || queueIndex < 0) {
+					return priority;
+				}
+				final var aged = priority + (System.currentTimeMillis() - queuedTime) / priorityAging;
+				return (int) Math.min(Integer.MAX_VALUE, aged);
+			}
+		}
+
+		@Override
+		public long getExpectedDuration() {
+			synchronized (lock) {
+				if (queueIndex < 0) {
+					return runtimeEstimates.estimate(commandName);
+				}
+				return expectedDuration;
+			}
+		}
+
+	}
+
+	/**
+	 * The place of a queued job in dropOrder.
+	 */
+	private static class DropEntry implements SpoolQueue.Entry {
+		final SpoolJob spoolJob;
+		private int index;
+
+		DropEntry(final SpoolJob spoolJob) {
+			this.spoolJob = spoolJob;
+			index = -1;
+		}
+
+		@Override
+		public int getQueueIndex() {
+			return index;
+		}
+
+		@Override
+		public void setQueueIndex(final int index) {
+			this.index = index;
+		}
+	}
+
+	/**
+	 * Only completed by the spool job command result.
+	 */
+	private class SpoolJobHandle<T> extends CompletableFuture<T> {
+
+		/**
+		 * Set once, by the SpoolJob constructor.
+		 */
+		private SpoolJob spoolJob;
+		/**
+		 * Set by the command run, before the handle completion.
+		 */
+		private volatile T result;
+
+		/**
+		 * @return the command to run, it keeps its result for this handle.
+		 */
+		Callable<T> keepResult(final Callable<T> command) {
+			return () -> {
+				result = command.call();
+				return result;
+			};
+		}
+
+		void completeByResult() {
+			complete(result);
+		}
+
+		@Override
+		public boolean cancel(final boolean mayInterruptIfRunning) {
+			return SpoolExecutor.this.cancel(spoolJob, mayInterruptIfRunning);
+		}
+
+		boolean cancelHandle(final boolean mayInterruptIfRunning) {
+			return super.cancel(mayInterruptIfRunning);
 		}
 
 	}
 
 	public SpoolExecutorStatus getLastStatus() {
-		synchronized (queue) {
+		synchronized (lock) {
+			final var currentOperations = workers.stream()
+			        .filter(w -> w.currentJob != null)
+			        .map(w -> new SpoolWorkerStatus(
+			                w.currentJob.commandName,
+			                w.thread.getId(),
+			                w.thread.getState(),
+			                w.thread.getName()))
+			        .collect(Collectors.toUnmodifiableList());
+			final var firstOperation = currentOperations.stream().findFirst();
 			return new SpoolExecutorStatus(name,
-			        currentOperationName,
-			        ofNullable(currentOperation).map(Thread::getId).orElse(-1l),
-			        ofNullable(currentOperation).map(Thread::getState).orElse(null),
-			        ofNullable(currentOperation).map(Thread::getName).orElse(null),
+			        firstOperation.map(SpoolWorkerStatus::getOperationName).orElse(null),
+			        firstOperation.map(SpoolWorkerStatus::getThreadId).orElse(-1l),
+			        firstOperation.map(SpoolWorkerStatus::getThreadState).orElse(null),
+			        firstOperation.map(SpoolWorkerStatus::getThreadName).orElse(null),
 			        queue.stream().sorted(queueComparator).collect(Collectors.toUnmodifiableList()),
-			        shutdown.get());
+			        shutdown.get(),
+			        currentOperations,
+			        maxConcurrentJobs,
+			        runtimeEstimates.getAll());
 		}
 	}
 
@@ -6,6 +6,25 @@ public interface SpoolJobStatus {
 
 	String getSpoolName();
 
+	/**
+	 * @return the original priority, as submitted.
+	 */
 	int getPriority();
 
+	/**
+	 * @return the priority used to sort the queue: raised by the queue wait time if the spool set a priority aging,
+	 *         else the original priority.
+	 */
+	default int getEffectivePriority() {
+		return getPriority();
+	}
+
+	/**
+	 * @return the runtime estimate of this job command name, in ms, -1 if unknown.
+	 *         For a queued job, it's the estimate at its queue time.
+	 */
+	default long getExpectedDuration() {
+		return -1;
+	}
+
 }
\ No newline at end of file
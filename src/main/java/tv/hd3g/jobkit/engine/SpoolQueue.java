@@ -0,0 +1,53 @@
+package tv.hd3g.jobkit.engine;
+
+import java.util.stream.Stream;
+
+/**
+ * Queued jobs of a spool, polled by priority order.
+ * Each entry know its position: remove an entry don't need to scan the queue.
+ * Not thread safe.
+ */
+interface SpoolQueue<E extends SpoolQueue.Entry> {
+
+	interface Entry {
+
+		/**
+		 * @return -1 if not queued
+		 */
+		int getQueueIndex();
+
+		void setQueueIndex(int index);
+
+	}
+
+	void offer(E entry);
+
+	/**
+	 * @return null if empty
+	 */
+	E peek();
+
+	/**
+	 * @return null if empty
+	 */
+	E poll();
+
+	/**
+	 * @return false if this entry is not in this queue
+	 */
+	boolean remove(E entry);
+
+	int size();
+
+	default boolean isEmpty() {
+		return size() == 0;
+	}
+
+	void clear();
+
+	/**
+	 * @return all entries, not sorted
+	 */
+	Stream<E> stream();
+
+}
@@ -0,0 +1,18 @@
+package tv.hd3g.jobkit.engine;
+
+/**
+ * How a SpoolExecutor sort its queued jobs.
+ */
+public enum SpoolQueueType {
+
+	/**
+	 * A binary heap: O(log n) to add or take a job. For any priority values.
+	 */
+	HEAP,
+	/**
+	 * A FIFO queue by priority value: O(1) to add or take a job, and equal priorities always run in submit order.
+	 * Best if jobs use only a few different priority values.
+	 */
+	PRIORITY_BUCKETS;
+
+}
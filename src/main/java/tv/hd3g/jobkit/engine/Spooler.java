@@ -1,5 +1,6 @@
 package tv.hd3g.jobkit.engine;
 
+import java.time.Duration;
 import java.util.Map.Entry;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ThreadFactory;
@@ -22,18 +23,51 @@ public class Spooler {
 	private final ThreadFactory threadFactory;
 	private final AtomicLong threadCount;
 	private final AtomicBoolean shutdown;
+	private final SpoolerAdmission admission;
+	private final AtomicLong idleExecutorTTL;
+	private final AtomicLong nextEvictionCheck;
+	private final AtomicLong evictedExecutorsCount;
 
+	private final boolean virtualThreads;
+
+	/**
+	 * With MIN_PRIORITY daemon threads: call waitToClose before the JVM exit, for let the running jobs ends.
+	 */
 	public Spooler(final ExecutionEvent event) {
+		this(event, makeDefaultThreadFactory());
+	}
+
+	/**
+	 * @param threadFactory used by all SpoolExecutors to create its worker threads, like a VirtualThreadFactory.
+	 */
+	public Spooler(final ExecutionEvent event, final ThreadFactory threadFactory) {
 		this.event = event;
 		spoolExecutors = new ConcurrentHashMap<>();
 		threadCount = new AtomicLong(0);
 		shutdown = new AtomicBoolean(false);
+		admission = new SpoolerAdmission();
+		idleExecutorTTL = new AtomicLong(0);
+		nextEvictionCheck = new AtomicLong(0);
+		evictedExecutorsCount = new AtomicLong(0);
+		virtualThreads = threadFactory instanceof VirtualThreadFactory;
+
+		this.threadFactory = r -> {
+			final Thread t = threadFactory.newThread(r);
+			threadCount.getAndIncrement();
+			return t;
+		};
+	}
 
-		threadFactory = r -> {
+	private static ThreadFactory makeDefaultThreadFactory() {
+		final var count = new AtomicLong(0);
+		return r -> {
 			final Thread t = new Thread(r);
 			t.setPriority(Thread.MIN_PRIORITY);
-			t.setDaemon(false);
-			t.setName("SpoolExecutor #" + threadCount.getAndIncrement());
+			/**
+			 * An idle worker waits the next job during its keep alive, it must not keep alive the JVM.
+			 */
+			t.setDaemon(true);
+			t.setName("SpoolExecutor #" + count.getAndIncrement());
 			return t;
 		};
 	}
@@ -50,7 +84,145 @@ public class Spooler {
 		if (shutdown.get()) {
 			return spoolExecutors.get(name);
 		}
-		return spoolExecutors.computeIfAbsent(name, n -> new SpoolExecutor(n, event, threadFactory));
+		evictIdleExecutorsIfNeeded();
+		return spoolExecutors.computeIfAbsent(name, this::createExecutor);
+	}
+
+	private SpoolExecutor createExecutor(final String name) {
+		/**
+		 * A platform worker waits the next job during the default keep alive. A virtual thread is cheap to create, but
+		 * an idle one will pin its carrier thread during its wait.
+		 */
+		final var workerKeepAlive = virtualThreads ? Duration.ZERO : SpoolExecutor.DEFAULT_WORKER_KEEP_ALIVE;
+		return new SpoolExecutor(name, event, threadFactory, admission, this::getEvictedRedirect, workerKeepAlive);
+	}
+
+	/**
+	 * For a job added to an evicted executor. Unlike computeIfAbsent, compute always waits the end of a running
+	 * eviction (evictIdleExecutors) for this name, so it never returns the evicted executor.
+	 * @return null if this spooler is shutdown
+	 */
+	private SpoolExecutor getEvictedRedirect(final String name) {
+		if (shutdown.get()) {
+			return spoolExecutors.get(name);
+		}
+		return spoolExecutors.compute(name, (n, spoolExecutor) -> {
+			if (spoolExecutor != null) {
+				return spoolExecutor;
+			}
+			return createExecutor(n);
+		});
+	}
+
+	/**
+	 * With dynamic spool names, forget the executors not used for a while.
+	 * An evicted executor is shutdown, and its spool name will get a new executor. An executor configured by one of its
+	 * setters is never evicted, its settings would be lost.
+	 * A job added later to an evicted executor (via an old reference) is redirected to the new executor.
+	 * The idle executors are checked during getExecutor, not more than twice by TTL.
+	 * @param ttl Duration.ZERO (the default) for never evict. The idle time is counted from the last queued job or the
+	 *        last job end.
+	 */
+	public Spooler setIdleExecutorTTL(final Duration ttl) {
+		if (ttl.isNegative()) {
+			throw new IllegalArgumentException("Invalid ttl: " + ttl);
+		}
+		idleExecutorTTL.set(ttl.toMillis());
+		nextEvictionCheck.set(0);
+		return this;
+	}
+
+	public Duration getIdleExecutorTTL() {
+		return Duration.ofMillis(idleExecutorTTL.get());
+	}
+
+	private void evictIdleExecutorsIfNeeded() {
+		final var ttl = idleExecutorTTL.get();
+		if (ttl == 0) {
+			return;
+		}
+		final var now = System.currentTimeMillis();
+		final var nextCheck = nextEvictionCheck.get();
+		if (now >= nextCheck && nextEvictionCheck.compareAndSet(nextCheck, now + Math.max(1, ttl / 2))) {
+			evictIdleExecutors();
+		}
+	}
+
+	/**
+	 * Remove now the executors not used since the idle TTL. Do nothing without TTL, or if this spooler is shutdown.
+	 * @return evicted executors count
+	 */
+	public int evictIdleExecutors() {
+		final var ttl = idleExecutorTTL.get();
+		if (ttl == 0 || shutdown.get()) {
+			return 0;
+		}
+		final var now = System.currentTimeMillis();
+		var count = 0;
+		for (final var spoolName : spoolExecutors.keySet()) {
+			final var removed = new AtomicBoolean(false);
+			spoolExecutors.computeIfPresent(spoolName, (n, spoolExecutor) -> {
+				if (spoolExecutor.evictIfIdle(ttl, now)) {
+					removed.set(true);
+					return null;
+				}
+				return spoolExecutor;
+			});
+			if (removed.get()) {
+				count++;
+			}
+		}
+		if (count > 0) {
+			evictedExecutorsCount.addAndGet(count);
+			log.debug("Evict {} idle executor(s), {} are kept", count, spoolExecutors.size());
+		}
+		return count;
+	}
+
+	public long getEvictedExecutorsCount() {
+		return evictedExecutorsCount.get();
+	}
+
+	/**
+	 * Limit the running jobs count for all the spools, regardless of the max concurrent jobs by spool.
+	 * When the limit is reached, spools wait their turn to start a job, by weight (see setSpoolWeight).
+	 * @param maxRunningJobs Integer.MAX_VALUE (the default) for no limit.
+	 */
+	public Spooler setMaxRunningJobs(final int maxRunningJobs) {
+		admission.setMaxRunningJobs(maxRunningJobs);
+		return this;
+	}
+
+	public int getMaxRunningJobs() {
+		return admission.getMaxRunningJobs();
+	}
+
+	/**
+	 * Only used when the max running jobs limit is reached: waiting spools get free slots in proportion of its weight.
+	 * @param weight more than 0, 1 by default. For a spool without group, it's also the weight of its group.
+	 */
+	public Spooler setSpoolWeight(final String spoolName, final double weight) {
+		admission.setSpoolWeight(spoolName, weight);
+		return this;
+	}
+
+	/**
+	 * Spool groups share free slots by group weight, then the spools of a group share the slots of the group by spool
+	 * weight. Only used when the max running jobs limit is reached.
+	 * @param groupName null for no group (the spool is alone in its own group)
+	 */
+	public Spooler setSpoolGroup(final String spoolName, final String groupName) {
+		admission.setSpoolGroup(spoolName, groupName);
+		return this;
+	}
+
+	/**
+	 * @param weight more than 0, 1 by default.
+	 * @see Spooler#setSpoolGroup(String, String)
+	 */
+	public Spooler setGroupWeight(final String groupName, final double weight) {
+		admission.setGroupWeight(groupName, weight);
+		return this;
 	}
 
 	public int getAllQueuesSize() {
@@ -62,23 +234,32 @@ public class Spooler {
 	}
 
 	/**
-	 * Non-blocking
+	 * Non-blocking. Clear all queues.
 	 */
 	public void shutdown() {
+		shutdown(false);
+	}
+
+	/**
+	 * Non-blocking
+	 * @param drainQueues if true, all actual queued jobs will be run before to close, else all queues are cleared.
+	 */
+	public void shutdown(final boolean drainQueues) {
 		if (shutdown.get()) {
 			return;
 		}
 		shutdown.set(true);
-		log.info("Shutdown all ({}) spoolExecutors. {} are running jobs and {} in waiting.",
+		log.info("Shutdown all ({}) spoolExecutors. {} are running jobs and {} in waiting{}.",
 		        spoolExecutors.mappingCount(),
 		        getRunningQueuesCount(),
-		        getAllQueuesSize());
-		getSpoolExecutorStream().forEach(SpoolExecutor::shutdown);
+		        getAllQueuesSize(),
+		        drainQueues ? " (they will be run before close)" : "");
+		getSpoolExecutorStream().forEach(spoolExecutor -> spoolExecutor.shutdown(drainQueues));
 		event.shutdownSpooler();
 	}
 
 	/**
-	 * Blocking. It call shutdown() before.
+	 * Blocking, without limit. It call shutdown() before.
 	 */
 	public void waitToClose() {
 		shutdown();
@@ -89,11 +270,46 @@ public class Spooler {
 		getSpoolExecutorStream().forEach(SpoolExecutor::waitToClose);
 	}
 
+	/**
+	 * Blocking. It call shutdown() before.
+	 * @return true if all jobs are ended before the timeout.
+	 */
+	public boolean waitToClose(final Duration timeout) {
+		return waitToClose(timeout, false);
+	}
+
+	/**
+	 * Blocking. It call shutdown(drainQueues) before.
+	 * @return true if all jobs are ended before the timeout.
+	 */
+	public boolean waitToClose(final Duration timeout, final boolean drainQueues) {
+		shutdown(drainQueues);
+		final var count = getRunningQueuesCount();
+		if (count > 0) {
+			log.info("Wait to ends all current ({}) running jobs, up to {}...", count, timeout);
+		}
+		final var endOfWait = System.currentTimeMillis() + timeout.toMillis();
+		final var allExecutors = getSpoolExecutorStream().collect(Collectors.toUnmodifiableList());
+		var allClosed = true;
+		for (final var spoolExecutor : allExecutors) {
+			final var timeToWait = Math.max(0, endOfWait - System.currentTimeMillis());
+			allClosed &= spoolExecutor.waitToClose(Duration.ofMillis(timeToWait), drainQueues);
+		}
+		return allClosed;
+	}
+
 	public SpoolerStatus getLastStatus() {
 		final var allCurrentStatuses = getSpoolExecutorStream()
 		        .map(SpoolExecutor::getLastStatus)
 		        .collect(Collectors.toSet());
-		return new SpoolerStatus(allCurrentStatuses, threadCount.get(), shutdown.get());
+		return new SpoolerStatus(allCurrentStatuses,
+		        threadCount.get(),
+		        shutdown.get(),
+		        admission.getMaxRunningJobs(),
+		        admission.getRunningJobs(),
+		        admission.getWaitingSpools(),
+		        admission.getAdmissionShares(),
+		        evictedExecutorsCount.get());
 	}
 
 }
@@ -0,0 +1,323 @@
+package tv.hd3g.jobkit.engine;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Shared by all the SpoolExecutors of a Spooler: limit the running jobs count for all the spools.
+ * When the limit is reached, the spools with a job to start wait their turn, with a deficit round-robin between the
+ * spool groups, then between the spools of a group: each one get free slots in proportion of its weight.
+ * A free slot is given to the next waiting spool, so a busy spool can't overtake the others.
+ * A spool without group is alone in a group named like it, with the spool weight.
+ * Without limit (the default), a job start or end only count the running jobs, without this lock.
+ * Lock order: the SpoolExecutor lock before this lock. Never call a SpoolExecutor with this lock.
+ */
+class SpoolerAdmission {
+
+	private int maxRunningJobs;
+	/**
+	 * False without limit: tryAcquire, release and releaseUnused don't take this lock.
+	 */
+	private volatile boolean limited;
+	private final AtomicInteger runningJobs;
+	/**
+	 * Waiting groups, by group name.
+	 */
+	private final DeficitRoundRobin<String> waitingGroups;
+	/**
+	 * Waiting spools, by group name. Never empty.
+	 */
+	private final Map<String, DeficitRoundRobin<SpoolExecutor>> waitingSpoolsByGroup;
+	private final Map<SpoolExecutor, String> groupByWaitingSpool;
+	/**
+	 * Slots given to a waiting spool, not yet used by it.
+	 */
+	private final Map<SpoolExecutor, Integer> grantedSlots;
+	private final Map<String, Double> spoolWeights;
+	private final Map<String, Double> groupWeights;
+	private final Map<String, String> spoolGroups;
+	/**
+	 * Slots given to a waiting spool, by spool name.
+	 */
+	private final Map<String, Long> grantedCounts;
+
+	SpoolerAdmission() {
+		maxRunningJobs = Integer.MAX_VALUE;
+		runningJobs = new AtomicInteger(0);
+		waitingGroups = new DeficitRoundRobin<>(this::getGroupWeight);
+		waitingSpoolsByGroup = new HashMap<>();
+		groupByWaitingSpool = new HashMap<>();
+		grantedSlots = new HashMap<>();
+		spoolWeights = new HashMap<>();
+		groupWeights = new HashMap<>();
+		spoolGroups = new HashMap<>();
+		grantedCounts = new HashMap<>();
+	}
+
+	private static void checkWeight(final double weight) {
+		if (weight <= 0d || Double.isFinite(weight) == false) {
+			throw new IllegalArgumentException("Invalid weight: " + weight);
+		}
+	}
+
+	/**
+	 * @param weight more than 0, 1 by default.
+	 */
+	synchronized void setSpoolWeight(final String spoolName, final double weight) {
+		checkWeight(weight);
+		spoolWeights.put(spoolName, weight);
+	}
+
+	synchronized double getSpoolWeight(final String spoolName) {
+		return spoolWeights.getOrDefault(spoolName, 1d);
+	}
+
+	/**
+	 * @param weight more than 0, 1 by default.
+	 */
+	synchronized void setGroupWeight(final String groupName, final double weight) {
+		checkWeight(weight);
+		groupWeights.put(groupName, weight);
+	}
+
+	/**
+	 * Call it only with this lock.
+	 */
+	private double getGroupWeight(final String groupName) {
+		if (groupWeights.containsKey(groupName)) {
+			return groupWeights.get(groupName);
+		}
+		return spoolWeights.getOrDefault(groupName, 1d);
+	}
+
+	/**
+	 * @param groupName null for no group
+	 */
+	synchronized void setSpoolGroup(final String spoolName, final String groupName) {
+		if (groupName == null) {
+			spoolGroups.remove(spoolName);
+		} else {
+			spoolGroups.put(spoolName, groupName);
+		}
+		final var waitingSpool = groupByWaitingSpool.keySet().stream()
+		        .filter(spool -> spool.getName().equals(spoolName))
+		        .findFirst();
+		if (waitingSpool.isPresent()) {
+			/**
+			 * Move it in its new group, at the end of the round.
+			 */
+			removeWaiting(waitingSpool.get());
+			addWaiting(waitingSpool.get());
+		}
+	}
+
+	/**
+	 * Call it only with this lock.
+	 */
+	private void addWaiting(final SpoolExecutor spoolExecutor) {
+		if (groupByWaitingSpool.containsKey(spoolExecutor)) {
+			return;
+		}
+		final var groupName = spoolGroups.getOrDefault(spoolExecutor.getName(), spoolExecutor.getName());
+		waitingSpoolsByGroup.computeIfAbsent(groupName,
+		        g -> new DeficitRoundRobin<SpoolExecutor>(spool -> getSpoolWeight(spool.getName())))
+		        .activate(spoolExecutor);
+		waitingGroups.activate(groupName);
+		groupByWaitingSpool.put(spoolExecutor, groupName);
+	}
+
+	/**
+	 * Call it only with this lock.
+	 */
+	private void removeWaiting(final SpoolExecutor spoolExecutor) {
+		final var groupName = groupByWaitingSpool.remove(spoolExecutor);
+		if (groupName == null) {
+			return;
+		}
+		final var groupSpools = waitingSpoolsByGroup.get(groupName);
+		groupSpools.deactivate(spoolExecutor);
+		if (groupSpools.isEmpty()) {
+			waitingSpoolsByGroup.remove(groupName);
+			waitingGroups.deactivate(groupName);
+		}
+	}
+
+	/**
+	 * @param wantsMore if the spool still has queued jobs after this one: it keeps its place and its credit in the
+	 *        waiting round.
+	 * @return true if the spool can start a new job now, else it will be called back (runNext) on its turn.
+	 */
+	boolean tryAcquire(final SpoolExecutor spoolExecutor, final boolean wantsMore) {
+		if (limited == false) {
+			/**
+			 * A job started during a setMaxRunningJobs can go beyond the new limit.
+			 */
+			runningJobs.incrementAndGet();
+			return true;
+		}
+		synchronized (this) {
+			final var granted = grantedSlots.getOrDefault(spoolExecutor, 0);
+			if (granted > 0) {
+				if (granted == 1) {
+					grantedSlots.remove(spoolExecutor);
+					if (wantsMore == false) {
+						removeWaiting(spoolExecutor);
+					}
+				} else {
+					grantedSlots.put(spoolExecutor, granted - 1);
+				}
+				return true;
+			}
+			if (runningJobs.get() < maxRunningJobs && waitingGroups.isEmpty()) {
+				runningJobs.incrementAndGet();
+				return true;
+			}
+			addWaiting(spoolExecutor);
+			return false;
+		}
+	}
+
+	/**
+	 * Call it without any SpoolExecutor lock, after a job ends.
+	 */
+	void release() {
+		if (limited == false) {
+			runningJobs.decrementAndGet();
+			if (limited) {
+				/**
+				 * A limit was set in the meantime: a spool can wait this slot.
+				 */
+				grantFreeSlots();
+			}
+			return;
+		}
+		wakeUp(releaseSlot());
+	}
+
+	/**
+	 * Call it without any SpoolExecutor lock. Give back the granted slots not used by this spool.
+	 * A spool with an unused slot don't wait anymore.
+	 */
+	void releaseUnused(final SpoolExecutor spoolExecutor) {
+		if (limited == false) {
+			return;
+		}
+		final int unused;
+		synchronized (this) {
+			unused = grantedSlots.getOrDefault(spoolExecutor, 0);
+			if (unused > 0) {
+				grantedSlots.remove(spoolExecutor);
+				removeWaiting(spoolExecutor);
+			}
+		}
+		for (var pos = 0; pos < unused; pos++) {
+			release();
+		}
+	}
+
+	/**
+	 * @return the spool to wake up, or null
+	 */
+	private synchronized SpoolExecutor releaseSlot() {
+		final var nextGroup = waitingGroups.next();
+		if (nextGroup == null) {
+			runningJobs.decrementAndGet();
+			return null;
+		}
+		/**
+		 * Still in waiting, until it use its last granted slot without asking for more, or it can't use it.
+		 */
+		final var next = waitingSpoolsByGroup.get(nextGroup).next();
+		grantedSlots.merge(next, 1, Integer::sum);
+		grantedCounts.merge(next.getName(), 1L, Long::sum);
+		return next;
+	}
+
+	private void wakeUp(final SpoolExecutor spoolExecutor) {
+		if (spoolExecutor != null) {
+			spoolExecutor.runNext();
+		}
+	}
+
+	/**
+	 * @param maxRunningJobs Integer.MAX_VALUE for no limit
+	 */
+	void setMaxRunningJobs(final int maxRunningJobs) {
+		if (maxRunningJobs < 1) {
+			throw new IllegalArgumentException("Invalid maxRunningJobs: " + maxRunningJobs);
+		}
+		final var isLimited = maxRunningJobs != Integer.MAX_VALUE;
+		final List<SpoolExecutor> noMoreWaiting;
+		synchronized (this) {
+			this.maxRunningJobs = maxRunningJobs;
+			limited = isLimited;
+			if (isLimited) {
+				noMoreWaiting = List.of();
+			} else {
+				/**
+				 * Without limit, the granted slots and the waiting spools are not managed anymore.
+				 */
+				grantedSlots.values().forEach(granted -> runningJobs.addAndGet(-granted));
+				grantedSlots.clear();
+				noMoreWaiting = List.copyOf(groupByWaitingSpool.keySet());
+				noMoreWaiting.forEach(this::removeWaiting);
+			}
+		}
+		if (isLimited) {
+			grantFreeSlots();
+		} else {
+			noMoreWaiting.forEach(this::wakeUp);
+		}
+	}
+
+	/**
+	 * Call it without any SpoolExecutor lock. Give the free slots (under the limit) to the waiting spools.
+	 */
+	private void grantFreeSlots() {
+		var freeSlots = 0;
+		synchronized (this) {
+			while (runningJobs.get() < maxRunningJobs && freeSlots < groupByWaitingSpool.size()) {
+				runningJobs.incrementAndGet();
+				freeSlots++;
+			}
+		}
+		for (var pos = 0; pos < freeSlots; pos++) {
+			/**
+			 * Each new slot is taken, then given to the next waiting spool.
+			 */
+			wakeUp(releaseSlot());
+		}
+	}
+
+	synchronized int getMaxRunningJobs() {
+		return maxRunningJobs;
+	}
+
+	int getRunningJobs() {
+		return runningJobs.get();
+	}
+
+	/**
+	 * @return the waiting spool names, in admission order.
+	 */
+	synchronized List<String> getWaitingSpools() {
+		return waitingGroups.stream()
+		        .flatMap(groupName -> waitingSpoolsByGroup.get(groupName).stream())
+		        .map(SpoolExecutor::getName)
+		        .collect(Collectors.toUnmodifiableList());
+	}
+
+	/**
+	 * @return for each spool, its part of all the slots given to the waiting spools, from 0 to 1.
+	 *         Only the slots given when the limit is reached are counted.
+	 */
+	synchronized Map<String, Double> getAdmissionShares() {
+		final double total = grantedCounts.values().stream().mapToLong(Long::longValue).sum();
+		return grantedCounts.entrySet().stream()
+		        .collect(Collectors.toUnmodifiableMap(Map.Entry::getKey, entry -> entry.getValue() / total));
+	}
+
+}
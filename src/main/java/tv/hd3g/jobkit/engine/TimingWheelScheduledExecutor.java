@@ -0,0 +1,290 @@
+package tv.hd3g.jobkit.engine;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RunnableScheduledFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A ScheduledExecutorService on a hashed timing wheel, for a lot of pending timers (like BackgroundServices and
+ * SpoolBatchers delays): schedule and cancel cost O(1), instead of O(log n) with a ScheduledThreadPoolExecutor.
+ * All the tasks are run by the single wheel thread: they must be short, like queue a job in a spool.
+ * A task can run up to one tick late, never before its delay.
+ * On shutdown, the delayed tasks still run, and the periodic tasks are cancelled. On shutdownNow, all the pending
+ * tasks are cancelled. Without pending tasks, the wheel thread don't tick.
+ */
+public class TimingWheelScheduledExecutor extends AbstractExecutorService implements ScheduledExecutorService {
+
+	public static final Duration DEFAULT_TICK = HashedWheelTimer.DEFAULT_TICK;
+
+	private final HashedWheelTimer timer;
+	private final AtomicBoolean shutdown;
+	private final Set<WheelTask<?>> periodicTasks;
+
+	/**
+	 * With a 10 ms tick, and a daemon thread.
+	 */
+	public TimingWheelScheduledExecutor() {
+		this(DEFAULT_TICK);
+	}
+
+	/**
+	 * With a daemon thread.
+	 * @param tick the timer resolution
+	 */
+	public TimingWheelScheduledExecutor(final Duration tick) {
+		this(tick, r -> {
+			final var t = new Thread(r);
+			t.setDaemon(true);
+			t.setName("TimingWheelScheduledExecutor");
+			return t;
+		});
+	}
+
+	/**
+	 * @param tick the timer resolution
+	 * @param threadFactory for the wheel thread, created with the first task.
+	 */
+	public TimingWheelScheduledExecutor(final Duration tick, final ThreadFactory threadFactory) {
+		this(tick, HashedWheelTimer.DEFAULT_WHEEL_SIZE, threadFactory);
+	}
+
+	/**
+	 * @param tick the timer resolution
+	 * @param wheelSize buckets count (rounded up to a power of two), tick * wheelSize should be near the usual delays.
+	 * @param threadFactory for the wheel thread, created with the first task.
+	 */
+	public TimingWheelScheduledExecutor(final Duration tick, final int wheelSize, final ThreadFactory threadFactory) {
+		Objects.requireNonNull(tick, "\"tick\" can't to be null");
+		timer = new HashedWheelTimer(threadFactory, tick, wheelSize, task -> ((WheelTask<?>) task).cancel(false));
+		shutdown = new AtomicBoolean(false);
+		periodicTasks = ConcurrentHashMap.newKeySet();
+	}
+
+	private class WheelTask<V> extends FutureTask<V> implements RunnableScheduledFuture<V> {
+		/**
+		 * In ns, System.nanoTime based.
+		 */
+		private volatile long time;
+		/**
+		 * In ns. 0 for a one-shot task, more than 0 for a fixed rate, less than 0 for a fixed delay.
+		 */
+		private final long period;
+		private volatile HashedWheelTimer.Timeout timeout;
+
+		WheelTask(final Callable<V> callable, final long time) {
+			super(callable);
+			this.time = time;
+			period = 0;
+		}
+
+		WheelTask(final Runnable runnable, final long time, final long period) {
+			super(runnable, null);
+			this.time = time;
+			this.period = period;
+		}
+
+		@Override
+		public long getDelay(final TimeUnit unit) {
+			return unit.convert(time - System.nanoTime(), NANOSECONDS);
+		}
+
+		@Override
+		public int compareTo(final Delayed other) {
+			if (other == this) {
+				return 0;
+			}
+			return Long.compare(getDelay(NANOSECONDS), other.getDelay(NANOSECONDS));
+		}
+
+		@Override
+		public boolean isPeriodic() {
+			return period != 0;
+		}
+
+		/**
+		 * @throws RejectedExecutionException if the wheel is stopped
+		 */
+		void enqueue() {
+			try {
+				timeout = timer.schedule(this, time - System.nanoTime(), NANOSECONDS);
+			} catch (final IllegalStateException e) {
+				throw new RejectedExecutionException("This executor is shutdown", e);
+			}
+			if (isCancelled()) {
+				/**
+				 * Cancelled before the timeout was set.
+				 */
+				timeout.cancel();
+			}
+		}
+
+		/**
+		 * Called by the wheel thread.
+		 */
+		@Override
+		public void run() {
+			if (isPeriodic() == false) {
+				super.run();
+				return;
+			}
+			if (runAndReset() == false) {
+				return;
+			}
+			if (shutdown.get()) {
+				cancel(false);
+				return;
+			}
+			if (period > 0) {
+				time += period;
+			} else {
+				time = System.nanoTime() - period;
+			}
+			try {
+				enqueue();
+			} catch (final RejectedExecutionException e) {
+				cancel(false);
+			}
+		}
+
+		@Override
+		public boolean cancel(final boolean mayInterruptIfRunning) {
+			final var cancelled = super.cancel(mayInterruptIfRunning);
+			final var actualTimeout = timeout;
+			if (cancelled && actualTimeout != null) {
+				actualTimeout.cancel();
+			}
+			return cancelled;
+		}
+
+		@Override
+		protected void done() {
+			if (isPeriodic()) {
+				periodicTasks.remove(this);
+			}
+		}
+	}
+
+	private static long triggerTime(final long delay, final TimeUnit unit) {
+		/**
+		 * Up to ~146 years, without overflow on the delay computations.
+		 */
+		return System.nanoTime() + Math.min(unit.toNanos(Math.max(0, delay)), Long.MAX_VALUE >> 1);
+	}
+
+	private <V> WheelTask<V> enqueue(final WheelTask<V> task) {
+		if (task.isPeriodic()) {
+			/**
+			 * Added before the shutdown check, to be always cancelled by a concurrent shutdown.
+			 */
+			periodicTasks.add(task);
+		}
+		if (shutdown.get()) {
+			periodicTasks.remove(task);
+			throw new RejectedExecutionException("This executor is shutdown");
+		}
+		task.enqueue();
+		return task;
+	}
+
+	@Override
+	public ScheduledFuture<?> schedule(final Runnable command, final long delay, final TimeUnit unit) {
+		Objects.requireNonNull(command, "\"command\" can't to be null");
+		return enqueue(new WheelTask<Void>(command, triggerTime(delay, unit), 0));
+	}
+
+	@Override
+	public <V> ScheduledFuture<V> schedule(final Callable<V> callable, final long delay, final TimeUnit unit) {
+		Objects.requireNonNull(callable, "\"callable\" can't to be null");
+		return enqueue(new WheelTask<>(callable, triggerTime(delay, unit)));
+	}
+
+	@Override
+	public ScheduledFuture<?> scheduleAtFixedRate(final Runnable command,
+	                                              final long initialDelay,
+	                                              final long period,
+	                                              final TimeUnit unit) {
+		Objects.requireNonNull(command, "\"command\" can't to be null");
+		if (period <= 0) {
+			throw new IllegalArgumentException("Invalid period: " + period);
+		}
+		return enqueue(new WheelTask<Void>(command, triggerTime(initialDelay, unit), unit.toNanos(period)));
+	}
+
+	@Override
+	public ScheduledFuture<?> scheduleWithFixedDelay(final Runnable command,
+	                                                 final long initialDelay,
+	                                                 final long delay,
+	                                                 final TimeUnit unit) {
+		Objects.requireNonNull(command, "\"command\" can't to be null");
+		if (delay <= 0) {
+			throw new IllegalArgumentException("Invalid delay: " + delay);
+		}
+		return enqueue(new WheelTask<Void>(command, triggerTime(initialDelay, unit), -unit.toNanos(delay)));
+	}
+
+	/**
+	 * Run on the next tick.
+	 */
+	@Override
+	public void execute(final Runnable command) {
+		schedule(command, 0, NANOSECONDS);
+	}
+
+	/**
+	 * @return the pending tasks count (cancelled tasks can be still counted until the next tick).
+	 */
+	public long getPendingCount() {
+		return timer.getPendingCount();
+	}
+
+	/**
+	 * Non-blocking. The periodic tasks are cancelled, the delayed tasks will still run, then the wheel thread ends.
+	 */
+	@Override
+	public void shutdown() {
+		shutdown.set(true);
+		periodicTasks.forEach(task -> task.cancel(false));
+		timer.stopWhenEmpty();
+	}
+
+	/**
+	 * Blocking, until the wheel thread ends (if it's not called by a task).
+	 * @return the pending tasks, now cancelled (empty if called by a task, but they are cancelled after it).
+	 */
+	@Override
+	public List<Runnable> shutdownNow() {
+		shutdown.set(true);
+		return timer.stop();
+	}
+
+	@Override
+	public boolean isShutdown() {
+		return shutdown.get();
+	}
+
+	@Override
+	public boolean isTerminated() {
+		return shutdown.get() && timer.isTerminated();
+	}
+
+	@Override
+	public boolean awaitTermination(final long timeout, final TimeUnit unit) throws InterruptedException {
+		return timer.awaitTermination(timeout, unit);
+	}
+
+}
@@ -0,0 +1,50 @@
+package tv.hd3g.jobkit.engine;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Create virtual threads (Java 21+) for SpoolExecutors, for jobs mostly blocked on I/O.
+ * This lib is still built for Java 11: the virtual thread API is called by reflection.
+ * Usage: new Spooler(event, new VirtualThreadFactory())
+ */
+public class VirtualThreadFactory implements ThreadFactory {
+
+	private final ThreadFactory virtualThreadFactory;
+
+	/**
+	 * @throws UnsupportedOperationException if the actual JVM can't create virtual threads.
+	 */
+	public VirtualThreadFactory() {
+		try {
+			final var builderClass = Class.forName("java.lang.Thread$Builder");
+			var builder = Thread.class.getMethod("ofVirtual").invoke(null);
+			builder = builderClass.getMethod("name", String.class, long.class)
+			        .invoke(builder, "SpoolExecutor virtual #", 0l);
+			virtualThreadFactory = (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+		} catch (final InvocationTargetException e) {
+			throw new UnsupportedOperationException("Can't create virtual threads with this JVM", e.getCause());
+		} catch (final ReflectiveOperationException e) {
+			throw new UnsupportedOperationException("Can't create virtual threads with this JVM (Java 21+ needed)",
+			        e);
+		}
+	}
+
+	/**
+	 * @return true if the actual JVM can create virtual threads.
+	 */
+	public static boolean isAvailable() {
+		try {
+			new VirtualThreadFactory();
+			return true;
+		} catch (final UnsupportedOperationException e) {
+			return false;
+		}
+	}
+
+	@Override
+	public Thread newThread(final Runnable r) {
+		return virtualThreadFactory.newThread(r);
+	}
+
+}
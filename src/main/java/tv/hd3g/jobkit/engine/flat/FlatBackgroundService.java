@@ -46,6 +46,18 @@ class FlatBackgroundService extends BackgroundService {
 		return this;
 	}
 
+	/**
+	 * Run the task now, in this thread.
+	 */
+	@Override
+	public boolean runNow() {
+		if (isEnabled() == false) {
+			throw new IllegalStateException("Beware, this service is not enabled");
+		}
+		runReference.run();
+		return true;
+	}
+
 	@Override
 	public synchronized BackgroundServiceStatus getLastStatus() {
 		throw new UnsupportedOperationException();
@@ -17,6 +17,9 @@
 package tv.hd3g.jobkit.engine.flat;
 
 import java.time.Duration;
+import java.util.Collection;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 
@@ -24,8 +27,10 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import tv.hd3g.jobkit.engine.BackgroundService;
+import tv.hd3g.jobkit.engine.BatchHandler;
 import tv.hd3g.jobkit.engine.Job;
 import tv.hd3g.jobkit.engine.JobKitEngine;
+import tv.hd3g.jobkit.engine.SpoolBatcher;
 import tv.hd3g.jobkit.engine.Spooler;
 import tv.hd3g.jobkit.engine.status.JobKitEngineStatus;
 
@@ -71,6 +76,24 @@ public class FlatJobKitEngine extends JobKitEngine {
 		return createService(name, spoolName, task).setTimedInterval(timedInterval, unit).enable();
 	}
 
+	@Override
+	public void spreadServices() {
+		/**
+		 * Not needed: the services are only run by runAllServicesOnce
+		 */
+	}
+
+	/**
+	 * @return a new batcher, without spool: each added item is processed now, in the caller thread.
+	 */
+	@Override
+	public <T> SpoolBatcher<T> createBatcher(final String name,
+	                                         final String spoolName,
+	                                         final BatchHandler<T> handler) {
+		log.debug("Create batcher {}, spool {}", name, spoolName);
+		return new FlatSpoolBatcher<>(name, spoolName, handler);
+	}
+
 	@Override
 	public Spooler getSpooler() {
 		throw new UnsupportedOperationException();
@@ -84,6 +107,15 @@ public class FlatJobKitEngine extends JobKitEngine {
 		return true;
 	}
 
+	/**
+	 * Run all the jobs now, one by one.
+	 */
+	@Override
+	public boolean runOneShot(final Collection<? extends Job> jobs) {
+		jobs.forEach(this::runOneShot);
+		return true;
+	}
+
 	@Override
 	public boolean runOneShot(final String name,
 	                          final String spoolName,
@@ -95,6 +127,68 @@ public class FlatJobKitEngine extends JobKitEngine {
 		return true;
 	}
 
+	/**
+	 * Run the task now: nothing is queued, so there is nothing to coalesce, the dedupKey is ignored.
+	 */
+	@Override
+	public boolean runOneShot(final String name,
+	                          final String spoolName,
+	                          final int priority,
+	                          final String dedupKey,
+	                          final Runnable task,
+	                          final Consumer<Exception> afterRunCommand) {
+		return runOneShot(name, spoolName, priority, task, afterRunCommand);
+	}
+
+	@Override
+	public CompletableFuture<Void> submitOneShot(final String name,
+	                                             final String spoolName,
+	                                             final int priority,
+	                                             final Runnable task,
+	                                             final Consumer<Exception> afterRunCommand) {
+		runOneShot(name, spoolName, priority, task, afterRunCommand);
+		return CompletableFuture.completedFuture(null);
+	}
+
+	/**
+	 * Run the task now, in this thread: the delay is ignored.
+	 */
+	@Override
+	public CompletableFuture<Void> runOneShotAfter(final Duration delay,
+	                                               final String name,
+	                                               final String spoolName,
+	                                               final int priority,
+	                                               final Runnable task,
+	                                               final Consumer<Exception> afterRunCommand) {
+		log.debug("Run now {}, spool {}, instead of after {}", name, spoolName, delay);
+		return submitOneShot(name, spoolName, priority, task, afterRunCommand);
+	}
+
+	@Override
+	public CompletableFuture<Void> submitOneShot(final Job job) {
+		job.onJobStart();
+		try {
+			job.run();
+		} catch (final Exception e) {
+			job.onJobFail(e);
+			return CompletableFuture.failedFuture(e);
+		}
+		job.onJobDone();
+		return CompletableFuture.completedFuture(null);
+	}
+
+	@Override
+	public <T> CompletableFuture<T> submitOneShot(final String name,
+	                                              final String spoolName,
+	                                              final int priority,
+	                                              final Callable<T> task) {
+		try {
+			return CompletableFuture.completedFuture(task.call());
+		} catch (final Exception e) {
+			return CompletableFuture.failedFuture(e);
+		}
+	}
+
 	@Override
 	public void shutdown() {
 		/**
@@ -109,6 +203,22 @@ public class FlatJobKitEngine extends JobKitEngine {
 		 */
 	}
 
+	@Override
+	public boolean waitToClose(final Duration timeout) {
+		/**
+		 * Not needed, not implemented
+		 */
+		return true;
+	}
+
+	@Override
+	public boolean waitToClose(final Duration timeout, final boolean drainQueues) {
+		/**
+		 * Not needed, not implemented
+		 */
+		return true;
+	}
+
 	@Override
 	public JobKitEngineStatus getLastStatus() {
 		throw new UnsupportedOperationException();
@@ -0,0 +1,69 @@
+/*
+ * This file is part of jobkit-engine.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * Copyright (C) hdsdi3g for hd3g.tv 2020
+ *
+ */
+package tv.hd3g.jobkit.engine.flat;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+import tv.hd3g.jobkit.engine.BatchHandler;
+import tv.hd3g.jobkit.engine.SpoolBatcher;
+
+/**
+ * Each added item is processed now, in this thread, as a batch of one item.
+ */
+class FlatSpoolBatcher<T> extends SpoolBatcher<T> {
+
+	private final BatchHandler<T> handler;
+
+	FlatSpoolBatcher(final String name, final String spoolName, final BatchHandler<T> handler) {
+		super(name, spoolName, null, null, handler);
+		this.handler = handler;
+	}
+
+	@Override
+	public void add(final String batchKey, final T item, final Consumer<Exception> afterRunCommand) {
+		afterRunCommand.accept(process(batchKey, item));
+	}
+
+	@Override
+	public CompletableFuture<Void> submit(final String batchKey, final T item) {
+		final var error = process(batchKey, item);
+		if (error != null) {
+			return CompletableFuture.failedFuture(error);
+		}
+		return CompletableFuture.completedFuture(null);
+	}
+
+	/**
+	 * @return the item error, or null
+	 */
+	private Exception process(final String batchKey, final T item) {
+		Objects.requireNonNull(batchKey, "\"batchKey\" can't to be null");
+		try {
+			final var failures = handler.process(batchKey, List.of(item));
+			if (failures == null) {
+				return null;
+			}
+			return failures.get(0);
+		} catch (final Exception e) {
+			return e;
+		}
+	}
+
+}
@@ -16,7 +16,14 @@ public class BackgroundServiceStatus {
 	private final double retryAfterTimeFactor;
 	private final int sequentialErrorCount;
 	private final String task;
-
+	private final boolean fixedRate;
+	private final long periodError;
+	private final long misfiredRuns;
+	private final long skippedRuns;
+
+	/**
+	 * Without fixed rate counters.
+	 */
 	public BackgroundServiceStatus(final String name,
 	                               final String spoolName,
 	                               final long nextRunReferenceDelay,
@@ -24,6 +31,20 @@ public class BackgroundServiceStatus {
 	                               final BackgroundService backgroundService,
 	                               final int sequentialErrorCount,
 	                               final String task) {
+		this(name, spoolName, nextRunReferenceDelay, previousScheduledDate, backgroundService, sequentialErrorCount,
+		        task, 0, 0, 0);
+	}
+
+	public BackgroundServiceStatus(final String name,
+	                               final String spoolName,
+	                               final long nextRunReferenceDelay,
+	                               final long previousScheduledDate,
+	                               final BackgroundService backgroundService,
+	                               final int sequentialErrorCount,
+	                               final String task,
+	                               final long periodError,
+	                               final long misfiredRuns,
+	                               final long skippedRuns) {
 		this.name = name;
 		this.spoolName = spoolName;
 		enabled = backgroundService.isEnabled();
@@ -34,6 +55,10 @@ public class BackgroundServiceStatus {
 		retryAfterTimeFactor = backgroundService.getRetryAfterTimeFactor();
 		this.sequentialErrorCount = sequentialErrorCount;
 		this.task = task;
+		fixedRate = backgroundService.isFixedRate();
+		this.periodError = periodError;
+		this.misfiredRuns = misfiredRuns;
+		this.skippedRuns = skippedRuns;
 	}
 
 	public String getName() {
@@ -76,4 +101,29 @@ public class BackgroundServiceStatus {
 		return task;
 	}
 
+	public boolean isFixedRate() {
+		return fixedRate;
+	}
+
+	/**
+	 * @return in fixed-rate mode, how late the last run has started, compared to its planned time, in ms.
+	 */
+	public long getPeriodError() {
+		return periodError;
+	}
+
+	/**
+	 * @return in fixed-rate mode, the planned runs count with the previous run still queued or running.
+	 */
+	public long getMisfiredRuns() {
+		return misfiredRuns;
+	}
+
+	/**
+	 * @return the planned runs never done, because the previous run was still queued or running.
+	 */
+	public long getSkippedRuns() {
+		return skippedRuns;
+	}
+
 }
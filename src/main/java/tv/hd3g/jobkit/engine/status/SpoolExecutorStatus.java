@@ -2,6 +2,7 @@ package tv.hd3g.jobkit.engine.status;
 
 import java.lang.Thread.State;
 import java.util.List;
+import java.util.Map;
 
 import tv.hd3g.jobkit.engine.SpoolJobStatus;
 
@@ -14,7 +15,13 @@ public class SpoolExecutorStatus {
 	private final String currentThreadName;
 	private final List<SpoolJobStatus> queue;
 	private final boolean isShutdown;
+	private final List<SpoolWorkerStatus> currentOperations;
+	private final int maxConcurrentJobs;
+	private final Map<String, Long> runtimeEstimates;
 
+	/**
+	 * For a spool with one job at a time, without runtime estimates.
+	 */
 	public SpoolExecutorStatus(final String spoolName,
 	                           final String currentOperationName,
 	                           final long currentThreadId,
@@ -22,6 +29,23 @@ public class SpoolExecutorStatus {
 	                           final String currentThreadName,
 	                           final List<SpoolJobStatus> queue,
 	                           final boolean isShutdown) {
+		this(spoolName, currentOperationName, currentThreadId, currentThreadState, currentThreadName, queue, isShutdown,
+		        currentOperationName == null ? List.of()
+		                                     : List.of(new SpoolWorkerStatus(currentOperationName, currentThreadId,
+		                                             currentThreadState, currentThreadName)),
+		        1, Map.of());
+	}
+
+	public SpoolExecutorStatus(final String spoolName,
+	                           final String currentOperationName,
+	                           final long currentThreadId,
+	                           final State currentThreadState,
+	                           final String currentThreadName,
+	                           final List<SpoolJobStatus> queue,
+	                           final boolean isShutdown,
+	                           final List<SpoolWorkerStatus> currentOperations,
+	                           final int maxConcurrentJobs,
+	                           final Map<String, Long> runtimeEstimates) {
 		this.spoolName = spoolName;
 		this.currentOperationName = currentOperationName;
 		this.currentThreadId = currentThreadId;
@@ -29,12 +53,18 @@ public class SpoolExecutorStatus {
 		this.currentThreadName = currentThreadName;
 		this.queue = queue;
 		this.isShutdown = isShutdown;
+		this.currentOperations = currentOperations;
+		this.maxConcurrentJobs = maxConcurrentJobs;
+		this.runtimeEstimates = runtimeEstimates;
 	}
 
 	public String getSpoolName() {
 		return spoolName;
 	}
 
+	/**
+	 * @return the first running job, see getCurrentOperations for all running jobs.
+	 */
 	public String getCurrentOperationName() {
 		return currentOperationName;
 	}
@@ -59,4 +89,22 @@ public class SpoolExecutorStatus {
 		return isShutdown;
 	}
 
+	/**
+	 * @return all actual running jobs, one by busy slot.
+	 */
+	public List<SpoolWorkerStatus> getCurrentOperations() {
+		return currentOperations;
+	}
+
+	public int getMaxConcurrentJobs() {
+		return maxConcurrentJobs;
+	}
+
+	/**
+	 * @return the rolling runtime estimates, in ms, by command name.
+	 */
+	public Map<String, Long> getRuntimeEstimates() {
+		return runtimeEstimates;
+	}
+
 }
@@ -0,0 +1,38 @@
+package tv.hd3g.jobkit.engine.status;
+
+import java.lang.Thread.State;
+
+public class SpoolWorkerStatus {
+
+	private final String operationName;
+	private final long threadId;
+	private final State threadState;
+	private final String threadName;
+
+	public SpoolWorkerStatus(final String operationName,
+	                         final long threadId,
+	                         final State threadState,
+	                         final String threadName) {
+		this.operationName = operationName;
+		this.threadId = threadId;
+		this.threadState = threadState;
+		this.threadName = threadName;
+	}
+
+	public String getOperationName() {
+		return operationName;
+	}
+
+	public long getThreadId() {
+		return threadId;
+	}
+
+	public State getThreadState() {
+		return threadState;
+	}
+
+	public String getThreadName() {
+		return threadName;
+	}
+
+}
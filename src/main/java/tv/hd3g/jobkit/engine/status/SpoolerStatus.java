@@ -1,5 +1,7 @@
 package tv.hd3g.jobkit.engine.status;
 
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 public class SpoolerStatus {
@@ -7,13 +9,37 @@ public class SpoolerStatus {
 	private final Set<SpoolExecutorStatus> spoolExecutors;
 	private final long createdThreadsCount;
 	private final boolean shutdown;
+	private final int maxRunningJobs;
+	private final int runningJobs;
+	private final List<String> waitingSpools;
+	private final Map<String, Double> admissionShares;
+	private final long evictedExecutorsCount;
 
+	/**
+	 * Without running jobs limit, admission and eviction.
+	 */
 	public SpoolerStatus(final Set<SpoolExecutorStatus> spoolExecutors,
 	                     final long createdThreadsCount,
 	                     final boolean shutdown) {
+		this(spoolExecutors, createdThreadsCount, shutdown, Integer.MAX_VALUE, 0, List.of(), Map.of(), 0);
+	}
+
+	public SpoolerStatus(final Set<SpoolExecutorStatus> spoolExecutors,
+	                     final long createdThreadsCount,
+	                     final boolean shutdown,
+	                     final int maxRunningJobs,
+	                     final int runningJobs,
+	                     final List<String> waitingSpools,
+	                     final Map<String, Double> admissionShares,
+	                     final long evictedExecutorsCount) {
 		this.spoolExecutors = spoolExecutors;
 		this.createdThreadsCount = createdThreadsCount;
 		this.shutdown = shutdown;
+		this.maxRunningJobs = maxRunningJobs;
+		this.runningJobs = runningJobs;
+		this.waitingSpools = waitingSpools;
+		this.admissionShares = admissionShares;
+		this.evictedExecutorsCount = evictedExecutorsCount;
 	}
 
 	public Set<SpoolExecutorStatus> getSpoolExecutors() {
@@ -27,4 +53,41 @@ public class SpoolerStatus {
 	public boolean isShutdown() {
 		return shutdown;
 	}
+
+	/**
+	 * @return the max running jobs count for all the spools, Integer.MAX_VALUE for no limit.
+	 */
+	public int getMaxRunningJobs() {
+		return maxRunningJobs;
+	}
+
+	/**
+	 * @return the running jobs count for all the spools.
+	 */
+	public int getRunningJobs() {
+		return runningJobs;
+	}
+
+	/**
+	 * @return the spool names waiting a free slot to start a job, in admission order.
+	 */
+	public List<String> getWaitingSpools() {
+		return waitingSpools;
+	}
+
+	/**
+	 * @return by spool name, its part (from 0 to 1) of all the slots given to the waiting spools, when the max running
+	 *         jobs limit was reached.
+	 */
+	public Map<String, Double> getAdmissionShares() {
+		return admissionShares;
+	}
+
+	/**
+	 * @return the idle executors removed since the Spooler start.
+	 */
+	public long getEvictedExecutorsCount() {
+		return evictedExecutorsCount;
+	}
+
 }
@@ -37,10 +37,17 @@ import org.apache.logging.log4j.Logger;
 
 import tv.hd3g.commons.IORuntimeException;
 import tv.hd3g.jobkit.engine.BackgroundService;
+import tv.hd3g.jobkit.engine.BackoffJitter;
+import tv.hd3g.jobkit.engine.BackoffRetryDelayPolicy;
 import tv.hd3g.jobkit.engine.JobKitEngine;
 
 public class Watchfolders {
 	private static final Logger log = LogManager.getLogger();
+	/**
+	 * When a shared storage comes back, the services in error don't retry all together, and never wait more than this.
+	 */
+	static final Duration MAX_RETRY_DELAY = Duration.ofHours(1);
+	static final double RETRY_AFTER_TIME_FACTOR = 10;
 
 	private final List<? extends ObservedFolder> observedFolders;
 	private final FolderActivity eventActivity;
@@ -50,6 +57,7 @@ public class Watchfolders {
 	private final String spoolEvents;
 	private final Map<ObservedFolder, WatchedFilesDb> wfDBForFolder;
 	private final Map<ObservedFolder, BackgroundService> onErrorObservedFolders;
+	private final BackoffRetryDelayPolicy retryDelayPolicy;
 
 	private BackgroundService service;
 
@@ -67,6 +75,9 @@ public class Watchfolders {
 		this.spoolScans = Objects.requireNonNull(spoolScans);
 		this.spoolEvents = Objects.requireNonNull(spoolEvents);
 		onErrorObservedFolders = new ConcurrentHashMap<>();
+		retryDelayPolicy = new BackoffRetryDelayPolicy(RETRY_AFTER_TIME_FACTOR)
+		        .setMaxDelay(MAX_RETRY_DELAY)
+		        .setJitter(BackoffJitter.FULL);
 		Objects.requireNonNull(watchedFilesDbBuilder);
 
 		if (observedFolders.isEmpty()) {
@@ -142,7 +153,11 @@ public class Watchfolders {
 			retryInError(newInError);
 		});
 		service.setTimedInterval(timeBetweenScans);
-		service.setRetryAfterTimeFactor(10);
+		/**
+		 * The retry delays are computed by the policy: the service factor is only its copy, for the status.
+		 */
+		service.setRetryAfterTimeFactor(retryDelayPolicy.getFactor());
+		service.setRetryDelayPolicy(retryDelayPolicy);
 		service.setPriority(0);
 		jobKitEngine.runOneShot("Start watchfolder scans for " + getWFName(), spoolEvents, 0,
 		        () -> {
@@ -196,7 +211,8 @@ public class Watchfolders {
 		newInError.forEach(oF -> {
 			final var serviceRetry = retryInError(oF);
 			serviceRetry.setTimedInterval(timeBetweenScans);
-			serviceRetry.setRetryAfterTimeFactor(10);
+			serviceRetry.setRetryAfterTimeFactor(retryDelayPolicy.getFactor());
+			serviceRetry.setRetryDelayPolicy(retryDelayPolicy);
 			serviceRetry.setPriority(service.getPriority() - 1);
 			onErrorObservedFolders.put(oF, service);
 			serviceRetry.enable();
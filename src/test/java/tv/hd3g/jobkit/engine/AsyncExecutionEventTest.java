@@ -0,0 +1,231 @@
+package tv.hd3g.jobkit.engine;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+
+class AsyncExecutionEventTest {
+
+	@Mock
+	ExecutionEvent listener;
+	@Mock
+	SpoolExecutor spoolExecutor;
+
+	CountDownLatch listenerStarted;
+	CountDownLatch release;
+	AsyncExecutionEvent asyncEvent;
+
+	@BeforeEach
+	void init() throws Exception {
+		MockitoAnnotations.openMocks(this).close();
+		listenerStarted = new CountDownLatch(1);
+		release = new CountDownLatch(1);
+	}
+
+	@AfterEach
+	void close() {
+		release.countDown();
+		asyncEvent.close();
+	}
+
+	/**
+	 * The listener blocks on each beforeStart until release.
+	 */
+	private void blockListener() {
+		doAnswer(invocation -> {
+			listenerStarted.countDown();
+			return release.await(500, TimeUnit.MILLISECONDS);
+		}).when(listener).beforeStart(any(String.class), any(long.class), any(SpoolExecutor.class));
+	}
+
+	/**
+	 * The first event is blocked in the listener, the next events fill the buffer.
+	 */
+	private void publishWithBlockedListener(final int count) throws InterruptedException {
+		asyncEvent.beforeStart("0", 0, spoolExecutor);
+		assertTrue(listenerStarted.await(500, TimeUnit.MILLISECONDS));
+		for (var pos = 1; pos < count; pos++) {
+			asyncEvent.beforeStart(String.valueOf(pos), pos, spoolExecutor);
+		}
+	}
+
+	@Test
+	void testDispatch() {
+		asyncEvent = new AsyncExecutionEvent(listener);
+		assertEquals(AsyncExecutionEvent.DEFAULT_CAPACITY, asyncEvent.getCapacity());
+		assertEquals(EventOverflowPolicy.DROP_NEWEST, asyncEvent.getOverflowPolicy());
+		final var error = new Exception("error");
+		asyncEvent.beforeStart("A", 1, spoolExecutor);
+		asyncEvent.afterRunCorrectly("A", 2, 3, spoolExecutor);
+		asyncEvent.afterFailedRun("B", 4, 5, spoolExecutor, error);
+		asyncEvent.afterDroppedJob("C", 6, spoolExecutor, QueueFullPolicy.REJECT);
+		asyncEvent.afterCancelledJob("D", 7, spoolExecutor, true);
+		asyncEvent.afterCoalescedJob("E", 8, spoolExecutor, "key", DedupPolicy.MERGE);
+		asyncEvent.shutdownSpooler();
+
+		assertTrue(asyncEvent.waitForDispatch(Duration.ofMillis(500)));
+		assertEquals(0, asyncEvent.getPendingEventsCount());
+		verify(listener, times(1)).beforeStart("A", 1, spoolExecutor);
+		verify(listener, times(1)).afterRunCorrectly("A", 2, 3, spoolExecutor);
+		verify(listener, times(1)).afterFailedRun("B", 4, 5, spoolExecutor, error);
+		verify(listener, times(1)).afterDroppedJob("C", 6, spoolExecutor, QueueFullPolicy.REJECT);
+		verify(listener, times(1)).afterCancelledJob("D", 7, spoolExecutor, true);
+		verify(listener, times(1)).afterCoalescedJob("E", 8, spoolExecutor, "key", DedupPolicy.MERGE);
+		verify(listener, times(1)).shutdownSpooler();
+	}
+
+	@Test
+	void testDispatch_listenerError() {
+		asyncEvent = new AsyncExecutionEvent(listener);
+		doThrow(new IllegalStateException("listener")).when(listener).shutdownSpooler();
+		asyncEvent.shutdownSpooler();
+		asyncEvent.beforeStart("A", 1, spoolExecutor);
+		assertTrue(asyncEvent.waitForDispatch(Duration.ofMillis(500)));
+		verify(listener, times(1)).beforeStart("A", 1, spoolExecutor);
+	}
+
+	@Test
+	void testDropNewest() throws InterruptedException {
+		blockListener();
+		asyncEvent = new AsyncExecutionEvent(listener, 4, EventOverflowPolicy.DROP_NEWEST);
+		publishWithBlockedListener(10);
+		assertEquals(5, asyncEvent.getDroppedEventsCount());
+		assertEquals(5, asyncEvent.getPendingEventsCount());
+		release.countDown();
+		assertTrue(asyncEvent.waitForDispatch(Duration.ofMillis(500)));
+		verify(listener, times(1)).beforeStart(eq("4"), any(long.class), any(SpoolExecutor.class));
+		verify(listener, times(0)).beforeStart(eq("5"), any(long.class), any(SpoolExecutor.class));
+	}
+
+	@Test
+	void testDropOldest() throws InterruptedException {
+		blockListener();
+		asyncEvent = new AsyncExecutionEvent(listener, 4, EventOverflowPolicy.DROP_OLDEST);
+		publishWithBlockedListener(10);
+		assertEquals(5, asyncEvent.getDroppedEventsCount());
+		release.countDown();
+		assertTrue(asyncEvent.waitForDispatch(Duration.ofMillis(500)));
+		verify(listener, times(0)).beforeStart(eq("5"), any(long.class), any(SpoolExecutor.class));
+		verify(listener, times(1)).beforeStart(eq("6"), any(long.class), any(SpoolExecutor.class));
+		verify(listener, times(1)).beforeStart(eq("9"), any(long.class), any(SpoolExecutor.class));
+	}
+
+	@Test
+	void testBlock() throws InterruptedException {
+		blockListener();
+		asyncEvent = new AsyncExecutionEvent(listener, 2, EventOverflowPolicy.BLOCK);
+		final var published = new CountDownLatch(1);
+		new Thread(() -> {
+			for (var pos = 0; pos < 10; pos++) {
+				asyncEvent.beforeStart(String.valueOf(pos), pos, spoolExecutor);
+			}
+			published.countDown();
+		}).start();
+		assertFalse(published.await(50, TimeUnit.MILLISECONDS));
+		release.countDown();
+		assertTrue(published.await(500, TimeUnit.MILLISECONDS));
+		assertTrue(asyncEvent.waitForDispatch(Duration.ofMillis(500)));
+		assertEquals(0, asyncEvent.getDroppedEventsCount());
+		verify(listener, times(10)).beforeStart(any(String.class), any(long.class), any(SpoolExecutor.class));
+	}
+
+	@Test
+	void testCallerRuns() throws InterruptedException {
+		asyncEvent = new AsyncExecutionEvent(listener, 2, EventOverflowPolicy.CALLER_RUNS);
+		final var callerThread = Thread.currentThread();
+		final var runByCaller = new CountDownLatch(1);
+		doAnswer(invocation -> {
+			if (Thread.currentThread() == callerThread) {
+				runByCaller.countDown();
+			}
+			return null;
+		}).when(listener).afterRunCorrectly(any(String.class), any(long.class), any(long.class),
+		        any(SpoolExecutor.class));
+		blockListener();
+		publishWithBlockedListener(3);
+		asyncEvent.afterRunCorrectly("C", 3, 4, spoolExecutor);
+		assertEquals(0, runByCaller.getCount());
+		assertEquals(0, asyncEvent.getDroppedEventsCount());
+	}
+
+	@Test
+	void testClose_sendPendingBefore() throws InterruptedException {
+		final var dispatcher = new AtomicReference<Thread>();
+		asyncEvent = new AsyncExecutionEvent(listener, 8, EventOverflowPolicy.DROP_NEWEST, r -> {
+			dispatcher.set(new Thread(r));
+			return dispatcher.get();
+		});
+		asyncEvent.beforeStart("A", 1, spoolExecutor);
+		assertTrue(asyncEvent.waitForDispatch(Duration.ofMillis(500)));
+		Thread.sleep(20);// NOSONAR
+		/**
+		 * Idle, without timed wake up
+		 */
+		assertEquals(Thread.State.WAITING, dispatcher.get().getState());
+
+		blockListener();
+		publishWithBlockedListener(5);
+		new Thread(() -> {
+			try {
+				Thread.sleep(50);// NOSONAR
+			} catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			release.countDown();
+		}).start();
+		asyncEvent.close();
+		assertFalse(dispatcher.get().isAlive());
+		assertEquals(0, asyncEvent.getPendingEventsCount());
+
+		final var inOrder = Mockito.inOrder(listener);
+		for (var pos = 0; pos < 5; pos++) {
+			inOrder.verify(listener).beforeStart(String.valueOf(pos), pos, spoolExecutor);
+		}
+		asyncEvent.beforeStart("after", 5, spoolExecutor);
+		inOrder.verify(listener).beforeStart("after", 5, spoolExecutor);
+	}
+
+	@Test
+	void testClose() throws InterruptedException {
+		final var dispatcherThreads = new CountDownLatch(1);
+		asyncEvent = new AsyncExecutionEvent(listener, 8, EventOverflowPolicy.DROP_NEWEST, r -> {
+			dispatcherThreads.countDown();
+			return new Thread(r);
+		});
+		assertEquals(0, dispatcherThreads.getCount());
+		asyncEvent.beforeStart("A", 1, spoolExecutor);
+		asyncEvent.close();
+		assertTrue(asyncEvent.waitForDispatch(Duration.ofMillis(500)));
+		verify(listener, times(1)).beforeStart("A", 1, spoolExecutor);
+
+		/**
+		 * Sent directly after close
+		 */
+		final var callerThread = Thread.currentThread();
+		doAnswer(invocation -> {
+			assertEquals(callerThread, Thread.currentThread());
+			return null;
+		}).when(listener).shutdownSpooler();
+		asyncEvent.shutdownSpooler();
+		verify(listener, times(1)).shutdownSpooler();
+	}
+
+}
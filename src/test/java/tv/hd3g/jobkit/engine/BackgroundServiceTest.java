@@ -4,9 +4,11 @@ import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.never;
@@ -16,10 +18,14 @@ import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.time.Duration;
+import java.util.List;
 import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
 
 import org.junit.jupiter.api.BeforeEach;
@@ -70,6 +76,7 @@ class BackgroundServiceTest {
 		when(scheduledExecutor.schedule(any(Runnable.class), eq(timedInterval), eq(MILLISECONDS)))
 		        .then(invocation -> nextRunReference);
 		when(spooler.getExecutor(eq(spoolName))).thenReturn(spoolExecutor);
+		when(spoolExecutor.addToQueue(any(Runnable.class), eq(name), anyInt(), any())).thenReturn(true);
 		when(nextRunReference.isDone()).thenReturn(false);
 		when(nextRunReference.isCancelled()).thenReturn(false);
 	}
@@ -221,6 +228,292 @@ class BackgroundServiceTest {
 		        .schedule(scheduleCommandCaptor.capture(), eq(timedInterval), eq(MILLISECONDS));
 	}
 
+	@Test
+	void testStartup_errors_retryDelayPolicy() {
+		timedInterval = 1000;
+		final RetryDelayPolicy retryDelayPolicy = (interval, errorCount, previousDelay) -> previousDelay + errorCount;
+		backgroundService.setTimedInterval(timedInterval, MILLISECONDS).enable()
+		        .setRetryAfterTimeFactor(10)
+		        .setRetryDelayPolicy(retryDelayPolicy);
+		assertEquals(retryDelayPolicy, backgroundService.getRetryDelayPolicy());
+		verify(scheduledExecutor, only())
+		        .schedule(scheduleCommandCaptor.capture(), eq(timedInterval), eq(MILLISECONDS));
+
+		scheduleCommandCaptor.getValue().run();
+		verify(spoolExecutor, only())
+		        .addToQueue(any(Runnable.class), eq(name), eq(0), afterRunCommandCaptor.capture());
+		afterRunCommandCaptor.getValue().accept(new Exception());
+		verify(scheduledExecutor, times(1))
+		        .schedule(scheduleCommandCaptor.capture(), eq(timedInterval + 1), eq(MILLISECONDS));
+
+		scheduleCommandCaptor.getValue().run();
+		afterRunCommandCaptor.getValue().accept(new Exception());
+		verify(scheduledExecutor, times(1))
+		        .schedule(scheduleCommandCaptor.capture(), eq(timedInterval + 3), eq(MILLISECONDS));
+		assertEquals(2, backgroundService.getLastStatus().getSequentialErrorCount());
+
+		scheduleCommandCaptor.getValue().run();
+		afterRunCommandCaptor.getValue().accept(null);
+		verify(scheduledExecutor, times(2))
+		        .schedule(scheduleCommandCaptor.capture(), eq(timedInterval), eq(MILLISECONDS));
+		assertEquals(0, backgroundService.getLastStatus().getSequentialErrorCount());
+
+		backgroundService.setRetryDelayPolicy(null);
+		assertNull(backgroundService.getRetryDelayPolicy());
+	}
+
+	@Test
+	void testInitialDelay() {
+		timedInterval = 1000;
+		assertNull(backgroundService.getInitialDelay());
+		assertEquals(backgroundService, backgroundService.setInitialDelay(Duration.ofMillis(10)));
+		assertEquals(Duration.ofMillis(10), backgroundService.getInitialDelay());
+		assertThrows(IllegalArgumentException.class, () -> backgroundService.setInitialDelay(Duration.ofMillis(-1)));
+
+		when(scheduledExecutor.schedule(any(Runnable.class), anyLong(), eq(MILLISECONDS)))
+		        .then(invocation -> nextRunReference);
+		backgroundService.setTimedInterval(timedInterval, MILLISECONDS).enable();
+		verify(scheduledExecutor, times(1)).schedule(any(Runnable.class), eq(10L), eq(MILLISECONDS));
+
+		/**
+		 * Replan the pending run
+		 */
+		backgroundService.setInitialDelay(Duration.ofMillis(20));
+		verify(nextRunReference, times(1)).cancel(false);
+		verify(scheduledExecutor, times(1)).schedule(scheduleCommandCaptor.capture(), eq(20L), eq(MILLISECONDS));
+
+		scheduleCommandCaptor.getValue().run();
+		verify(spoolExecutor, only())
+		        .addToQueue(any(Runnable.class), eq(name), eq(0), afterRunCommandCaptor.capture());
+		when(nextRunReference.isDone()).thenReturn(true);
+		afterRunCommandCaptor.getValue().accept(null);
+		verify(scheduledExecutor, times(1)).schedule(any(Runnable.class), eq(timedInterval), eq(MILLISECONDS));
+	}
+
+	@Test
+	void testRandomInitialDelay() {
+		timedInterval = 1000;
+		assertFalse(backgroundService.isRandomInitialDelay());
+		backgroundService.setRandomInitialDelay(true).setTimedInterval(timedInterval, MILLISECONDS).enable();
+		assertTrue(backgroundService.isRandomInitialDelay());
+
+		final var delayCaptor = ArgumentCaptor.forClass(Long.class);
+		verify(scheduledExecutor, only()).schedule(any(Runnable.class), delayCaptor.capture(), eq(MILLISECONDS));
+		assertTrue(delayCaptor.getValue() >= 0 && delayCaptor.getValue() <= timedInterval);
+	}
+
+	@Test
+	void testIntervalJitter() {
+		timedInterval = 1000;
+		assertEquals(0d, backgroundService.getIntervalJitter());
+		assertThrows(IllegalArgumentException.class, () -> backgroundService.setIntervalJitter(-0.1d));
+		assertThrows(IllegalArgumentException.class, () -> backgroundService.setIntervalJitter(1d));
+		backgroundService.setIntervalJitter(0.1d).setTimedInterval(timedInterval, MILLISECONDS).enable();
+		assertEquals(0.1d, backgroundService.getIntervalJitter());
+
+		verify(scheduledExecutor, only())
+		        .schedule(scheduleCommandCaptor.capture(), eq(timedInterval), eq(MILLISECONDS));
+		scheduleCommandCaptor.getValue().run();
+		verify(spoolExecutor, only())
+		        .addToQueue(any(Runnable.class), eq(name), eq(0), afterRunCommandCaptor.capture());
+		when(nextRunReference.isDone()).thenReturn(true);
+		afterRunCommandCaptor.getValue().accept(null);
+
+		final var delayCaptor = ArgumentCaptor.forClass(Long.class);
+		verify(scheduledExecutor, times(2)).schedule(any(Runnable.class), delayCaptor.capture(), eq(MILLISECONDS));
+		final var nextDelay = delayCaptor.getAllValues().get(1);
+		assertTrue(nextDelay >= 900 && nextDelay <= 1100);
+	}
+
+	@Test
+	void testSpread() {
+		final var services = List.of(backgroundService,
+		        new BackgroundService(name + "2", spoolName, spooler, scheduledExecutor, event, task),
+		        new BackgroundService(name + "3", spoolName, spooler, scheduledExecutor, event, task));
+		services.forEach(s -> s.setTimedInterval(900, MILLISECONDS));
+
+		BackgroundService.spread(services);
+		services.forEach(BackgroundService::enable);
+		verify(scheduledExecutor, times(1)).schedule(any(Runnable.class), eq(300L), eq(MILLISECONDS));
+		verify(scheduledExecutor, times(1)).schedule(any(Runnable.class), eq(600L), eq(MILLISECONDS));
+		verify(scheduledExecutor, times(1)).schedule(any(Runnable.class), eq(900L), eq(MILLISECONDS));
+	}
+
+	@Test
+	void testFixedRate() {
+		timedInterval = 1000;
+		assertFalse(backgroundService.isFixedRate());
+		when(spoolExecutor.addToQueue(any(Runnable.class), eq(name), eq(0), any())).thenReturn(true);
+		backgroundService.setTimedInterval(timedInterval, MILLISECONDS)
+		        .setFixedRate(MisfirePolicy.COALESCE)
+		        .enable();
+		assertTrue(backgroundService.isFixedRate());
+		assertEquals(MisfirePolicy.COALESCE, backgroundService.getMisfirePolicy());
+
+		final var delayCaptor = ArgumentCaptor.forClass(Long.class);
+		verify(scheduledExecutor, only()).schedule(scheduleCommandCaptor.capture(), delayCaptor.capture(),
+		        eq(MILLISECONDS));
+		assertTrue(delayCaptor.getValue() > 0 && delayCaptor.getValue() <= timedInterval);
+
+		/**
+		 * The next run is planned before the run
+		 */
+		scheduleCommandCaptor.getValue().run();
+		verify(scheduledExecutor, times(2)).schedule(scheduleCommandCaptor.capture(), anyLong(), eq(MILLISECONDS));
+		verify(spoolExecutor, times(1))
+		        .addToQueue(commandCaptor.capture(), eq(name), eq(0), afterRunCommandCaptor.capture());
+		commandCaptor.getValue().run();
+		verify(task, times(1)).run();
+
+		/**
+		 * Still running
+		 */
+		scheduleCommandCaptor.getValue().run();
+		verify(scheduledExecutor, times(3)).schedule(any(Runnable.class), anyLong(), eq(MILLISECONDS));
+		verify(spoolExecutor, times(1)).addToQueue(any(Runnable.class), eq(name), eq(0), any());
+		assertEquals(1, backgroundService.getLastStatus().getMisfiredRuns());
+		assertTrue(backgroundService.getLastStatus().isFixedRate());
+
+		/**
+		 * Coalesced run, after the end
+		 */
+		afterRunCommandCaptor.getValue().accept(new Exception());
+		verify(spoolExecutor, times(2))
+		        .addToQueue(any(Runnable.class), eq(name), eq(0), afterRunCommandCaptor.capture());
+		afterRunCommandCaptor.getValue().accept(null);
+		verify(spoolExecutor, times(2)).addToQueue(any(Runnable.class), eq(name), eq(0), any());
+		verify(scheduledExecutor, times(3)).schedule(any(Runnable.class), anyLong(), eq(MILLISECONDS));
+		verify(event, times(1)).onPreviousRunWithError(eq(name), eq(spoolName), any(Exception.class));
+		assertEquals(0, backgroundService.getLastStatus().getSkippedRuns());
+	}
+
+	@Test
+	void testFixedRate_skip() {
+		timedInterval = 1000;
+		when(spoolExecutor.addToQueue(any(Runnable.class), eq(name), eq(0), any())).thenReturn(true);
+		backgroundService.setTimedInterval(timedInterval, MILLISECONDS)
+		        .setFixedRate(MisfirePolicy.SKIP)
+		        .enable();
+		verify(scheduledExecutor, only()).schedule(scheduleCommandCaptor.capture(), anyLong(), eq(MILLISECONDS));
+		scheduleCommandCaptor.getValue().run();
+		verify(scheduledExecutor, times(2)).schedule(scheduleCommandCaptor.capture(), anyLong(), eq(MILLISECONDS));
+		verify(spoolExecutor, times(1))
+		        .addToQueue(any(Runnable.class), eq(name), eq(0), afterRunCommandCaptor.capture());
+
+		scheduleCommandCaptor.getValue().run();
+		afterRunCommandCaptor.getValue().accept(null);
+		verify(spoolExecutor, times(1)).addToQueue(any(Runnable.class), eq(name), eq(0), any());
+		assertEquals(1, backgroundService.getLastStatus().getMisfiredRuns());
+		assertEquals(1, backgroundService.getLastStatus().getSkippedRuns());
+	}
+
+	@Test
+	void testSkipRun_stillInFlight() {
+		timedInterval = 1000;
+		when(spoolExecutor.addToQueue(any(Runnable.class), eq(name), eq(0), any())).thenReturn(true);
+		backgroundService.setTimedInterval(timedInterval, MILLISECONDS).enable();
+		verify(scheduledExecutor, only()).schedule(scheduleCommandCaptor.capture(), anyLong(), eq(MILLISECONDS));
+		scheduleCommandCaptor.getValue().run();
+		verify(spoolExecutor, times(1))
+		        .addToQueue(any(Runnable.class), eq(name), eq(0), afterRunCommandCaptor.capture());
+
+		/**
+		 * Replanned during the run
+		 */
+		backgroundService.disable().enable();
+		verify(scheduledExecutor, times(2)).schedule(scheduleCommandCaptor.capture(), anyLong(), eq(MILLISECONDS));
+		scheduleCommandCaptor.getValue().run();
+		verify(spoolExecutor, times(1)).addToQueue(any(Runnable.class), eq(name), eq(0), any());
+		verify(event, times(1)).skipNextBackgroundServiceTask(name, spoolName, 0);
+		assertEquals(1, backgroundService.getLastStatus().getSkippedRuns());
+		assertEquals(0, backgroundService.getLastStatus().getMisfiredRuns());
+
+		afterRunCommandCaptor.getValue().accept(null);
+		verify(scheduledExecutor, times(3)).schedule(scheduleCommandCaptor.capture(), anyLong(), eq(MILLISECONDS));
+		scheduleCommandCaptor.getValue().run();
+		verify(spoolExecutor, times(2)).addToQueue(any(Runnable.class), eq(name), eq(0), any());
+	}
+
+	@Test
+	void testStartup_refusedRun() {
+		timedInterval = 1000;
+		when(spoolExecutor.addToQueue(any(Runnable.class), eq(name), eq(0), any())).thenReturn(false);
+		backgroundService.setTimedInterval(timedInterval, MILLISECONDS).enable().setRetryAfterTimeFactor(10);
+		verify(scheduledExecutor, only())
+		        .schedule(scheduleCommandCaptor.capture(), eq(timedInterval), eq(MILLISECONDS));
+
+		scheduleCommandCaptor.getValue().run();
+		verify(spoolExecutor, times(1)).addToQueue(any(Runnable.class), eq(name), eq(0), any());
+		verify(event, times(1)).onPreviousRunWithError(eq(name), eq(spoolName), any(RejectedExecutionException.class));
+		verify(scheduledExecutor, times(1))
+		        .schedule(scheduleCommandCaptor.capture(), eq(timedInterval * 10), eq(MILLISECONDS));
+
+		when(spoolExecutor.addToQueue(any(Runnable.class), eq(name), eq(0), any())).thenReturn(true);
+		scheduleCommandCaptor.getValue().run();
+		verify(spoolExecutor, times(2))
+		        .addToQueue(any(Runnable.class), eq(name), eq(0), afterRunCommandCaptor.capture());
+		afterRunCommandCaptor.getValue().accept(null);
+		verify(scheduledExecutor, times(2)).schedule(any(Runnable.class), eq(timedInterval), eq(MILLISECONDS));
+	}
+
+	@Test
+	void testRunNow() {
+		assertThrows(IllegalStateException.class, () -> backgroundService.runNow());
+		when(spoolExecutor.addToQueue(any(Runnable.class), eq(name), eq(0), any())).thenReturn(true);
+		backgroundService.setTimedInterval(timedInterval, MILLISECONDS).enable();
+		verify(scheduledExecutor, only()).schedule(any(Runnable.class), eq(timedInterval), eq(MILLISECONDS));
+
+		assertTrue(backgroundService.runNow());
+		verify(nextRunReference, times(1)).cancel(false);
+		verify(spoolExecutor, times(1))
+		        .addToQueue(commandCaptor.capture(), eq(name), eq(0), afterRunCommandCaptor.capture());
+		assertEquals(task, commandCaptor.getValue());
+
+		/**
+		 * Coalesced with the actual run
+		 */
+		assertFalse(backgroundService.runNow());
+		assertFalse(backgroundService.runNow());
+		verify(spoolExecutor, times(1)).addToQueue(any(Runnable.class), eq(name), eq(0), any());
+
+		afterRunCommandCaptor.getValue().accept(null);
+		verify(scheduledExecutor, times(1)).schedule(scheduleCommandCaptor.capture(), eq(0L), eq(MILLISECONDS));
+		scheduleCommandCaptor.getValue().run();
+		verify(spoolExecutor, times(2))
+		        .addToQueue(any(Runnable.class), eq(name), eq(0), afterRunCommandCaptor.capture());
+
+		/**
+		 * Back to the normal schedule
+		 */
+		afterRunCommandCaptor.getValue().accept(null);
+		verify(scheduledExecutor, times(2)).schedule(any(Runnable.class), eq(timedInterval), eq(MILLISECONDS));
+	}
+
+	@Test
+	void testRunNow_duringRunEnd() {
+		backgroundService.setTimedInterval(timedInterval, MILLISECONDS).enable();
+		verify(scheduledExecutor, only())
+		        .schedule(scheduleCommandCaptor.capture(), eq(timedInterval), eq(MILLISECONDS));
+		scheduleCommandCaptor.getValue().run();
+		verify(spoolExecutor, times(1))
+		        .addToQueue(any(Runnable.class), eq(name), eq(0), afterRunCommandCaptor.capture());
+		final var afterRunCommand = afterRunCommandCaptor.getValue();
+
+		/**
+		 * A runNow() from another thread, during the end of the run
+		 */
+		final var runNowResult = new AtomicReference<Boolean>();
+		Mockito.doAnswer(invocation -> {
+			runNowResult.set(CompletableFuture.supplyAsync(backgroundService::runNow).get(500, MILLISECONDS));
+			return null;
+		}).when(event).onPreviousRunWithError(eq(name), eq(spoolName), any(Exception.class));
+		afterRunCommand.accept(new Exception("Run error"));
+
+		assertFalse(runNowResult.get());
+		verify(scheduledExecutor, times(1)).schedule(any(Runnable.class), eq(0L), eq(MILLISECONDS));
+		assertTrue(backgroundService.isEnabled());
+	}
+
 	@Test
 	void testStartup_disable() {
 		backgroundService.setTimedInterval(timedInterval, MILLISECONDS).enable();
@@ -0,0 +1,102 @@
+package tv.hd3g.jobkit.engine;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Random;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class BackoffRetryDelayPolicyTest {
+
+	static final long INTERVAL = 10_000;
+	static final long MAX_DELAY = 600_000;
+
+	BackoffRetryDelayPolicy policy;
+
+	@BeforeEach
+	void init() {
+		final var random = new Random(0);
+		policy = new BackoffRetryDelayPolicy(10, () -> random)
+		        .setMaxDelay(Duration.ofMillis(MAX_DELAY));
+	}
+
+	@Test
+	void testInvalid() {
+		assertThrows(IllegalArgumentException.class, () -> new BackoffRetryDelayPolicy(0));
+		assertThrows(IllegalArgumentException.class, () -> policy.setMaxDelay(Duration.ZERO));
+		assertThrows(NullPointerException.class, () -> policy.setJitter(null));
+	}
+
+	@Test
+	void testNoJitter() {
+		assertEquals(BackoffJitter.NONE, policy.getJitter());
+		assertEquals(10d, policy.getFactor());
+		assertEquals(Duration.ofMillis(MAX_DELAY), policy.getMaxDelay());
+		assertEquals(100_000, policy.getRetryDelay(INTERVAL, 1, INTERVAL));
+		assertEquals(MAX_DELAY, policy.getRetryDelay(INTERVAL, 2, 100_000));
+		assertEquals(MAX_DELAY, policy.getRetryDelay(INTERVAL, 100, MAX_DELAY));
+		/**
+		 * Never less than the interval
+		 */
+		assertEquals(INTERVAL * 100, policy.getRetryDelay(INTERVAL * 100, 3, INTERVAL * 100));
+	}
+
+	@Test
+	void testJitter() {
+		for (final var jitter : BackoffJitter.values()) {
+			policy.setJitter(jitter);
+			var previousDelay = INTERVAL;
+			for (var errorCount = 1; errorCount < 20; errorCount++) {
+				final var delay = policy.getRetryDelay(INTERVAL, errorCount, previousDelay);
+				assertTrue(delay >= INTERVAL && delay <= MAX_DELAY, jitter + ": " + delay);
+				previousDelay = delay;
+			}
+		}
+	}
+
+	@Test
+	void testGradualReset() {
+		assertFalse(policy.isGradualReset());
+		assertEquals(0, policy.getErrorCountAfterSuccess(5));
+		policy.setGradualReset(true);
+		assertTrue(policy.isGradualReset());
+		assertEquals(2, policy.getErrorCountAfterSuccess(5));
+		assertEquals(0, policy.getErrorCountAfterSuccess(1));
+	}
+
+	/**
+	 * 1000 services with the same interval lose their shared storage at the same moment, for 30 min.
+	 * @return the max retries count in the same second, during and just after the outage.
+	 */
+	private int simulateOutage(final BackoffJitter jitter) {
+		policy.setJitter(jitter);
+		final var outageEnd = Duration.ofMinutes(30).toMillis();
+		final var retriesBySecond = new HashMap<Long, Integer>();
+		for (var service = 0; service < 1000; service++) {
+			var now = 0L;
+			var errorCount = 0;
+			var previousDelay = INTERVAL;
+			while (now < outageEnd) {
+				errorCount++;
+				previousDelay = policy.getRetryDelay(INTERVAL, errorCount, previousDelay);
+				now += previousDelay;
+				retriesBySecond.merge(now / 1000, 1, Integer::sum);
+			}
+		}
+		return retriesBySecond.values().stream().mapToInt(Integer::intValue).max().orElse(0);
+	}
+
+	@Test
+	void testSimulateOutage() {
+		assertEquals(1000, simulateOutage(BackoffJitter.NONE));
+		assertTrue(simulateOutage(BackoffJitter.FULL) < 50);
+		assertTrue(simulateOutage(BackoffJitter.DECORRELATED) < 50);
+	}
+
+}
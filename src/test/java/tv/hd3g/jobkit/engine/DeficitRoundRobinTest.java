@@ -0,0 +1,68 @@
+package tv.hd3g.jobkit.engine;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class DeficitRoundRobinTest {
+
+	Map<String, Double> weights;
+	DeficitRoundRobin<String> drr;
+
+	@BeforeEach
+	void init() {
+		weights = Map.of("A", 3d, "B", 1d, "C", 0.5d);
+		drr = new DeficitRoundRobin<>(weights::get);
+	}
+
+	private List<String> next(final int count) {
+		return IntStream.range(0, count)
+		        .mapToObj(i -> drr.next())
+		        .collect(Collectors.toUnmodifiableList());
+	}
+
+	@Test
+	void testEmpty() {
+		assertTrue(drr.isEmpty());
+		assertNull(drr.next());
+	}
+
+	@Test
+	void testNext() {
+		drr.activate("A");
+		drr.activate("B");
+		drr.activate("C");
+		drr.activate("A");
+		assertEquals(List.of("A", "B", "C"), drr.stream().collect(Collectors.toUnmodifiableList()));
+
+		assertEquals(List.of("A", "A", "A", "B", "A", "A", "A", "B", "C"), next(9));
+		assertTrue(drr.isActive("C"));
+	}
+
+	@Test
+	void testDeactivate() {
+		drr.activate("A");
+		drr.activate("B");
+		assertEquals("A", drr.next());
+
+		drr.deactivate("A");
+		assertFalse(drr.isActive("A"));
+		assertEquals(List.of("B", "B"), next(2));
+
+		/**
+		 * Back at the end of the round, without its old credit
+		 */
+		drr.activate("A");
+		assertEquals(List.of("A", "A", "A", "B", "A"), next(5));
+	}
+
+}
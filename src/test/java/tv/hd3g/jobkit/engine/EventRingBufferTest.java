@@ -0,0 +1,99 @@
+package tv.hd3g.jobkit.engine;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+class EventRingBufferTest {
+
+	@Test
+	void testCapacity() {
+		assertEquals(2, new EventRingBuffer<>(1).capacity());
+		assertEquals(8, new EventRingBuffer<>(5).capacity());
+		assertEquals(8, new EventRingBuffer<>(8).capacity());
+		assertThrows(IllegalArgumentException.class, () -> new EventRingBuffer<>(0));
+	}
+
+	@Test
+	void testTwoSlots() {
+		final var buffer = new EventRingBuffer<Integer>(1);
+		assertTrue(buffer.offer(0));
+		assertTrue(buffer.offer(1));
+		assertFalse(buffer.offer(2));
+		assertEquals(0, buffer.poll());
+		assertTrue(buffer.offer(2));
+		assertFalse(buffer.offer(3));
+		assertEquals(1, buffer.poll());
+		assertEquals(2, buffer.poll());
+		assertNull(buffer.poll());
+	}
+
+	@Test
+	void testOfferPoll() {
+		final var buffer = new EventRingBuffer<Integer>(4);
+		assertTrue(buffer.isEmpty());
+		assertNull(buffer.poll());
+		for (var round = 0; round < 3; round++) {
+			for (var pos = 0; pos < 4; pos++) {
+				assertTrue(buffer.offer(pos));
+			}
+			assertFalse(buffer.offer(4));
+			assertEquals(4, buffer.size());
+			for (var pos = 0; pos < 4; pos++) {
+				assertEquals(pos, buffer.poll());
+			}
+			assertNull(buffer.poll());
+			assertTrue(buffer.isEmpty());
+		}
+	}
+
+	@Test
+	void testConcurrent() throws InterruptedException {
+		final var buffer = new EventRingBuffer<Integer>(16);
+		final var producers = 4;
+		final var count = 10000;
+		final var polled = ConcurrentHashMap.<Integer> newKeySet();
+		final var polledCount = new AtomicInteger(0);
+		final var ends = new CountDownLatch(producers + 2);
+
+		for (var p = 0; p < producers; p++) {
+			final var producer = p;
+			new Thread(() -> {
+				for (var pos = 0; pos < count; pos++) {
+					while (buffer.offer(producer * count + pos) == false) {
+						Thread.yield();
+					}
+				}
+				ends.countDown();
+			}).start();
+		}
+		for (var c = 0; c < 2; c++) {
+			new Thread(() -> {
+				while (polledCount.get() < producers * count) {
+					final var item = buffer.poll();
+					if (item != null) {
+						polled.add(item);
+						polledCount.incrementAndGet();
+					} else {
+						Thread.yield();
+					}
+				}
+				ends.countDown();
+			}).start();
+		}
+
+		assertTrue(ends.await(10, SECONDS));
+		assertEquals(producers * count, polled.size());
+		assertTrue(buffer.isEmpty());
+	}
+
+}
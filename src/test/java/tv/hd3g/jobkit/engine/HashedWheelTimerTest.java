@@ -0,0 +1,176 @@
+package tv.hd3g.jobkit.engine;
+
+import static java.util.concurrent.TimeUnit.HOURS;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class HashedWheelTimerTest {
+
+	HashedWheelTimer timer;
+	ConcurrentLinkedQueue<Runnable> unprocessed;
+	AtomicReference<Thread> worker;
+
+	@BeforeEach
+	void init() {
+		unprocessed = new ConcurrentLinkedQueue<>();
+		worker = new AtomicReference<>();
+		/**
+		 * A small wheel, to test the rounds.
+		 */
+		timer = new HashedWheelTimer(r -> {
+			final var t = new Thread(r);
+			worker.set(t);
+			return t;
+		}, Duration.ofMillis(1), 4, unprocessed::add);
+	}
+
+	@AfterEach
+	void end() {
+		timer.stop();
+	}
+
+	@Test
+	void testInvalid() {
+		assertThrows(IllegalArgumentException.class,
+		        () -> new HashedWheelTimer(Thread::new, Duration.ZERO, 4, unprocessed::add));
+		assertThrows(IllegalArgumentException.class,
+		        () -> new HashedWheelTimer(Thread::new, Duration.ofMillis(1), 0, unprocessed::add));
+	}
+
+	@Test
+	void testSchedule() throws InterruptedException {
+		final var fired = new ConcurrentLinkedQueue<Integer>();
+		final var ends = new CountDownLatch(4);
+		final var start = System.nanoTime();
+		for (final var delay : List.of(30, 2, 15, 0)) {
+			timer.schedule(() -> {
+				assertTrue(System.nanoTime() - start >= MILLISECONDS.toNanos(delay));
+				fired.add(delay);
+				ends.countDown();
+			}, delay, MILLISECONDS);
+		}
+		assertTrue(ends.await(500, MILLISECONDS));
+		assertEquals(List.of(0, 2, 15, 30), List.copyOf(fired));
+		assertEquals(0, timer.getPendingCount());
+	}
+
+	@Test
+	void testCancel() throws InterruptedException {
+		final var fired = new AtomicInteger(0);
+		final var timeout = timer.schedule(fired::incrementAndGet, 20, MILLISECONDS);
+		assertEquals(1, timer.getPendingCount());
+		assertTrue(timeout.cancel());
+		assertTrue(timeout.isCancelled());
+		assertFalse(timeout.cancel());
+
+		final var ends = new CountDownLatch(1);
+		final var last = timer.schedule(ends::countDown, 40, MILLISECONDS);
+		assertTrue(ends.await(500, MILLISECONDS));
+		assertEquals(0, fired.get());
+		assertTrue(last.isExpired());
+		assertFalse(last.cancel());
+	}
+
+	@Test
+	void testTaskError() throws InterruptedException {
+		timer.schedule(() -> {
+			throw new IllegalStateException("Test");
+		}, 0, MILLISECONDS);
+		final var ends = new CountDownLatch(1);
+		timer.schedule(ends::countDown, 5, MILLISECONDS);
+		assertTrue(ends.await(500, MILLISECONDS));
+	}
+
+	@Test
+	void testStop() {
+		final Runnable pending = () -> {
+		};
+		timer.schedule(pending, 1, HOURS);
+		timer.schedule(() -> {
+		}, 1, HOURS).cancel();
+		assertEquals(List.of(pending), timer.stop());
+		assertEquals(List.of(pending), List.copyOf(unprocessed));
+		assertEquals(List.of(), timer.stop());
+		assertThrows(IllegalStateException.class, () -> timer.schedule(pending, 0, MILLISECONDS));
+	}
+
+	@Test
+	void testRequestStop() throws InterruptedException {
+		final Runnable pending = () -> {
+		};
+		timer.schedule(pending, 1, HOURS);
+		assertTrue(timer.requestStop());
+		assertFalse(timer.requestStop());
+		assertTrue(timer.awaitTermination(500, MILLISECONDS));
+		assertEquals(List.of(pending), List.copyOf(unprocessed));
+		assertEquals(List.of(), timer.stop());
+	}
+
+	@Test
+	void testStop_onWheelThread() throws InterruptedException {
+		final Runnable pending = () -> {
+		};
+		timer.schedule(pending, 1, HOURS);
+		final var stopped = new AtomicReference<List<Runnable>>();
+		timer.schedule(() -> stopped.set(timer.stop()), 0, MILLISECONDS);
+		assertTrue(timer.awaitTermination(500, MILLISECONDS));
+		assertEquals(List.of(), stopped.get());
+		assertEquals(List.of(pending), List.copyOf(unprocessed));
+	}
+
+	@Test
+	void testIdle() throws InterruptedException {
+		final var ends = new CountDownLatch(1);
+		timer.schedule(ends::countDown, 0, MILLISECONDS);
+		assertTrue(ends.await(500, MILLISECONDS));
+
+		final var endOfWait = System.nanoTime() + MILLISECONDS.toNanos(500);
+		while (worker.get().getState() != Thread.State.WAITING && System.nanoTime() < endOfWait) {
+			Thread.sleep(1);
+		}
+		assertEquals(Thread.State.WAITING, worker.get().getState());
+
+		final var start = System.nanoTime();
+		final var nextEnds = new CountDownLatch(1);
+		timer.schedule(() -> {
+			assertTrue(System.nanoTime() - start >= MILLISECONDS.toNanos(10));
+			nextEnds.countDown();
+		}, 10, MILLISECONDS);
+		assertTrue(nextEnds.await(500, MILLISECONDS));
+	}
+
+	@Test
+	void testStopWhenEmpty() throws InterruptedException {
+		final var ends = new CountDownLatch(1);
+		timer.schedule(ends::countDown, 20, MILLISECONDS);
+		timer.stopWhenEmpty();
+		assertTrue(timer.awaitTermination(500, MILLISECONDS));
+		assertEquals(0, ends.getCount());
+		assertTrue(unprocessed.isEmpty());
+		assertThrows(IllegalStateException.class, () -> timer.schedule(() -> {
+		}, 0, MILLISECONDS));
+	}
+
+	@Test
+	void testStopWhenEmpty_notStarted() {
+		timer.stopWhenEmpty();
+		assertTrue(timer.isTerminated());
+		assertThrows(IllegalStateException.class, () -> timer.schedule(() -> {
+		}, 0, MILLISECONDS));
+	}
+
+}
@@ -0,0 +1,112 @@
+package tv.hd3g.jobkit.engine;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class IndexedPriorityQueueTest {
+
+	static Random random = new Random();
+
+	static class Item implements SpoolQueue.Entry {
+		final int value;
+		int index = -1;
+
+		Item(final int value) {
+			this.value = value;
+		}
+
+		@Override
+		public int getQueueIndex() {
+			return index;
+		}
+
+		@Override
+		public void setQueueIndex(final int index) {
+			this.index = index;
+		}
+	}
+
+	IndexedPriorityQueue<Item> queue;
+
+	@BeforeEach
+	void init() {
+		queue = new IndexedPriorityQueue<>(Comparator.comparingInt(i -> i.value));
+	}
+
+	@Test
+	void testOfferPoll() {
+		assertTrue(queue.isEmpty());
+		assertNull(queue.poll());
+		assertNull(queue.peek());
+
+		final var items = IntStream.range(0, 100)
+		        .mapToObj(i -> new Item(random.nextInt(20)))
+		        .collect(Collectors.toUnmodifiableList());
+		items.forEach(queue::offer);
+		assertEquals(100, queue.size());
+		assertEquals(100, queue.stream().count());
+
+		final var polled = new ArrayList<Integer>();
+		Item item;
+		while ((item = queue.poll()) != null) {
+			assertEquals(-1, item.index);
+			polled.add(item.value);
+		}
+		assertEquals(items.stream().map(i -> i.value).sorted().collect(Collectors.toUnmodifiableList()), polled);
+		assertTrue(queue.isEmpty());
+	}
+
+	@Test
+	void testRemove() {
+		final var items = IntStream.range(0, 100)
+		        .mapToObj(i -> new Item(random.nextInt(20)))
+		        .collect(Collectors.toUnmodifiableList());
+		items.forEach(queue::offer);
+
+		final var removed = items.stream()
+		        .filter(i -> random.nextBoolean())
+		        .collect(Collectors.toUnmodifiableList());
+		removed.forEach(i -> assertTrue(queue.remove(i)));
+		removed.forEach(i -> assertFalse(queue.remove(i)));
+		assertFalse(queue.remove(new Item(0)));
+		assertEquals(items.size() - removed.size(), queue.size());
+
+		final var expected = items.stream()
+		        .filter(i -> removed.contains(i) == false)
+		        .map(i -> i.value)
+		        .sorted()
+		        .collect(Collectors.toUnmodifiableList());
+		final var polled = new ArrayList<Integer>();
+		while (queue.isEmpty() == false) {
+			polled.add(queue.poll().value);
+		}
+		assertEquals(expected, polled);
+	}
+
+	@Test
+	void testClear() {
+		final var item = new Item(1);
+		queue.offer(item);
+		queue.offer(new Item(0));
+		queue.clear();
+		assertTrue(queue.isEmpty());
+		assertEquals(-1, item.index);
+		assertFalse(queue.remove(item));
+
+		queue.offer(item);
+		assertSame(item, queue.peek());
+	}
+
+}
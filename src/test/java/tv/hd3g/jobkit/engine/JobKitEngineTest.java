@@ -3,19 +3,27 @@ package tv.hd3g.jobkit.engine;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.timeout;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
 import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
 import java.util.Random;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.AfterEach;
@@ -76,6 +84,142 @@ class JobKitEngineTest {
 		verify(afterRunCommand, times(1)).accept(isNull());
 	}
 
+	@Test
+	void testRunOneShot_dedupKey() throws InterruptedException {
+		final var release = new CountDownLatch(1);
+		jobKitEngine.runOneShot("blocking", spoolName, 0, () -> {
+			try {
+				release.await(500, TimeUnit.MILLISECONDS);
+			} catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}, e -> {
+		});
+		while (spooler.getExecutor(spoolName).isRunning() == false) {
+			Thread.onSpinWait();
+		}
+
+		assertTrue(jobKitEngine.runOneShot(name, spoolName, 0, "key", task, afterRunCommand));
+		assertTrue(jobKitEngine.runOneShot(name, spoolName, 0, "key", task, afterRunCommand));
+		assertEquals(1, spooler.getExecutor(spoolName).getQueueSize());
+		release.countDown();
+
+		verify(afterRunCommand, timeout(500).times(2)).accept(isNull());
+		verify(task, times(1)).run();
+	}
+
+	@Test
+	void testCreateBatcher() throws Exception {
+		final var processed = new AtomicInteger(0);
+		final var batcher = jobKitEngine.<String> createBatcher(name, spoolName, (key, items) -> {
+			processed.addAndGet(items.size());
+			return null;
+		});
+		final BatchHandler<Integer> otherHandler = (key, items) -> null;
+		assertThrows(IllegalArgumentException.class, () -> jobKitEngine.createBatcher(name, spoolName, otherHandler));
+		batcher.setMaxBatchDelay(Duration.ofSeconds(10));
+		batcher.submit("key", "A");
+		final var handle = batcher.submit("key", "B");
+
+		assertTrue(jobKitEngine.waitToClose(Duration.ofMillis(500), true));
+		assertTrue(handle.isDone());
+		assertEquals(2, processed.get());
+	}
+
+	@Test
+	void testRunOneShotAfter() throws Exception {
+		final var startTime = System.currentTimeMillis();
+		jobKitEngine.runOneShotAfter(Duration.ofMillis(30), name, spoolName, 0, task, afterRunCommand)
+		        .get(500, TimeUnit.MILLISECONDS);
+		assertTrue(System.currentTimeMillis() - startTime >= 30);
+		verify(task, times(1)).run();
+		verify(afterRunCommand, times(1)).accept(isNull());
+	}
+
+	@Test
+	void testRunOneShotAt_cancel() throws Exception {
+		final var handle = jobKitEngine.runOneShotAt(Instant.now().plusMillis(30), name, spoolName, 0, task,
+		        afterRunCommand);
+		assertTrue(handle.cancel(false));
+		Thread.sleep(60);// NOSONAR
+		verify(task, times(0)).run();
+		assertTrue(handle.isCancelled());
+	}
+
+	@Test
+	void testRunOneShotAfter_shutdown() {
+		final var handle = jobKitEngine.runOneShotAfter(Duration.ofHours(1), name, spoolName, 0, task,
+		        afterRunCommand);
+		jobKitEngine.shutdown();
+		/**
+		 * Rejected by the timer thread
+		 */
+		assertThrows(ExecutionException.class, () -> handle.get(500, TimeUnit.MILLISECONDS));
+		assertTrue(handle.isCompletedExceptionally());
+		assertTrue(jobKitEngine.runOneShotAfter(Duration.ZERO, name, spoolName, 0, task, afterRunCommand)
+		        .isCompletedExceptionally());
+		verify(task, times(0)).run();
+	}
+
+	@Test
+	void testShutdown_fromTimerThread() throws Exception {
+		jobKitEngine = new JobKitEngine(Duration.ofMillis(1), executionEvent, backgroundServiceEvent);
+		final var internalExecutor = jobKitEngine.getScheduledExecutor();
+		final var handle = jobKitEngine.runOneShotAfter(Duration.ofHours(1), name, spoolName, 0, task,
+		        afterRunCommand);
+
+		internalExecutor.schedule(jobKitEngine::shutdown, 1, TimeUnit.MILLISECONDS).get(500, TimeUnit.MILLISECONDS);
+
+		assertThrows(ExecutionException.class, () -> handle.get(500, TimeUnit.MILLISECONDS));
+		assertTrue(internalExecutor.awaitTermination(500, TimeUnit.MILLISECONDS));
+		verify(task, times(0)).run();
+	}
+
+	@Test
+	void testSubmitOneShot() throws Exception {
+		final var handle = jobKitEngine.submitOneShot(name, spoolName, 0, task, afterRunCommand);
+		handle.get(500, TimeUnit.MILLISECONDS);
+
+		verify(task, times(1)).run();
+		verify(afterRunCommand, times(1)).accept(isNull());
+		assertFalse(handle.cancel(true));
+	}
+
+	@Test
+	void testSubmitOneShotCallable_pipeline() throws Exception {
+		final var result = jobKitEngine.submitOneShot("scan", spoolName, 0, () -> List.of("A", "BB", "CCC"))
+		        .thenCompose(files -> jobKitEngine.submitOneShot("checksum", spoolName + "2", 0,
+		                () -> files.stream().mapToInt(String::length).sum()))
+		        .get(500, TimeUnit.MILLISECONDS);
+		assertEquals(6, result);
+	}
+
+	@Test
+	void testRunOneShotJobs() throws InterruptedException {
+		final var latch = new CountDownLatch(4);
+		final var jobs = IntStream.range(0, 4).mapToObj(i -> new Job() {
+
+			@Override
+			public void run() {
+				latch.countDown();
+			}
+
+			@Override
+			public String getJobName() {
+				return name;
+			}
+
+			@Override
+			public String getJobSpoolname() {
+				return spoolName + i % 2;
+			}
+		}).collect(Collectors.toUnmodifiableList());
+
+		assertTrue(jobKitEngine.runOneShot(jobs));
+		assertTrue(latch.await(500, TimeUnit.MILLISECONDS));
+		assertEquals(2, spooler.getLastStatus().getSpoolExecutors().size());
+	}
+
 	@Test
 	void testCreateService() {
 		final var s = jobKitEngine.createService(name, spoolName, task);
@@ -103,6 +247,23 @@ class JobKitEngineTest {
 		}).get(1, TimeUnit.SECONDS);
 	}
 
+	@Test
+	void testTimingWheelScheduledExecutor() throws Exception {
+		jobKitEngine = new JobKitEngine(Duration.ofMillis(1), executionEvent, backgroundServiceEvent);
+		final var internalExecutor = jobKitEngine.getScheduledExecutor();
+		assertTrue(internalExecutor instanceof TimingWheelScheduledExecutor);
+
+		final var runs = new CountDownLatch(3);
+		final var s = jobKitEngine.startService(name, spoolName, Duration.ofMillis(5), runs::countDown);
+		assertTrue(runs.await(500, TimeUnit.MILLISECONDS));
+		assertTrue(s.isEnabled());
+
+		jobKitEngine.shutdown();
+		assertFalse(s.isEnabled());
+		assertTrue(internalExecutor.isShutdown());
+		assertTrue(internalExecutor.awaitTermination(500, TimeUnit.MILLISECONDS));
+	}
+
 	@Test
 	void testStartServiceStringStringDurationRunnable() throws Exception {
 		final var i = new AtomicInteger();
@@ -144,6 +305,28 @@ class JobKitEngineTest {
 		        .noneMatch(BackgroundServiceStatus::isEnabled));
 	}
 
+	@Test
+	void testWaitToClose_timeout() throws InterruptedException {
+		final var latch = new CountDownLatch(1);
+		jobKitEngine.startService(name, spoolName, 1, TimeUnit.DAYS, task);
+		jobKitEngine.runOneShot(name, spoolName, 0, () -> {
+			try {
+				latch.await(500, TimeUnit.MILLISECONDS);
+			} catch (final InterruptedException e) {
+				throw new IllegalStateException(e);
+			}
+		}, afterRunCommand);
+
+		assertFalse(jobKitEngine.waitToClose(Duration.ofMillis(10)));
+		assertTrue(jobKitEngine.getLastStatus().getSpoolerStatus().isShutdown());
+		assertTrue(jobKitEngine.getLastStatus().getBackgroundServicesStatus().stream()
+		        .noneMatch(BackgroundServiceStatus::isEnabled));
+
+		latch.countDown();
+		assertTrue(jobKitEngine.waitToClose(Duration.ofMillis(500)));
+		verify(afterRunCommand, times(1)).accept(isNull());
+	}
+
 	@Test
 	void testGetLastStatus() {
 		final var status = jobKitEngine.getLastStatus();
@@ -1,7 +1,9 @@
 package tv.hd3g.jobkit.engine;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.never;
@@ -9,6 +11,9 @@ import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
 import java.util.Random;
 import java.util.function.Consumer;
 
@@ -35,7 +40,7 @@ class JobTraitTest {
 
 	class Trait implements JobTrait {
 
-		int triggerCount = 0;
+		volatile int triggerCount = 0;
 		String name;
 		String spoolName;
 		int priority;
@@ -112,4 +117,72 @@ class JobTraitTest {
 		verify(job, times(1)).onJobFail(eq(exception));
 	}
 
+	@Test
+	void testSubmitOneShot() {
+		final var handle = trait.submitOneShot(name, spoolName, priority, task, afterRunCommand);
+		assertEquals(1, trait.triggerCount);
+		assertFalse(handle.isDone());
+
+		trait.afterRunCommand.accept(null);
+		verify(afterRunCommand, times(1)).accept(null);
+		assertTrue(handle.isDone());
+		assertFalse(handle.isCompletedExceptionally());
+	}
+
+	@Test
+	void testSubmitOneShot_error() {
+		final var handle = trait.submitOneShot(job);
+		final var exception = new IllegalStateException("This is a test error");
+		trait.afterRunCommand.accept(exception);
+		verify(job, times(1)).onJobFail(eq(exception));
+		assertTrue(handle.isCompletedExceptionally());
+	}
+
+	@Test
+	void testSubmitOneShotCallable() throws Exception {
+		final var handle = trait.submitOneShot(name, spoolName, priority, () -> name);
+		assertFalse(handle.isDone());
+		trait.task.run();
+		trait.afterRunCommand.accept(null);
+		assertEquals(name, handle.get());
+	}
+
+	@Test
+	void testRunOneShotJobs() {
+		assertTrue(trait.runOneShot(List.of(job, job)));
+		assertEquals(2, trait.triggerCount);
+		assertEquals(name, trait.name);
+		assertEquals(spoolName, trait.spoolName);
+		assertEquals(priority, trait.priority);
+
+		assertTrue(trait.runOneShot(List.of()));
+		assertEquals(2, trait.triggerCount);
+	}
+
+	@Test
+	void testRunOneShotAt() throws Exception {
+		final var handle = trait.runOneShotAt(Instant.now().plusMillis(20), name, spoolName, priority, task,
+		        afterRunCommand);
+		assertEquals(0, trait.triggerCount);
+		final var endOfWait = System.currentTimeMillis() + 500;
+		while (trait.triggerCount == 0 && System.currentTimeMillis() < endOfWait) {
+			Thread.onSpinWait();
+		}
+		assertEquals(1, trait.triggerCount);
+		assertEquals(name, trait.name);
+		assertFalse(handle.isDone());
+		trait.afterRunCommand.accept(null);
+		assertTrue(handle.isDone());
+		verify(afterRunCommand, times(1)).accept(null);
+	}
+
+	@Test
+	void testRunOneShotAfter_cancel() throws InterruptedException {
+		final var handle = trait.runOneShotAfter(Duration.ofMillis(20), name, spoolName, priority, task,
+		        afterRunCommand);
+		assertTrue(handle.cancel(false));
+		Thread.sleep(50);// NOSONAR
+		assertEquals(0, trait.triggerCount);
+	}
+
 }
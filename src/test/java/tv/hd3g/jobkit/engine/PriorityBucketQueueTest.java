@@ -0,0 +1,140 @@
+package tv.hd3g.jobkit.engine;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class PriorityBucketQueueTest {
+
+	static Random random = new Random();
+
+	static class Item implements SpoolQueue.Entry {
+		final int priority;
+		final int order;
+		int index = -1;
+
+		Item(final int priority, final int order) {
+			this.priority = priority;
+			this.order = order;
+		}
+
+		@Override
+		public int getQueueIndex() {
+			return index;
+		}
+
+		@Override
+		public void setQueueIndex(final int index) {
+			this.index = index;
+		}
+	}
+
+	static final Comparator<Item> byPriorityThenOrder = Comparator.<Item> comparingInt(i -> -i.priority)
+	        .thenComparingInt(i -> i.order);
+
+	PriorityBucketQueue<Item> queue;
+
+	@BeforeEach
+	void init() {
+		queue = new PriorityBucketQueue<>(i -> i.priority);
+	}
+
+	private List<Item> makeItems(final int count, final int priorities) {
+		return IntStream.range(0, count)
+		        .mapToObj(i -> new Item(random.nextInt(priorities) - priorities / 2, i))
+		        .collect(Collectors.toUnmodifiableList());
+	}
+
+	private List<Item> pollAll() {
+		final var polled = new ArrayList<Item>();
+		Item item;
+		while ((item = queue.poll()) != null) {
+			assertEquals(-1, item.index);
+			polled.add(item);
+		}
+		return polled;
+	}
+
+	@Test
+	void testOfferPoll() {
+		assertTrue(queue.isEmpty());
+		assertNull(queue.poll());
+		assertNull(queue.peek());
+
+		final var items = makeItems(1000, 5);
+		items.forEach(queue::offer);
+		assertEquals(1000, queue.size());
+
+		final var expected = items.stream().sorted(byPriorityThenOrder).collect(Collectors.toUnmodifiableList());
+		assertEquals(expected, queue.stream().collect(Collectors.toUnmodifiableList()));
+		assertSame(expected.get(0), queue.peek());
+		assertEquals(expected, pollAll());
+		assertTrue(queue.isEmpty());
+	}
+
+	@Test
+	void testManyPriorities() {
+		final var items = makeItems(1000, 300);
+		items.forEach(queue::offer);
+		assertEquals(items.stream().sorted(byPriorityThenOrder).collect(Collectors.toUnmodifiableList()),
+		        pollAll());
+	}
+
+	@Test
+	void testRemove() {
+		final var items = makeItems(100, 5);
+		items.forEach(queue::offer);
+
+		final var removed = items.stream()
+		        .filter(i -> random.nextBoolean())
+		        .collect(Collectors.toUnmodifiableList());
+		removed.forEach(i -> assertTrue(queue.remove(i)));
+		removed.forEach(i -> assertFalse(queue.remove(i)));
+		assertFalse(queue.remove(new Item(0, -1)));
+		assertEquals(items.size() - removed.size(), queue.size());
+
+		/**
+		 * Fill the holes let by the removed items
+		 */
+		final var added = IntStream.range(100, 200)
+		        .mapToObj(i -> new Item(random.nextInt(5) - 2, i))
+		        .collect(Collectors.toUnmodifiableList());
+		added.forEach(queue::offer);
+
+		final var expected = IntStream.range(0, 2)
+		        .mapToObj(i -> i == 0 ? items : added)
+		        .flatMap(List::stream)
+		        .filter(i -> removed.contains(i) == false)
+		        .sorted(byPriorityThenOrder)
+		        .collect(Collectors.toUnmodifiableList());
+		assertEquals(expected, pollAll());
+	}
+
+	@Test
+	void testClear() {
+		final var item = new Item(1, 0);
+		queue.offer(item);
+		queue.offer(new Item(0, 1));
+		queue.clear();
+		assertTrue(queue.isEmpty());
+		assertNull(queue.peek());
+		assertEquals(-1, item.index);
+		assertFalse(queue.remove(item));
+
+		queue.offer(item);
+		assertSame(item, queue.peek());
+	}
+
+}
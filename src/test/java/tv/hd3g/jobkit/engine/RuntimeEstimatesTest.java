@@ -0,0 +1,47 @@
+package tv.hd3g.jobkit.engine;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class RuntimeEstimatesTest {
+
+	RuntimeEstimates runtimeEstimates;
+
+	@BeforeEach
+	void init() {
+		runtimeEstimates = new RuntimeEstimates(2);
+	}
+
+	@Test
+	void testInvalid() {
+		assertThrows(IllegalArgumentException.class, () -> new RuntimeEstimates(0));
+	}
+
+	@Test
+	void testEstimate() {
+		assertEquals(-1, runtimeEstimates.estimate("A"));
+		runtimeEstimates.record("A", 100);
+		assertEquals(100, runtimeEstimates.estimate("A"));
+		runtimeEstimates.record("A", 200);
+		assertEquals(120, runtimeEstimates.estimate("A"));
+		runtimeEstimates.record("A", 20);
+		assertEquals(100, runtimeEstimates.estimate("A"));
+	}
+
+	@Test
+	void testBounded() {
+		runtimeEstimates.record("A", 1);
+		runtimeEstimates.record("B", 2);
+		runtimeEstimates.estimate("A");
+		runtimeEstimates.record("C", 3);
+		assertEquals(2, runtimeEstimates.size());
+		assertEquals(Map.of("A", 1L, "C", 3L), runtimeEstimates.getAll());
+		assertEquals(-1, runtimeEstimates.estimate("B"));
+	}
+
+}
@@ -0,0 +1,98 @@
+package tv.hd3g.jobkit.engine;
+
+import java.time.Duration;
+import java.util.Random;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compare TimingWheelScheduledExecutor and ScheduledThreadPoolExecutor, with 10k to 1M pending timers (delays from 1
+ * to 60 min, like BackgroundServices): the cost of one schedule, and of one schedule then cancel.
+ * Not a Junit test: run the main() from the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ScheduledExecutorBenchmark {
+
+	private static final Runnable emptyRunnable = () -> {
+	};
+
+	@Param({ "WHEEL", "THREAD_POOL" })
+	public String executorType;
+
+	@Param({ "10000", "100000", "1000000" })
+	public int pendingTimers;
+
+	ScheduledExecutorService executor;
+	long[] delays;
+	int nextDelay;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		final var random = new Random(0);
+		delays = new long[pendingTimers];
+		for (var pos = 0; pos < pendingTimers; pos++) {
+			delays[pos] = TimeUnit.MINUTES.toMillis(1) + random.nextInt((int) TimeUnit.MINUTES.toMillis(59));
+		}
+		if ("WHEEL".equals(executorType)) {
+			executor = new TimingWheelScheduledExecutor(Duration.ofMillis(10));
+		} else {
+			final var threadPool = new ScheduledThreadPoolExecutor(1);
+			threadPool.setRemoveOnCancelPolicy(true);
+			executor = threadPool;
+		}
+		for (final var delay : delays) {
+			executor.schedule(emptyRunnable, delay, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		executor.shutdownNow();
+	}
+
+	private long nextDelay() {
+		nextDelay = (nextDelay + 1) % delays.length;
+		return delays[nextDelay];
+	}
+
+	/**
+	 * Schedule then cancel one more timer: the pending timers count is kept.
+	 */
+	@Benchmark
+	public void scheduleThenCancel(final Blackhole blackhole) {
+		final ScheduledFuture<?> future = executor.schedule(emptyRunnable, nextDelay(), TimeUnit.MILLISECONDS);
+		blackhole.consume(future.cancel(false));
+	}
+
+	public static void main(final String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder()
+		        .include(ScheduledExecutorBenchmark.class.getSimpleName())
+		        .build()).run();
+	}
+
+}
@@ -0,0 +1,116 @@
+package tv.hd3g.jobkit.engine;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compare addAllToQueue with a loop of addToQueue: submit 10k no-op jobs to one spool, and wait the end of all jobs.
+ * Not a Junit test: run the main() from the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class SpoolBatchSubmitBenchmark {
+
+	static final int JOB_COUNT = 10_000;
+
+	SpoolExecutor spoolExecutor;
+
+	@Setup
+	public void setup() {
+		spoolExecutor = new SpoolExecutor("benchmark", new ExecutionEvent() {}, r -> {
+			final var t = new Thread(r);
+			t.setDaemon(true);
+			return t;
+		});
+	}
+
+	@TearDown
+	public void tearDown() {
+		spoolExecutor.waitToClose();
+	}
+
+	static class NoOpJob implements Job {
+		private final CountDownLatch ends;
+
+		NoOpJob(final CountDownLatch ends) {
+			this.ends = ends;
+		}
+
+		@Override
+		public String getJobName() {
+			return "job";
+		}
+
+		@Override
+		public String getJobSpoolname() {
+			return "benchmark";
+		}
+
+		@Override
+		public void run() {
+			/**
+			 * No-op
+			 */
+		}
+
+		@Override
+		public void onJobDone() {
+			ends.countDown();
+		}
+	}
+
+	private static List<NoOpJob> createJobs(final CountDownLatch ends) {
+		final var jobs = new ArrayList<NoOpJob>(JOB_COUNT);
+		for (var pos = 0; pos < JOB_COUNT; pos++) {
+			jobs.add(new NoOpJob(ends));
+		}
+		return jobs;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(JOB_COUNT)
+	public void addToQueueLoop() throws InterruptedException {
+		final var ends = new CountDownLatch(JOB_COUNT);
+		for (final var job : createJobs(ends)) {
+			spoolExecutor.addToQueue(job, job.getJobName(), job.getJobPriority(), e -> job.onJobDone());
+		}
+		ends.await();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(JOB_COUNT)
+	public void addAllToQueue() throws InterruptedException {
+		final var ends = new CountDownLatch(JOB_COUNT);
+		spoolExecutor.addAllToQueue(createJobs(ends));
+		ends.await();
+	}
+
+	public static void main(final String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder()
+		        .include(SpoolBatchSubmitBenchmark.class.getSimpleName())
+		        .build()).run();
+	}
+
+}
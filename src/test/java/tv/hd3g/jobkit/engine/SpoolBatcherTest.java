@@ -0,0 +1,154 @@
+package tv.hd3g.jobkit.engine;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+class SpoolBatcherTest {
+
+	static ScheduledExecutorService scheduledExecutor = Executors.newScheduledThreadPool(1);
+
+	@Mock
+	ExecutionEvent event;
+
+	Spooler spooler;
+	ConcurrentLinkedQueue<List<Integer>> processed;
+	SpoolBatcher<Integer> batcher;
+
+	@BeforeEach
+	void init() throws Exception {
+		MockitoAnnotations.openMocks(this).close();
+		spooler = new Spooler(event);
+		processed = new ConcurrentLinkedQueue<>();
+		batcher = new SpoolBatcher<>("batcher", "spool", spooler, scheduledExecutor, (key, items) -> {
+			processed.add(items);
+			return null;
+		});
+	}
+
+	@AfterAll
+	static void end() {
+		scheduledExecutor.shutdownNow();
+	}
+
+	@Test
+	void testSetters() {
+		assertEquals(SpoolBatcher.DEFAULT_MAX_BATCH_SIZE, batcher.getMaxBatchSize());
+		assertEquals(SpoolBatcher.DEFAULT_MAX_BATCH_DELAY, batcher.getMaxBatchDelay());
+		assertEquals(0, batcher.getPriority());
+		assertEquals(batcher, batcher.setMaxBatchSize(3).setMaxBatchDelay(Duration.ofSeconds(1)).setPriority(5));
+		assertEquals(3, batcher.getMaxBatchSize());
+		assertEquals(Duration.ofSeconds(1), batcher.getMaxBatchDelay());
+		assertEquals(5, batcher.getPriority());
+		assertThrows(IllegalArgumentException.class, () -> batcher.setMaxBatchSize(0));
+		assertThrows(IllegalArgumentException.class, () -> batcher.setMaxBatchDelay(Duration.ofMillis(-1)));
+	}
+
+	@Test
+	void testFullBatch() throws Exception {
+		batcher.setMaxBatchSize(3).setMaxBatchDelay(Duration.ofSeconds(10));
+		final var handles = IntStream.range(0, 7)
+		        .mapToObj(i -> batcher.submit("key", i))
+		        .collect(Collectors.toUnmodifiableList());
+		assertEquals(1, batcher.getPendingCount());
+		for (final var handle : handles.subList(0, 6)) {
+			handle.get(500, MILLISECONDS);
+		}
+		assertEquals(List.of(List.of(0, 1, 2), List.of(3, 4, 5)), List.copyOf(processed));
+		verify(event, times(2)).beforeStart(any(String.class), any(long.class), any(SpoolExecutor.class));
+
+		batcher.flush();
+		handles.get(6).get(500, MILLISECONDS);
+		assertEquals(0, batcher.getPendingCount());
+	}
+
+	@Test
+	void testDelayedBatch() throws Exception {
+		batcher.setMaxBatchDelay(Duration.ofMillis(50));
+		batcher.submit("A", 1);
+		batcher.submit("B", 2);
+		final var lastA = batcher.submit("A", 3);
+		final var lastB = batcher.submit("B", 4);
+		lastA.get(500, MILLISECONDS);
+		lastB.get(500, MILLISECONDS);
+		assertEquals(2, processed.size());
+		assertTrue(processed.contains(List.of(1, 3)));
+		assertTrue(processed.contains(List.of(2, 4)));
+	}
+
+	@Test
+	void testItemFailures() throws Exception {
+		final var error = new IOException("item");
+		batcher = new SpoolBatcher<>("batcher", "spool", spooler, scheduledExecutor,
+		        (key, items) -> Map.of(1, error));
+		batcher.setMaxBatchSize(3);
+		final var afterRunErrors = new ConcurrentLinkedQueue<Exception>();
+		batcher.add("key", 0, e -> afterRunErrors.add(e == null ? new Exception("none") : e));
+		final var failed = batcher.submit("key", 1);
+		final var done = batcher.submit("key", 2);
+
+		assertNull(done.get(500, MILLISECONDS));
+		final var e = assertThrows(ExecutionException.class, () -> failed.get(500, MILLISECONDS));
+		assertEquals(error, e.getCause());
+		assertEquals("none", afterRunErrors.peek().getMessage());
+		verify(event, times(1)).afterRunCorrectly(any(String.class), any(long.class), any(long.class),
+		        any(SpoolExecutor.class));
+	}
+
+	@Test
+	void testHandlerFailure() throws Exception {
+		final var error = new IOException("batch");
+		batcher = new SpoolBatcher<>("batcher", "spool", spooler, scheduledExecutor,
+		        (key, items) -> {
+			        throw error;
+		        });
+		final var afterRunError = new AtomicReference<Exception>();
+		batcher.add("key", 0, afterRunError::set);
+		final var handle = batcher.submit("key", 1);
+		batcher.flush();
+
+		final var e = assertThrows(ExecutionException.class, () -> handle.get(500, MILLISECONDS));
+		assertEquals(error, e.getCause());
+		assertEquals(error, afterRunError.get());
+		verify(event, times(1)).afterFailedRun(any(String.class), any(long.class), any(long.class),
+		        any(SpoolExecutor.class), any(Exception.class));
+	}
+
+	@Test
+	void testRefused() {
+		spooler.getExecutor("spool");
+		spooler.shutdown();
+		final var handle = batcher.submit("key", 0);
+		batcher.flush();
+		assertTrue(handle.isCompletedExceptionally());
+		final var e = assertThrows(ExecutionException.class, () -> handle.get());
+		assertEquals(RejectedExecutionException.class, e.getCause().getClass());
+		verify(event, times(0)).beforeStart(any(String.class), any(long.class), eq(spooler.getExecutor("spool")));
+	}
+
+}
@@ -0,0 +1,144 @@
+package tv.hd3g.jobkit.engine;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Memory used by jobs blocked in a spool (like waiting an I/O): start jobCount jobs which wait a latch, and report
+ * the used heap and RSS (Linux only) by blocked job, as JMH secondary results.
+ * One measurement iteration: JMH sums these counters between iterations.
+ * Platform threads by default, "-p threads=virtual" for virtual threads (Java 21+ only).
+ * Not a Junit test: run the main() from the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx1g")
+public class SpoolBlockedJobsBenchmark {
+
+	@Param({ "10000" })
+	public int jobCount;
+
+	@Param({ "platform" })
+	public String threads;
+
+	ThreadFactory threadFactory;
+
+	@Setup
+	public void setup() {
+		if ("virtual".equals(threads)) {
+			if (VirtualThreadFactory.isAvailable() == false) {
+				throw new IllegalStateException("Virtual threads are not available with this JVM (Java 21+ needed)");
+			}
+			threadFactory = new VirtualThreadFactory();
+		} else {
+			threadFactory = r -> {
+				final var t = new Thread(r);
+				t.setDaemon(true);
+				return t;
+			};
+		}
+	}
+
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.EVENTS)
+	public static class Memory {
+		public long heapBytesPerJob;
+		public long rssBytesPerJob;
+
+		@Setup(Level.Iteration)
+		public void clean() {
+			heapBytesPerJob = 0;
+			rssBytesPerJob = 0;
+		}
+	}
+
+	@Benchmark
+	public void blockedJobs(final Memory memory) throws InterruptedException, IOException {
+		final var spooler = new Spooler(new ExecutionEvent() {}, threadFactory);
+		final var spoolExecutor = spooler.getExecutor("blocked").setMaxConcurrentJobs(jobCount);
+		final var heapBefore = usedHeap();
+		final var rssBefore = rss();
+
+		final var started = new CountDownLatch(jobCount);
+		final var release = new CountDownLatch(1);
+		for (var pos = 0; pos < jobCount; pos++) {
+			spoolExecutor.addToQueue(() -> {
+				started.countDown();
+				try {
+					release.await();
+				} catch (final InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}, "blocked", 0, e -> {
+			});
+		}
+		if (started.await(1, TimeUnit.MINUTES) == false) {
+			throw new IllegalStateException("Can't start all the jobs");
+		}
+
+		memory.heapBytesPerJob = (usedHeap() - heapBefore) / jobCount;
+		final var rssAfter = rss();
+		memory.rssBytesPerJob = rssBefore < 0 || rssAfter < 0 ? -1 : (rssAfter - rssBefore) / jobCount;
+
+		release.countDown();
+		spooler.waitToClose(Duration.ofMinutes(1), false);
+	}
+
+	private static long usedHeap() throws InterruptedException {
+		final var memory = ManagementFactory.getMemoryMXBean();
+		for (var pos = 0; pos < 3; pos++) {
+			memory.gc();
+			Thread.sleep(100);// NOSONAR
+		}
+		return memory.getHeapMemoryUsage().getUsed();
+	}
+
+	/**
+	 * @return -1 if unknown (not Linux)
+	 */
+	private static long rss() throws IOException {
+		final var status = Path.of("/proc/self/status");
+		if (Files.exists(status) == false) {
+			return -1;
+		}
+		return Files.readAllLines(status).stream()
+		        .filter(line -> line.startsWith("VmRSS:"))
+		        .map(line -> line.replaceAll("[^0-9]", ""))
+		        .mapToLong(kb -> Long.parseLong(kb) * 1024L)
+		        .findFirst()
+		        .orElse(-1);
+	}
+
+	public static void main(final String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder()
+		        .include(SpoolBlockedJobsBenchmark.class.getSimpleName())
+		        .build()).run();
+	}
+
+}
@@ -0,0 +1,70 @@
+package tv.hd3g.jobkit.engine;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Dispatch latency on a sparse spool: submit one no-op job to an idle spool, and wait its end.
+ * With a worker keep alive, the job is run by the idle worker; without, a new thread is created for each job.
+ * Not a Junit test: run the main() from the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class SpoolDispatchBenchmark {
+
+	/**
+	 * In ms
+	 */
+	@Param({ "0", "10000" })
+	public long workerKeepAlive;
+
+	SpoolExecutor spoolExecutor;
+
+	@Setup
+	public void setup() {
+		spoolExecutor = new SpoolExecutor("benchmark", new ExecutionEvent() {}, r -> {
+			final var t = new Thread(r);
+			t.setDaemon(true);
+			return t;
+		}).setWorkerKeepAlive(Duration.ofMillis(workerKeepAlive));
+	}
+
+	@TearDown
+	public void tearDown() {
+		spoolExecutor.waitToClose();
+	}
+
+	@Benchmark
+	public void submitToIdleSpool() {
+		spoolExecutor.submit(() -> {
+		}, "job", 0, e -> {
+		}).join();
+	}
+
+	public static void main(final String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder()
+		        .include(SpoolDispatchBenchmark.class.getSimpleName())
+		        .build()).run();
+	}
+
+}
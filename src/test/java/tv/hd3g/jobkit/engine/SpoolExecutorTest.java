@@ -8,6 +8,7 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
@@ -15,9 +16,19 @@ import static org.mockito.ArgumentMatchers.longThat;
 import static org.mockito.Mockito.verify;
 import static org.mockito.internal.verification.VerificationModeFactory.times;
 
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
 import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
@@ -29,6 +40,8 @@ import org.junit.jupiter.api.Test;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
+import tv.hd3g.jobkit.engine.status.SpoolWorkerStatus;
+
 class SpoolExecutorTest {
 
 	static Random random = new Random();
@@ -40,6 +53,7 @@ class SpoolExecutorTest {
 	String spoolExecutorName;
 	String threadName;
 	long threadId;
+	AtomicInteger createdThreads;
 	ThreadFactory threadFactory;
 	SpoolExecutor spoolExecutor;
 
@@ -50,7 +64,9 @@ class SpoolExecutorTest {
 
 		spoolExecutorName = "Internal test Spool executor";
 		threadName = "TestSpoolExecutor" + String.valueOf(System.nanoTime());
+		createdThreads = new AtomicInteger(0);
 		threadFactory = r -> {
+			createdThreads.incrementAndGet();
 			final var t = new Thread(r);
 			t.setDaemon(false);
 			t.setName(threadName);
@@ -157,6 +173,503 @@ class SpoolExecutorTest {
 		assertEquals(total, count.get());
 	}
 
+	@Test
+	void testAddToQueue_reuseWorkerThread() throws InterruptedException {
+		spoolExecutor.setWorkerKeepAlive(Duration.ofSeconds(10));
+		final var total = 50;
+		final var smAfter = new CountDownLatch(total);
+		final var threadIds = ConcurrentHashMap.<Long> newKeySet();
+
+		for (var pos = 0; pos < total; pos++) {
+			assertTrue(spoolExecutor.addToQueue(() -> {
+				threadIds.add(Thread.currentThread().getId());
+			}, name, 0, e -> {
+				smAfter.countDown();
+			}));
+		}
+		assertTrue(smAfter.await(500, MILLISECONDS));
+		assertEquals(1, threadIds.size());
+		assertEquals(1, createdThreads.get());
+
+		final var smAfterIdle = new CountDownLatch(1);
+		assertTrue(spoolExecutor.addToQueue(() -> {
+			threadIds.add(Thread.currentThread().getId());
+		}, name, 0, e -> {
+			smAfterIdle.countDown();
+		}));
+		assertTrue(smAfterIdle.await(100, MILLISECONDS));
+		assertEquals(1, threadIds.size());
+		assertEquals(1, createdThreads.get());
+	}
+
+	@Test
+	void testSetWorkerKeepAlive() throws InterruptedException {
+		assertEquals(SpoolExecutor.DEFAULT_WORKER_KEEP_ALIVE, spoolExecutor.getWorkerKeepAlive());
+		assertEquals(Duration.ofSeconds(10), spoolExecutor.getWorkerKeepAlive());
+		final var total = 3;
+
+		/**
+		 * Sparse jobs, with the default keep alive
+		 */
+		runSparseJobs(total);
+		assertEquals(1, createdThreads.get());
+
+		assertEquals(spoolExecutor, spoolExecutor.setWorkerKeepAlive(Duration.ZERO));
+		assertEquals(Duration.ZERO, spoolExecutor.getWorkerKeepAlive());
+		/**
+		 * Wake up and ends the idle worker
+		 */
+		runSparseJobs(1);
+		createdThreads.set(0);
+		runSparseJobs(total);
+		assertEquals(total, createdThreads.get());
+	}
+
+	private void runSparseJobs(final int total) throws InterruptedException {
+		for (var pos = 0; pos < total; pos++) {
+			final var smAfter = new CountDownLatch(1);
+			assertTrue(spoolExecutor.addToQueue(() -> {
+			}, name, 0, e -> {
+				smAfter.countDown();
+			}));
+			assertTrue(smAfter.await(100, MILLISECONDS));
+			Thread.sleep(20);// NOSONAR
+		}
+	}
+
+	@Test
+	void testSetMaxConcurrentJobs() throws InterruptedException {
+		assertEquals(1, spoolExecutor.getMaxConcurrentJobs());
+		assertEquals(spoolExecutor, spoolExecutor.setMaxConcurrentJobs(3));
+		assertEquals(3, spoolExecutor.getMaxConcurrentJobs());
+
+		final var smStarted = new CountDownLatch(3);
+		final var smRelease = new CountDownLatch(1);
+		final var smAfter = new CountDownLatch(4);
+		for (var pos = 0; pos < 4; pos++) {
+			assertTrue(spoolExecutor.addToQueue(() -> {
+				smStarted.countDown();
+				try {
+					smRelease.await(500, MILLISECONDS);
+				} catch (final InterruptedException e1) {
+					throw new IllegalStateException(e1);
+				}
+			}, name, 0, e -> {
+				smAfter.countDown();
+			}));
+		}
+		assertTrue(smStarted.await(100, MILLISECONDS));
+		assertEquals(3, spoolExecutor.getRunningCount());
+		assertEquals(1, spoolExecutor.getQueueSize());
+
+		final var lastStatus = spoolExecutor.getLastStatus();
+		assertEquals(3, lastStatus.getMaxConcurrentJobs());
+		assertEquals(3, lastStatus.getCurrentOperations().size());
+		assertEquals(3, lastStatus.getCurrentOperations().stream().map(SpoolWorkerStatus::getThreadId).distinct()
+		        .count());
+		assertTrue(lastStatus.getCurrentOperations().stream().allMatch(w -> name.equals(w.getOperationName())));
+		assertEquals(name, lastStatus.getCurrentOperationName());
+		assertEquals(1, lastStatus.getQueue().size());
+
+		smRelease.countDown();
+		assertTrue(smAfter.await(500, MILLISECONDS));
+		assertEquals(3, createdThreads.get());
+	}
+
+	@Test
+	void testSetMaxConcurrentJobs_priorities() throws InterruptedException {
+		spoolExecutor.setMaxConcurrentJobs(2);
+
+		final var smRelease = new CountDownLatch(1);
+		final var smStarted = new CountDownLatch(2);
+		for (var pos = 0; pos < 2; pos++) {
+			spoolExecutor.addToQueue(() -> {
+				smStarted.countDown();
+				try {
+					smRelease.await(500, MILLISECONDS);
+				} catch (final InterruptedException e1) {
+					throw new IllegalStateException(e1);
+				}
+			}, name, 0, e -> {
+			});
+		}
+		assertTrue(smStarted.await(100, MILLISECONDS));
+
+		final var startOrder = new ConcurrentLinkedQueue<Integer>();
+		final var smFirstsStarted = new CountDownLatch(2);
+		final var smReleaseFirsts = new CountDownLatch(1);
+		final var smAfter = new CountDownLatch(5);
+		for (var pos = 0; pos < 5; pos++) {
+			final var priority = pos;
+			spoolExecutor.addToQueue(() -> {
+				startOrder.add(priority);
+				smFirstsStarted.countDown();
+				try {
+					smReleaseFirsts.await(500, MILLISECONDS);
+				} catch (final InterruptedException e1) {
+					throw new IllegalStateException(e1);
+				}
+			}, name, priority, e -> smAfter.countDown());
+		}
+		assertEquals(List.of(4, 3, 2, 1, 0), spoolExecutor.getLastStatus().getQueue().stream()
+		        .map(SpoolJobStatus::getPriority).collect(Collectors.toUnmodifiableList()));
+		smRelease.countDown();
+
+		assertTrue(smFirstsStarted.await(500, MILLISECONDS));
+		assertEquals(Set.of(4, 3), Set.copyOf(startOrder));
+		assertEquals(2, spoolExecutor.getRunningCount());
+
+		smReleaseFirsts.countDown();
+		assertTrue(smAfter.await(500, MILLISECONDS));
+		assertEquals(5, startOrder.size());
+	}
+
+	@Test
+	void testSetMaxConcurrentJobs_invalid() {
+		assertThrows(IllegalArgumentException.class, () -> spoolExecutor.setMaxConcurrentJobs(0));
+	}
+
+	@Test
+	void testAddAllToQueue() throws InterruptedException {
+		final var total = 50;
+		final var smStarted = new CountDownLatch(1);
+		final var smRelease = new CountDownLatch(1);
+		spoolExecutor.addToQueue(() -> {
+			smStarted.countDown();
+			try {
+				smRelease.await(500, MILLISECONDS);
+			} catch (final InterruptedException e1) {
+				throw new IllegalStateException(e1);
+			}
+		}, name, 0, e -> {
+		});
+		assertTrue(smStarted.await(100, MILLISECONDS));
+
+		final var startOrder = new ConcurrentLinkedQueue<Integer>();
+		final var smDone = new CountDownLatch(total);
+		final var jobs = IntStream.range(0, total)
+		        .mapToObj(i -> new Job() {
+
+			        @Override
+			        public void run() {
+				        startOrder.add(i);
+			        }
+
+			        @Override
+			        public String getJobName() {
+				        return name + i;
+			        }
+
+			        @Override
+			        public String getJobSpoolname() {
+				        return "another spool name";
+			        }
+
+			        @Override
+			        public int getJobPriority() {
+				        return i;
+			        }
+
+			        @Override
+			        public void onJobDone() {
+				        smDone.countDown();
+			        }
+		        })
+		        .collect(Collectors.toUnmodifiableList());
+
+		assertTrue(spoolExecutor.addAllToQueue(jobs));
+		assertTrue(spoolExecutor.addAllToQueue(List.of()));
+		assertEquals(total, spoolExecutor.getQueueSize());
+
+		smRelease.countDown();
+		assertTrue(smDone.await(500, MILLISECONDS));
+		assertEquals(IntStream.range(0, total).mapToObj(i -> total - 1 - i).collect(Collectors.toUnmodifiableList()),
+		        List.copyOf(startOrder));
+		assertEquals(1, createdThreads.get());
+
+		spoolExecutor.shutdown();
+		assertFalse(spoolExecutor.addAllToQueue(jobs));
+	}
+
+	private CountDownLatch lockSpoolWithABlockingJob() throws InterruptedException {
+		final var smStarted = new CountDownLatch(1);
+		final var smRelease = new CountDownLatch(1);
+		spoolExecutor.addToQueue(() -> {
+			smStarted.countDown();
+			try {
+				smRelease.await(500, MILLISECONDS);
+			} catch (final InterruptedException e1) {
+				throw new IllegalStateException(e1);
+			}
+		}, name, 0, e -> {
+		});
+		assertTrue(smStarted.await(100, MILLISECONDS));
+		return smRelease;
+	}
+
+	@Test
+	void testSetMaxQueueSize() {
+		assertEquals(Integer.MAX_VALUE, spoolExecutor.getMaxQueueSize());
+		assertEquals(QueueFullPolicy.REJECT, spoolExecutor.getQueueFullPolicy());
+		assertEquals(spoolExecutor, spoolExecutor.setMaxQueueSize(10, QueueFullPolicy.BLOCK));
+		assertEquals(10, spoolExecutor.getMaxQueueSize());
+		assertEquals(QueueFullPolicy.BLOCK, spoolExecutor.getQueueFullPolicy());
+		assertThrows(IllegalArgumentException.class, () -> spoolExecutor.setMaxQueueSize(0, QueueFullPolicy.BLOCK));
+	}
+
+	@Test
+	void testAddToQueue_full_reject() throws InterruptedException {
+		spoolExecutor.setMaxQueueSize(2, QueueFullPolicy.REJECT);
+		final var smRelease = lockSpoolWithABlockingJob();
+
+		final var afterRuns = new AtomicInteger(0);
+		assertTrue(spoolExecutor.addToQueue(() -> {
+		}, "A", 0, e -> afterRuns.incrementAndGet()));
+		assertTrue(spoolExecutor.addToQueue(() -> {
+		}, "B", 0, e -> afterRuns.incrementAndGet()));
+		assertFalse(spoolExecutor.addToQueue(() -> {
+		}, "C", 10, e -> afterRuns.incrementAndGet()));
+		assertEquals(2, spoolExecutor.getQueueSize());
+
+		verify(event, times(1)).afterDroppedJob(eq("C"), any(long.class), eq(spoolExecutor),
+		        eq(QueueFullPolicy.REJECT));
+		smRelease.countDown();
+		assertTrue(spoolExecutor.waitToClose(Duration.ofMillis(500), true));
+		assertEquals(2, afterRuns.get());
+	}
+
+	@Test
+	void testAddToQueue_full_dropLowestPriority() throws InterruptedException {
+		spoolExecutor.setMaxQueueSize(2, QueueFullPolicy.DROP_LOWEST_PRIORITY);
+		final var smRelease = lockSpoolWithABlockingJob();
+
+		final var dropped = new AtomicReference<Exception>();
+		assertTrue(spoolExecutor.addToQueue(() -> {
+		}, "A", 5, e -> {
+		}));
+		assertTrue(spoolExecutor.addToQueue(() -> {
+		}, "B", 1, dropped::set));
+		assertFalse(spoolExecutor.addToQueue(() -> {
+		}, "C", 1, e -> {
+		}));
+		verify(event, times(1)).afterDroppedJob(eq("C"), any(long.class), eq(spoolExecutor),
+		        eq(QueueFullPolicy.DROP_LOWEST_PRIORITY));
+		assertNull(dropped.get());
+
+		assertTrue(spoolExecutor.addToQueue(() -> {
+		}, "D", 2, e -> {
+		}));
+		verify(event, times(1)).afterDroppedJob(eq("B"), any(long.class), eq(spoolExecutor),
+		        eq(QueueFullPolicy.DROP_LOWEST_PRIORITY));
+		assertTrue(dropped.get() instanceof RejectedExecutionException);
+		assertEquals(List.of("A", "D"), spoolExecutor.getLastStatus().getQueue().stream()
+		        .map(SpoolJobStatus::getName).collect(Collectors.toUnmodifiableList()));
+		smRelease.countDown();
+	}
+
+	@Test
+	void testAddToQueue_full_dropOldest() throws InterruptedException {
+		spoolExecutor.setMaxQueueSize(2, QueueFullPolicy.DROP_OLDEST);
+		final var smRelease = lockSpoolWithABlockingJob();
+
+		final var dropped = new AtomicReference<Exception>();
+		assertTrue(spoolExecutor.addToQueue(() -> {
+		}, "A", 5, dropped::set));
+		assertTrue(spoolExecutor.addToQueue(() -> {
+		}, "B", 1, e -> {
+		}));
+		assertTrue(spoolExecutor.addToQueue(() -> {
+		}, "C", 0, e -> {
+		}));
+
+		verify(event, times(1)).afterDroppedJob(eq("A"), any(long.class), eq(spoolExecutor),
+		        eq(QueueFullPolicy.DROP_OLDEST));
+		assertTrue(dropped.get() instanceof RejectedExecutionException);
+		assertEquals(List.of("B", "C"), spoolExecutor.getLastStatus().getQueue().stream()
+		        .map(SpoolJobStatus::getName).collect(Collectors.toUnmodifiableList()));
+		smRelease.countDown();
+	}
+
+	@Test
+	void testAddToQueue_full_callerRuns() throws InterruptedException {
+		spoolExecutor.setMaxQueueSize(1, QueueFullPolicy.CALLER_RUNS);
+		final var smRelease = lockSpoolWithABlockingJob();
+
+		assertTrue(spoolExecutor.addToQueue(() -> {
+		}, "A", 0, e -> {
+		}));
+		final var runBy = new AtomicReference<Thread>();
+		final var afterRun = new AtomicInteger(0);
+		assertTrue(spoolExecutor.addToQueue(() -> runBy.set(Thread.currentThread()), "B", 0,
+		        e -> afterRun.incrementAndGet()));
+
+		assertEquals(Thread.currentThread(), runBy.get());
+		assertEquals(1, afterRun.get());
+		assertEquals(1, spoolExecutor.getQueueSize());
+		verify(event, times(1)).afterRunCorrectly(eq("B"), any(long.class), any(long.class), eq(spoolExecutor));
+		smRelease.countDown();
+	}
+
+	@Test
+	void testAddToQueue_full_block() throws InterruptedException {
+		spoolExecutor.setMaxQueueSize(1, QueueFullPolicy.BLOCK);
+		final var smRelease = lockSpoolWithABlockingJob();
+
+		assertTrue(spoolExecutor.addToQueue(() -> {
+		}, "A", 0, e -> {
+		}));
+
+		final var smQueued = new CountDownLatch(1);
+		final var smAfterRun = new CountDownLatch(1);
+		final var submitter = new Thread(() -> {
+			spoolExecutor.addToQueue(() -> {
+			}, "B", 0, e -> smAfterRun.countDown());
+			smQueued.countDown();
+		});
+		submitter.start();
+
+		assertFalse(smQueued.await(50, MILLISECONDS));
+		assertEquals(1, spoolExecutor.getQueueSize());
+		smRelease.countDown();
+		assertTrue(smQueued.await(500, MILLISECONDS));
+		assertTrue(smAfterRun.await(500, MILLISECONDS));
+		verify(event, times(0)).afterDroppedJob(any(String.class), any(long.class), any(SpoolExecutor.class),
+		        any(QueueFullPolicy.class));
+	}
+
+	@Test
+	void testAddToQueue_full_block_dedup() throws Exception {
+		spoolExecutor.setMaxQueueSize(1, QueueFullPolicy.BLOCK);
+		final var smRelease = lockSpoolWithABlockingJob();
+		assertTrue(spoolExecutor.addToQueue(() -> {
+		}, "A", 0, e -> {
+		}));
+
+		final var afterRuns = new CountDownLatch(2);
+		final var submitters = IntStream.range(0, 2)
+		        .mapToObj(i -> new Thread(() -> spoolExecutor.addToQueue(() -> {
+		        }, "K" + i, 0, null, "key", e -> afterRuns.countDown())))
+		        .collect(Collectors.toUnmodifiableList());
+		submitters.forEach(Thread::start);
+		for (final var submitter : submitters) {
+			while (submitter.getState() != Thread.State.WAITING) {
+				Thread.sleep(1);// NOSONAR
+			}
+		}
+
+		/**
+		 * Wake up the two submitters: the second must find the job queued by the first.
+		 */
+		spoolExecutor.setMaxQueueSize(3, QueueFullPolicy.BLOCK);
+		for (final var submitter : submitters) {
+			submitter.join(500);
+		}
+		assertEquals(2, spoolExecutor.getQueueSize());
+		verify(event, times(1)).afterCoalescedJob(any(String.class), any(long.class), eq(spoolExecutor),
+		        eq("key"), eq(DedupPolicy.KEEP_FIRST));
+
+		smRelease.countDown();
+		assertTrue(afterRuns.await(500, MILLISECONDS));
+	}
+
+	@Test
+	void testAddToQueue_full_dropLowestPriority_changedPriority() throws InterruptedException {
+		spoolExecutor.setDedupPolicy(DedupPolicy.MERGE);
+		final var smRelease = lockSpoolWithABlockingJob();
+		assertTrue(spoolExecutor.addToQueue(() -> {
+		}, "A", 1, null, "key", e -> {
+		}));
+		assertTrue(spoolExecutor.addToQueue(() -> {
+		}, "B", 3, e -> {
+		}));
+		/**
+		 * Set with queued jobs
+		 */
+		spoolExecutor.setMaxQueueSize(2, QueueFullPolicy.DROP_LOWEST_PRIORITY);
+		assertTrue(spoolExecutor.addToQueue(() -> {
+		}, "A", 5, null, "key", e -> {
+		}));
+		assertTrue(spoolExecutor.addToQueue(() -> {
+		}, "C", 4, e -> {
+		}));
+
+		verify(event, times(1)).afterDroppedJob(eq("B"), any(long.class), eq(spoolExecutor),
+		        eq(QueueFullPolicy.DROP_LOWEST_PRIORITY));
+		assertEquals(List.of("A", "C"), spoolExecutor.getLastStatus().getQueue().stream()
+		        .map(SpoolJobStatus::getName).collect(Collectors.toUnmodifiableList()));
+		smRelease.countDown();
+	}
+
+	@Test
+	void testAddToQueue_full_dropOldest_newQueueType() throws InterruptedException {
+		spoolExecutor.setMaxQueueSize(2, QueueFullPolicy.DROP_OLDEST);
+		final var smRelease = lockSpoolWithABlockingJob();
+		assertTrue(spoolExecutor.addToQueue(() -> {
+		}, "A", 0, e -> {
+		}));
+		assertTrue(spoolExecutor.addToQueue(() -> {
+		}, "B", 5, e -> {
+		}));
+		spoolExecutor.setQueueType(SpoolQueueType.PRIORITY_BUCKETS);
+		assertTrue(spoolExecutor.addToQueue(() -> {
+		}, "C", 0, e -> {
+		}));
+		assertTrue(spoolExecutor.addToQueue(() -> {
+		}, "D", 0, e -> {
+		}));
+
+		verify(event, times(1)).afterDroppedJob(eq("A"), any(long.class), eq(spoolExecutor),
+		        eq(QueueFullPolicy.DROP_OLDEST));
+		verify(event, times(1)).afterDroppedJob(eq("B"), any(long.class), eq(spoolExecutor),
+		        eq(QueueFullPolicy.DROP_OLDEST));
+		assertEquals(List.of("C", "D"), spoolExecutor.getLastStatus().getQueue().stream()
+		        .map(SpoolJobStatus::getName).collect(Collectors.toUnmodifiableList()));
+		smRelease.countDown();
+	}
+
+	@Test
+	void testAddAllToQueue_full_block_biggerThanQueue() throws InterruptedException {
+		spoolExecutor.setMaxQueueSize(2, QueueFullPolicy.BLOCK);
+		final var total = 10;
+		final var smDone = new CountDownLatch(total);
+		final var jobs = IntStream.range(0, total)
+		        .mapToObj(i -> new Job() {
+
+			        @Override
+			        public void run() {
+			        }
+
+			        @Override
+			        public String getJobName() {
+				        return name + i;
+			        }
+
+			        @Override
+			        public String getJobSpoolname() {
+				        return spoolExecutorName;
+			        }
+
+			        @Override
+			        public void onJobDone() {
+				        smDone.countDown();
+			        }
+		        })
+		        .collect(Collectors.toUnmodifiableList());
+
+		final var smQueued = new CountDownLatch(1);
+		final var submitter = new Thread(() -> {
+			assertTrue(spoolExecutor.addAllToQueue(jobs));
+			smQueued.countDown();
+		});
+		submitter.setDaemon(true);
+		submitter.start();
+
+		assertTrue(smQueued.await(500, MILLISECONDS));
+		assertTrue(smDone.await(500, MILLISECONDS));
+		verify(event, times(0)).afterDroppedJob(any(String.class), any(long.class), any(SpoolExecutor.class),
+		        any(QueueFullPolicy.class));
+	}
+
 	@Test
 	void testAddToQueue_onebyone() throws InterruptedException {
 		final var total = 10;
@@ -287,6 +800,69 @@ class SpoolExecutorTest {
 		verify(event, times(0)).shutdownSpooler();
 	}
 
+	@Test
+	void testWaitToClose_timeout() throws InterruptedException {
+		final var latch = new CountDownLatch(1);
+		final var count = new AtomicInteger(0);
+
+		spoolExecutor.addToQueue(() -> {
+			try {
+				latch.await(500, MILLISECONDS);
+			} catch (final InterruptedException e1) {
+				throw new IllegalStateException(e1);
+			}
+		}, name, 0, e -> {
+			count.incrementAndGet();
+		});
+		spoolExecutor.addToQueue(() -> {
+		}, name, 0, e -> {
+			count.incrementAndGet();
+		});
+
+		assertFalse(spoolExecutor.waitToClose(Duration.ofMillis(10)));
+		assertTrue(spoolExecutor.getLastStatus().isShutdown());
+		assertEquals(0, spoolExecutor.getQueueSize());
+		assertTrue(spoolExecutor.isRunning());
+
+		latch.countDown();
+		assertTrue(spoolExecutor.waitToClose(Duration.ofMillis(500)));
+		assertFalse(spoolExecutor.isRunning());
+		assertEquals(1, count.get());
+	}
+
+	@Test
+	void testWaitToClose_drainQueue() throws InterruptedException {
+		final var latch = new CountDownLatch(1);
+		final var count = new AtomicInteger(0);
+
+		spoolExecutor.addToQueue(() -> {
+			try {
+				latch.await(500, MILLISECONDS);
+			} catch (final InterruptedException e1) {
+				throw new IllegalStateException(e1);
+			}
+		}, name, 0, e -> {
+			count.incrementAndGet();
+		});
+		for (var pos = 0; pos < 3; pos++) {
+			spoolExecutor.addToQueue(() -> {
+			}, name, 0, e -> {
+				count.incrementAndGet();
+			});
+		}
+
+		assertFalse(spoolExecutor.waitToClose(Duration.ofMillis(10), true));
+		assertEquals(3, spoolExecutor.getQueueSize());
+		assertFalse(spoolExecutor.addToQueue(() -> {
+		}, name, 0, e -> {
+		}));
+
+		latch.countDown();
+		assertTrue(spoolExecutor.waitToClose(Duration.ofMillis(500), true));
+		assertEquals(4, count.get());
+		assertEquals(0, spoolExecutor.getQueueSize());
+	}
+
 	@Test
 	void testGetLastStatus() throws InterruptedException {
 		/**
@@ -442,6 +1018,420 @@ class SpoolExecutorTest {
 		assertEquals(prioSort, dateSort);
 	}
 
+	@Test
+	void testSubmit() throws Exception {
+		final var afterRunError = new AtomicReference<Exception>();
+		final var handle = spoolExecutor.submit(() -> {
+			throw new IllegalStateException("This is a test error");
+		}, name, 0, afterRunError::set);
+
+		final var e = assertThrows(ExecutionException.class, () -> handle.get(500, MILLISECONDS));
+		assertEquals(IllegalStateException.class, e.getCause().getClass());
+		assertEquals(afterRunError.get(), e.getCause());
+		assertFalse(handle.cancel(true));
+		verify(event, times(0)).afterCancelledJob(any(String.class), any(long.class),
+		        any(SpoolExecutor.class), any(boolean.class));
+	}
+
+	@Test
+	void testSubmitCallable() throws Exception {
+		assertEquals(name, spoolExecutor.submit(() -> name, name, 0).get(500, MILLISECONDS));
+		verifyTotalAfterRunCorrectly(1);
+
+		final var error = new IOException("This is a test error");
+		final var handle = spoolExecutor.submit(() -> {
+			throw error;
+		}, name, 0);
+		final var e = assertThrows(ExecutionException.class, () -> handle.get(500, MILLISECONDS));
+		assertEquals(error, e.getCause());
+		verify(event, times(1)).afterFailedRun(eq(name), any(long.class), any(long.class),
+		        eq(spoolExecutor), eq(error));
+	}
+
+	@Test
+	void testSubmit_cancelQueued() throws Exception {
+		final var smRelease = lockSpoolWithABlockingJob();
+
+		final var ran = new AtomicInteger(0);
+		final var afterRunError = new AtomicReference<Exception>();
+		final var handleA = spoolExecutor.submit(ran::incrementAndGet, "A", 0, afterRunError::set);
+		final var handleB = spoolExecutor.submit(ran::incrementAndGet, "B", 0, e -> {
+		});
+		assertEquals(2, spoolExecutor.getQueueSize());
+
+		assertTrue(handleA.cancel(false));
+		assertTrue(handleA.isCancelled());
+		assertFalse(handleA.cancel(false));
+		assertEquals(1, spoolExecutor.getQueueSize());
+		assertEquals(CancellationException.class, afterRunError.get().getClass());
+		verify(event, times(1)).afterCancelledJob(eq("A"), any(long.class), eq(spoolExecutor), eq(false));
+
+		smRelease.countDown();
+		handleB.get(500, MILLISECONDS);
+		assertEquals(1, ran.get());
+		verify(event, times(0)).beforeStart(eq("A"), any(long.class), any(SpoolExecutor.class));
+	}
+
+	@Test
+	void testSubmit_cancelRunning() throws Exception {
+		spoolExecutor.setWorkerKeepAlive(Duration.ofSeconds(10));
+		final var started = new CountDownLatch(1);
+		final var interrupted = new CountDownLatch(1);
+		final var handle = spoolExecutor.submit(() -> {
+			started.countDown();
+			try {
+				Thread.sleep(10000);// NOSONAR
+			} catch (final InterruptedException e) {
+				interrupted.countDown();
+			}
+		}, name, 0, e -> {
+		});
+		assertTrue(started.await(500, MILLISECONDS));
+
+		assertTrue(handle.cancel(true));
+		assertTrue(interrupted.await(500, MILLISECONDS));
+		assertThrows(CancellationException.class, () -> handle.get(500, MILLISECONDS));
+		verify(event, times(1)).afterCancelledJob(eq(name), any(long.class), eq(spoolExecutor), eq(true));
+
+		/**
+		 * The worker thread is reused, without the interrupt flag.
+		 */
+		final var nextInterrupted = new AtomicReference<Boolean>();
+		spoolExecutor.submit(() -> nextInterrupted.set(Thread.currentThread().isInterrupted()), name, 0, e -> {
+		}).get(500, MILLISECONDS);
+		assertFalse(nextInterrupted.get());
+		assertEquals(1, createdThreads.get());
+	}
+
+	@Test
+	void testSubmit_refused() {
+		spoolExecutor.shutdown();
+		final var handle = spoolExecutor.submit(() -> {
+		}, name, 0, e -> {
+		});
+		assertTrue(handle.isCompletedExceptionally());
+		final var e = assertThrows(ExecutionException.class, () -> handle.get());
+		assertEquals(RejectedExecutionException.class, e.getCause().getClass());
+	}
+
+	@Test
+	void testSubmit_shutdownClearQueue() throws InterruptedException {
+		final var smRelease = lockSpoolWithABlockingJob();
+		final var handle = spoolExecutor.submit(() -> {
+		}, name, 0, e -> {
+		});
+		spoolExecutor.shutdown();
+		assertTrue(handle.isCancelled());
+		smRelease.countDown();
+	}
+
+	@Test
+	void testJobTimeout() throws Exception {
+		assertEquals(Duration.ZERO, spoolExecutor.getJobTimeout());
+		spoolExecutor.setJobTimeout(Duration.ofMillis(50));
+		assertEquals(Duration.ofMillis(50), spoolExecutor.getJobTimeout());
+
+		final var release = new CountDownLatch(1);
+		final var stuckEnds = new CountDownLatch(1);
+		final var afterRunError = new AtomicReference<Exception>();
+		final var handle = spoolExecutor.submit(() -> {
+			while (true) {
+				try {
+					release.await();
+					break;
+				} catch (final InterruptedException e) {
+					/**
+					 * Ignore the interrupt, like a stuck network call
+					 */
+				}
+			}
+			stuckEnds.countDown();
+		}, name, 0, afterRunError::set);
+
+		final var e = assertThrows(ExecutionException.class, () -> handle.get(500, MILLISECONDS));
+		assertEquals(TimeoutException.class, e.getCause().getClass());
+		assertEquals(e.getCause(), afterRunError.get());
+		verify(event, times(1)).afterStuckJob(eq(name), eq(50l), eq(spoolExecutor), eq(threadName),
+		        any(StackTraceElement[].class));
+		verify(event, times(1)).afterFailedRun(eq(name), any(long.class), any(long.class),
+		        eq(spoolExecutor), eq(afterRunError.get()));
+		assertFalse(spoolExecutor.isRunning());
+
+		/**
+		 * The spool is free for the next job, on a new thread
+		 */
+		assertEquals(name, spoolExecutor.submit(() -> name, name, 0).get(500, MILLISECONDS));
+		assertEquals(2, createdThreads.get());
+
+		release.countDown();
+		assertTrue(stuckEnds.await(500, MILLISECONDS));
+		Thread.sleep(10);// NOSONAR
+		verifyTotalAfterRunCorrectly(1);
+		verifyTotalAfterFailedRun(1);
+	}
+
+	@Test
+	void testJobTimeout_byJob() throws Exception {
+		spoolExecutor.setJobTimeout(Duration.ofSeconds(10));
+		final var handle = spoolExecutor.submit(() -> {
+			try {
+				Thread.sleep(10000);// NOSONAR
+			} catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}, name, 0, Duration.ofMillis(20), e -> {
+		});
+		final var e = assertThrows(ExecutionException.class, () -> handle.get(500, MILLISECONDS));
+		assertEquals(TimeoutException.class, e.getCause().getClass());
+
+		assertEquals(name, spoolExecutor.submit(() -> name, name, 0).get(500, MILLISECONDS));
+		verifyTotalAfterFailedRun(1);
+	}
+
+	@Test
+	void testSetQueueType() throws Exception {
+		assertEquals(SpoolQueueType.HEAP, spoolExecutor.getQueueType());
+		final var smRelease = lockSpoolWithABlockingJob();
+
+		final var runOrder = new ConcurrentLinkedQueue<String>();
+		final var priorities = List.of(0, 10, -1, 0, 10, -1, 0);
+		for (var pos = 0; pos < priorities.size(); pos++) {
+			final var jobName = "P" + priorities.get(pos) + "#" + pos;
+			spoolExecutor.addToQueue(() -> runOrder.add(jobName), jobName, priorities.get(pos), e -> {
+			});
+		}
+		assertEquals(spoolExecutor, spoolExecutor.setQueueType(SpoolQueueType.PRIORITY_BUCKETS));
+		assertEquals(SpoolQueueType.PRIORITY_BUCKETS, spoolExecutor.getQueueType());
+		assertEquals(priorities.size(), spoolExecutor.getQueueSize());
+		spoolExecutor.addToQueue(() -> runOrder.add("P10#7"), "P10#7", 10, e -> {
+		});
+
+		smRelease.countDown();
+		assertTrue(spoolExecutor.waitToClose(Duration.ofMillis(500), true));
+		assertEquals(List.of("P10#1", "P10#4", "P10#7", "P0#0", "P0#3", "P0#6", "P-1#2", "P-1#5"),
+		        List.copyOf(runOrder));
+	}
+
+	@Test
+	void testPriorityAging() throws Exception {
+		assertEquals(Duration.ZERO, spoolExecutor.getPriorityAging());
+		assertEquals(spoolExecutor, spoolExecutor.setPriorityAging(Duration.ofMillis(1)));
+		assertEquals(Duration.ofMillis(1), spoolExecutor.getPriorityAging());
+		final var smRelease = lockSpoolWithABlockingJob();
+
+		final var runOrder = new ConcurrentLinkedQueue<String>();
+		spoolExecutor.addToQueue(() -> runOrder.add("old"), "old", 0, e -> {
+		});
+		Thread.sleep(50);// NOSONAR
+		spoolExecutor.addToQueue(() -> runOrder.add("new"), "new", 10, e -> {
+		});
+
+		final var queue = spoolExecutor.getLastStatus().getQueue();
+		assertEquals(List.of("old", "new"), queue.stream()
+		        .map(SpoolJobStatus::getName).collect(Collectors.toUnmodifiableList()));
+		assertEquals(0, queue.get(0).getPriority());
+		assertTrue(queue.get(0).getEffectivePriority() >= 50);
+		assertEquals(10, queue.get(1).getPriority());
+		assertTrue(queue.get(1).getEffectivePriority() < 50);
+
+		/**
+		 * The same order without aging
+		 */
+		spoolExecutor.setQueueType(SpoolQueueType.PRIORITY_BUCKETS);
+		assertEquals("old", spoolExecutor.getLastStatus().getQueue().get(0).getName());
+		spoolExecutor.setPriorityAging(Duration.ZERO);
+		assertEquals("new", spoolExecutor.getLastStatus().getQueue().get(0).getName());
+		assertEquals(0, spoolExecutor.getLastStatus().getQueue().get(1).getEffectivePriority());
+		spoolExecutor.setPriorityAging(Duration.ofMillis(1));
+
+		smRelease.countDown();
+		assertTrue(spoolExecutor.waitToClose(Duration.ofMillis(500), true));
+		assertEquals(List.of("old", "new"), List.copyOf(runOrder));
+	}
+
+	@Test
+	void testDedup_keepFirst() throws Exception {
+		assertEquals(DedupPolicy.KEEP_FIRST, spoolExecutor.getDedupPolicy());
+		final var smRelease = lockSpoolWithABlockingJob();
+
+		final var runOrder = new ConcurrentLinkedQueue<String>();
+		final var afterRuns = new ConcurrentLinkedQueue<String>();
+		final var handles = IntStream.range(0, 3)
+		        .mapToObj(i -> spoolExecutor.submit(() -> runOrder.add("J" + i), "J" + i, 0, null, "key",
+		                e -> afterRuns.add("J" + i)))
+		        .collect(Collectors.toUnmodifiableList());
+		spoolExecutor.addToQueue(() -> runOrder.add("other"), "other", 0, null, "otherKey", e -> {
+		});
+		assertEquals(2, spoolExecutor.getQueueSize());
+		verify(event, times(2)).afterCoalescedJob(any(String.class), any(long.class), eq(spoolExecutor),
+		        eq("key"), eq(DedupPolicy.KEEP_FIRST));
+
+		smRelease.countDown();
+		for (final var handle : handles) {
+			handle.get(500, MILLISECONDS);
+		}
+		assertTrue(spoolExecutor.waitToClose(Duration.ofMillis(500), true));
+		assertEquals(List.of("J0", "other"), List.copyOf(runOrder));
+		assertEquals(Set.of("J0", "J1", "J2"), Set.copyOf(afterRuns));
+
+		/**
+		 * A running job is never coalesced.
+		 */
+		verify(event, times(1)).beforeStart(eq("J0"), any(long.class), eq(spoolExecutor));
+	}
+
+	@Test
+	void testDedup_replaceWithLatest() throws Exception {
+		assertEquals(spoolExecutor, spoolExecutor.setDedupPolicy(DedupPolicy.REPLACE_WITH_LATEST));
+		assertEquals(DedupPolicy.REPLACE_WITH_LATEST, spoolExecutor.getDedupPolicy());
+		final var smRelease = lockSpoolWithABlockingJob();
+
+		final var runOrder = new ConcurrentLinkedQueue<String>();
+		final var afterFirst = new AtomicInteger(0);
+		final var first = spoolExecutor.submit(() -> runOrder.add("first"), "first", 0, null, "key",
+		        e -> afterFirst.incrementAndGet());
+		spoolExecutor.addToQueue(() -> runOrder.add("other"), "other", 0, e -> {
+		});
+		assertTrue(spoolExecutor.addToQueue(() -> runOrder.add("latest"), "latest", 0, null, "key", e -> {
+		}));
+		assertEquals(2, spoolExecutor.getQueueSize());
+
+		smRelease.countDown();
+		first.get(500, MILLISECONDS);
+		assertTrue(spoolExecutor.waitToClose(Duration.ofMillis(500), true));
+		assertEquals(List.of("other", "latest"), List.copyOf(runOrder));
+		assertEquals(1, afterFirst.get());
+	}
+
+	@Test
+	void testDedup_merge() throws Exception {
+		spoolExecutor.setDedupPolicy(DedupPolicy.MERGE);
+		final var smRelease = lockSpoolWithABlockingJob();
+
+		final var runOrder = new ConcurrentLinkedQueue<String>();
+		spoolExecutor.addToQueue(() -> runOrder.add("first"), "first", 0, null, "key", e -> {
+		});
+		spoolExecutor.addToQueue(() -> runOrder.add("other"), "other", 5, e -> {
+		});
+		final var merged = spoolExecutor.submit(() -> runOrder.add("latest"), "latest", 10, null, "key", e -> {
+		});
+		assertEquals(2, spoolExecutor.getQueueSize());
+		final var queue = spoolExecutor.getLastStatus().getQueue();
+		assertEquals("first", queue.get(0).getName());
+		assertEquals(10, queue.get(0).getPriority());
+
+		smRelease.countDown();
+		merged.get(500, MILLISECONDS);
+		assertTrue(spoolExecutor.waitToClose(Duration.ofMillis(500), true));
+		assertEquals(List.of("latest", "other"), List.copyOf(runOrder));
+	}
+
+	@Test
+	void testDedup_merge_raisedPriority() throws Exception {
+		spoolExecutor.setDedupPolicy(DedupPolicy.MERGE);
+		assertEquals(List.of("a", "first", "b"), runMergedWithRaisedPriority());
+		spoolExecutor = new SpoolExecutor(spoolExecutorName, event, threadFactory)
+		        .setDedupPolicy(DedupPolicy.MERGE)
+		        .setQueueType(SpoolQueueType.PRIORITY_BUCKETS);
+		assertEquals(List.of("a", "b", "first"), runMergedWithRaisedPriority());
+	}
+
+	private List<String> runMergedWithRaisedPriority() throws Exception {
+		final var smRelease = lockSpoolWithABlockingJob();
+		final var runOrder = new ConcurrentLinkedQueue<String>();
+		spoolExecutor.addToQueue(() -> runOrder.add("a"), "a", 5, e -> {
+		});
+		spoolExecutor.addToQueue(() -> runOrder.add("first"), "first", 0, null, "key", e -> {
+		});
+		spoolExecutor.addToQueue(() -> runOrder.add("b"), "b", 5, e -> {
+		});
+		spoolExecutor.addToQueue(() -> runOrder.add("first"), "latest", 5, null, "key", e -> {
+		});
+		assertEquals(3, spoolExecutor.getQueueSize());
+		smRelease.countDown();
+		assertTrue(spoolExecutor.waitToClose(Duration.ofMillis(500), true));
+		return List.copyOf(runOrder);
+	}
+
+	@Test
+	void testDedup_cancel() throws Exception {
+		final var smRelease = lockSpoolWithABlockingJob();
+
+		final var ran = new AtomicInteger(0);
+		final var first = spoolExecutor.submit(ran::incrementAndGet, "first", 0, null, "key", e -> {
+		});
+		final var afterSecondError = new AtomicReference<Exception>();
+		final var second = spoolExecutor.submit(ran::incrementAndGet, "second", 0, null, "key",
+		        afterSecondError::set);
+		final var third = spoolExecutor.submit(ran::incrementAndGet, "third", 0, null, "key", e -> {
+		});
+
+		/**
+		 * Only this submission is cancelled
+		 */
+		assertTrue(second.cancel(false));
+		assertEquals(CancellationException.class, afterSecondError.get().getClass());
+		assertFalse(third.isDone());
+		assertEquals(1, spoolExecutor.getQueueSize());
+
+		/**
+		 * The coalesced submissions are cancelled with the queued job
+		 */
+		assertTrue(first.cancel(false));
+		assertTrue(third.isCancelled());
+		assertEquals(0, spoolExecutor.getQueueSize());
+
+		/**
+		 * The key is free for a new job
+		 */
+		final var next = spoolExecutor.submit(ran::incrementAndGet, "next", 0, null, "key", e -> {
+		});
+		assertEquals(1, spoolExecutor.getQueueSize());
+		smRelease.countDown();
+		next.get(500, MILLISECONDS);
+		assertEquals(1, ran.get());
+	}
+
+	@Test
+	void testEqualPriorityOrder() throws Exception {
+		assertEquals(EqualPriorityOrder.SUBMIT_ORDER, spoolExecutor.getEqualPriorityOrder());
+		assertTrue(spoolExecutor.getRuntimeEstimates().isEmpty());
+		final Runnable longJob = () -> {
+			try {
+				Thread.sleep(30);// NOSONAR
+			} catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		};
+		spoolExecutor.submit(longJob, "long", 0, e -> {
+		}).get(500, MILLISECONDS);
+		spoolExecutor.submit(() -> {
+		}, "short", 0, e -> {
+		}).get(500, MILLISECONDS);
+		final var estimates = spoolExecutor.getRuntimeEstimates();
+		assertEquals(Set.of("long", "short"), estimates.keySet());
+		assertTrue(estimates.get("long") >= 30);
+		assertEquals(estimates, spoolExecutor.getLastStatus().getRuntimeEstimates());
+
+		final var smRelease = lockSpoolWithABlockingJob();
+		final var runOrder = new ConcurrentLinkedQueue<String>();
+		for (final var jobName : List.of("long", "short", "unknown")) {
+			spoolExecutor.addToQueue(() -> runOrder.add(jobName), jobName, 0, e -> {
+			});
+		}
+		spoolExecutor.addToQueue(() -> runOrder.add("high"), "long", 1, e -> {
+		});
+		assertEquals(spoolExecutor, spoolExecutor.setEqualPriorityOrder(EqualPriorityOrder.SHORTEST_EXPECTED_FIRST));
+		assertEquals(EqualPriorityOrder.SHORTEST_EXPECTED_FIRST, spoolExecutor.getEqualPriorityOrder());
+		final var queue = spoolExecutor.getLastStatus().getQueue();
+		assertEquals(-1, queue.get(1).getExpectedDuration());
+		assertTrue(queue.get(3).getExpectedDuration() >= 30);
+
+		smRelease.countDown();
+		assertTrue(spoolExecutor.waitToClose(Duration.ofMillis(500), true));
+		assertEquals(List.of("high", "unknown", "short", "long"), List.copyOf(runOrder));
+	}
+
 	private void verifyTotalBeforeStart(final int count) {
 		verify(event, times(count)).beforeStart(any(String.class),
 		        any(long.class), any(SpoolExecutor.class));
@@ -0,0 +1,126 @@
+package tv.hd3g.jobkit.engine;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compare the SpoolQueue implementations with 1M jobs, using the usual priorities 0, -1 and 10.
+ * Not a Junit test: run the main() from the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class SpoolQueueBenchmark {
+
+	static final int JOB_COUNT = 1_000_000;
+	static final int[] PRIORITIES = { 0, -1, 10 };
+
+	static class Item implements SpoolQueue.Entry {
+		final int priority;
+		final long sequence;
+		int index = -1;
+
+		Item(final int priority, final long sequence) {
+			this.priority = priority;
+			this.sequence = sequence;
+		}
+
+		@Override
+		public int getQueueIndex() {
+			return index;
+		}
+
+		@Override
+		public void setQueueIndex(final int index) {
+			this.index = index;
+		}
+	}
+
+	@Param({ "HEAP", "PRIORITY_BUCKETS" })
+	public SpoolQueueType queueType;
+
+	Item[] items;
+
+	@Setup
+	public void setup() {
+		final var random = new Random(0);
+		items = new Item[JOB_COUNT];
+		for (var pos = 0; pos < JOB_COUNT; pos++) {
+			items[pos] = new Item(PRIORITIES[random.nextInt(PRIORITIES.length)], pos);
+		}
+	}
+
+	private SpoolQueue<Item> createQueue() {
+		if (queueType == SpoolQueueType.PRIORITY_BUCKETS) {
+			return new PriorityBucketQueue<>(i -> i.priority);
+		}
+		return new IndexedPriorityQueue<Item>((l, r) -> {
+			final var byPriority = Integer.compare(r.priority, l.priority);
+			if (byPriority != 0) {
+				return byPriority;
+			}
+			return Long.compare(l.sequence, r.sequence);
+		});
+	}
+
+	/**
+	 * Queue all the jobs, then take all the jobs.
+	 */
+	@Benchmark
+	@OperationsPerInvocation(JOB_COUNT)
+	public void offerThenPollAll(final Blackhole blackhole) {
+		final var queue = createQueue();
+		for (final var item : items) {
+			queue.offer(item);
+		}
+		Item item;
+		while ((item = queue.poll()) != null) {
+			blackhole.consume(item);
+		}
+	}
+
+	/**
+	 * Queue the first 500k jobs, then keep 500k queued jobs: take one job for each new job.
+	 */
+	@Benchmark
+	@OperationsPerInvocation(JOB_COUNT)
+	public void steadyQueue(final Blackhole blackhole) {
+		final var queue = createQueue();
+		final var half = JOB_COUNT / 2;
+		for (var pos = 0; pos < half; pos++) {
+			queue.offer(items[pos]);
+		}
+		for (var pos = half; pos < JOB_COUNT; pos++) {
+			queue.offer(items[pos]);
+			blackhole.consume(queue.poll());
+		}
+		queue.clear();
+	}
+
+	public static void main(final String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder()
+		        .include(SpoolQueueBenchmark.class.getSimpleName())
+		        .build()).run();
+	}
+
+}
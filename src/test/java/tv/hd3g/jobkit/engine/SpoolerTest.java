@@ -1,5 +1,6 @@
 package tv.hd3g.jobkit.engine;
 
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
@@ -8,6 +9,14 @@ import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.verify;
 
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mock;
@@ -84,6 +93,25 @@ class SpoolerTest {
 		verify(event, Mockito.times(1)).shutdownSpooler();
 	}
 
+	@Test
+	void testWaitToClose_drainQueues() {
+		final var count = new AtomicInteger(0);
+		for (var pos = 0; pos < 5; pos++) {
+			spooler.getExecutor("A").addToQueue(count::incrementAndGet, "count", 0, e -> {
+			});
+			spooler.getExecutor("B").addToQueue(count::incrementAndGet, "count", 0, e -> {
+			});
+		}
+
+		assertTrue(spooler.waitToClose(Duration.ofMillis(500), true));
+		assertEquals(10, count.get());
+		assertEquals(0, spooler.getAllQueuesSize());
+		assertEquals(0, spooler.getRunningQueuesCount());
+		assertFalse(spooler.getExecutor("A").addToQueue(emptyRunnable, "empty", 0, e -> {
+		}));
+		verify(event, Mockito.times(1)).shutdownSpooler();
+	}
+
 	@Test
 	void testGetLastStatus() {
 		assertEquals(0, spooler.getLastStatus().getCreatedThreadsCount());
@@ -99,4 +127,212 @@ class SpoolerTest {
 		assertEquals(1, spooler.getLastStatus().getCreatedThreadsCount());
 	}
 
+	@Test
+	void testSetMaxRunningJobs() throws InterruptedException {
+		assertEquals(Integer.MAX_VALUE, spooler.getMaxRunningJobs());
+		assertEquals(spooler, spooler.setMaxRunningJobs(1));
+		assertEquals(1, spooler.getMaxRunningJobs());
+
+		final var started = new CountDownLatch(1);
+		final var release = new CountDownLatch(1);
+		spooler.getExecutor("A").addToQueue(() -> {
+			started.countDown();
+			try {
+				release.await(500, MILLISECONDS);
+			} catch (final InterruptedException e) {
+				throw new IllegalStateException(e);
+			}
+		}, "block", 0, e -> {
+		});
+		assertTrue(started.await(100, MILLISECONDS));
+
+		final var runOrder = new ConcurrentLinkedQueue<String>();
+		for (var pos = 0; pos < 2; pos++) {
+			spooler.getExecutor("B").addToQueue(() -> runOrder.add("B"), "B", 0, e -> {
+			});
+			spooler.getExecutor("C").addToQueue(() -> runOrder.add("C"), "C", 0, e -> {
+			});
+		}
+		spooler.getExecutor("D").addToQueue(() -> runOrder.add("D"), "D", 0, e -> {
+		});
+
+		final var status = spooler.getLastStatus();
+		assertEquals(1, status.getMaxRunningJobs());
+		assertEquals(1, status.getRunningJobs());
+		assertEquals(List.of("B", "C", "D"), status.getWaitingSpools());
+		assertTrue(runOrder.isEmpty());
+
+		release.countDown();
+		assertTrue(spooler.waitToClose(Duration.ofMillis(500), true));
+		assertEquals(List.of("B", "C", "D", "B", "C"), List.copyOf(runOrder));
+		assertEquals(0, spooler.getLastStatus().getRunningJobs());
+		assertEquals(List.of(), spooler.getLastStatus().getWaitingSpools());
+	}
+
+	@Test
+	void testSetMaxRunningJobs_grantedNotWaiting() throws InterruptedException {
+		spooler.setMaxRunningJobs(1);
+		final var releaseA = new CountDownLatch(1);
+		spooler.getExecutor("A").addToQueue(() -> {
+			try {
+				releaseA.await(500, MILLISECONDS);
+			} catch (final InterruptedException e) {
+				throw new IllegalStateException(e);
+			}
+		}, "A", 0, e -> {
+		});
+		final var startedB = new CountDownLatch(1);
+		final var releaseB = new CountDownLatch(1);
+		spooler.getExecutor("B").addToQueue(() -> {
+			startedB.countDown();
+			try {
+				releaseB.await(500, MILLISECONDS);
+			} catch (final InterruptedException e) {
+				throw new IllegalStateException(e);
+			}
+		}, "B", 0, e -> {
+		});
+		assertEquals(List.of("B"), spooler.getLastStatus().getWaitingSpools());
+
+		releaseA.countDown();
+		assertTrue(startedB.await(500, MILLISECONDS));
+		assertEquals(List.of(), spooler.getLastStatus().getWaitingSpools());
+		assertEquals(1, spooler.getLastStatus().getRunningJobs());
+		releaseB.countDown();
+		assertTrue(spooler.waitToClose(Duration.ofMillis(500), true));
+	}
+
+	@Test
+	void testSetMaxRunningJobs_removeLimit() throws InterruptedException {
+		spooler.setMaxRunningJobs(1);
+		final var release = new CountDownLatch(1);
+		spooler.getExecutor("A").addToQueue(() -> {
+			try {
+				release.await(500, MILLISECONDS);
+			} catch (final InterruptedException e) {
+				throw new IllegalStateException(e);
+			}
+		}, "A", 0, e -> {
+		});
+		final var runB = new CountDownLatch(2);
+		spooler.getExecutor("B").addToQueue(runB::countDown, "B", 0, e -> {
+		});
+		spooler.getExecutor("B").addToQueue(runB::countDown, "B", 0, e -> {
+		});
+		assertEquals(List.of("B"), spooler.getLastStatus().getWaitingSpools());
+
+		spooler.setMaxRunningJobs(Integer.MAX_VALUE);
+		assertTrue(runB.await(500, MILLISECONDS));
+		assertEquals(List.of(), spooler.getLastStatus().getWaitingSpools());
+		release.countDown();
+		assertTrue(spooler.waitToClose(Duration.ofMillis(500), true));
+		assertEquals(0, spooler.getLastStatus().getRunningJobs());
+	}
+
+	@Test
+	void testWeightedAdmission() throws InterruptedException {
+		spooler.setMaxRunningJobs(1)
+		        .setSpoolWeight("A", 3)
+		        .setSpoolGroup("C", "G")
+		        .setSpoolGroup("D", "G")
+		        .setGroupWeight("G", 2);
+
+		final var started = new CountDownLatch(1);
+		final var release = new CountDownLatch(1);
+		spooler.getExecutor("block").addToQueue(() -> {
+			started.countDown();
+			try {
+				release.await(500, MILLISECONDS);
+			} catch (final InterruptedException e) {
+				throw new IllegalStateException(e);
+			}
+		}, "block", 0, e -> {
+		});
+		assertTrue(started.await(100, MILLISECONDS));
+
+		final var runOrder = new ConcurrentLinkedQueue<String>();
+		for (final var spoolName : List.of("A", "B", "C", "D")) {
+			for (var pos = 0; pos < 6; pos++) {
+				spooler.getExecutor(spoolName).addToQueue(() -> runOrder.add(spoolName), spoolName, 0, e -> {
+				});
+			}
+		}
+		assertEquals(List.of("A", "B", "C", "D"), spooler.getLastStatus().getWaitingSpools());
+
+		release.countDown();
+		assertTrue(spooler.waitToClose(Duration.ofMillis(500), true));
+		assertEquals(List.of("A", "A", "A", "B", "C", "D", "A", "A", "A", "B", "C", "D"),
+		        List.copyOf(runOrder).subList(0, 12));
+
+		final var shares = spooler.getLastStatus().getAdmissionShares();
+		assertEquals(Set.of("A", "B", "C", "D"), shares.keySet());
+		assertEquals(1d, shares.values().stream().mapToDouble(Double::doubleValue).sum(), 0.001d);
+	}
+
+	@Test
+	void testEvictIdleExecutors() throws Exception {
+		assertEquals(Duration.ZERO, spooler.getIdleExecutorTTL());
+		final var aExec = spooler.getExecutor("A");
+		final var configuredExec = spooler.getExecutor("C").setMaxConcurrentJobs(2);
+		assertEquals(0, spooler.evictIdleExecutors());
+
+		assertEquals(spooler, spooler.setIdleExecutorTTL(Duration.ofMillis(20)));
+		assertEquals(Duration.ofMillis(20), spooler.getIdleExecutorTTL());
+		final var release = new CountDownLatch(1);
+		spooler.getExecutor("B").addToQueue(() -> {
+			try {
+				release.await(500, MILLISECONDS);
+			} catch (final InterruptedException e) {
+				throw new IllegalStateException(e);
+			}
+		}, "block", 0, e -> {
+		});
+		Thread.sleep(30);// NOSONAR
+
+		/**
+		 * B is running and C is configured, so only A is evicted
+		 */
+		assertEquals(1, spooler.evictIdleExecutors());
+		assertEquals(1, spooler.getEvictedExecutorsCount());
+		assertEquals(1, spooler.getLastStatus().getEvictedExecutorsCount());
+		assertEquals(2, spooler.getLastStatus().getSpoolExecutors().size());
+		assertEquals(configuredExec, spooler.getExecutor("C"));
+		assertEquals(2, configuredExec.getMaxConcurrentJobs());
+		release.countDown();
+
+		/**
+		 * A job added to the old executor go to the new one
+		 */
+		final var newAExec = spooler.getExecutor("A");
+		assertNotEquals(aExec, newAExec);
+		final var runIn = new AtomicReference<String>();
+		assertNull(aExec.submit(() -> runIn.set("A"), "redirected", 0, e -> {
+		}).get(500, MILLISECONDS));
+		assertEquals("A", runIn.get());
+		assertEquals(newAExec, spooler.getExecutor("A"));
+		assertEquals(0, aExec.getQueueSize());
+	}
+
+	@Test
+	void testThreadFactory() throws InterruptedException {
+		final var threadName = "TestSpooler" + String.valueOf(System.nanoTime());
+		spooler = new Spooler(event, r -> {
+			final var t = new Thread(r);
+			t.setName(threadName);
+			return t;
+		});
+		assertEquals(SpoolExecutor.DEFAULT_WORKER_KEEP_ALIVE, spooler.getExecutor("A").getWorkerKeepAlive());
+
+		final var runIn = new AtomicReference<String>();
+		final var latch = new CountDownLatch(1);
+		spooler.getExecutor("A").addToQueue(() -> runIn.set(Thread.currentThread().getName()), "named", 0, e -> {
+			latch.countDown();
+		});
+
+		assertTrue(latch.await(500, MILLISECONDS));
+		assertEquals(threadName, runIn.get());
+		assertEquals(1, spooler.getLastStatus().getCreatedThreadsCount());
+		spooler.waitToClose();
+	}
+
 }
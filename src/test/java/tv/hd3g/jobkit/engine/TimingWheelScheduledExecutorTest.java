@@ -0,0 +1,135 @@
+package tv.hd3g.jobkit.engine;
+
+import static java.util.concurrent.TimeUnit.HOURS;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class TimingWheelScheduledExecutorTest {
+
+	TimingWheelScheduledExecutor executor;
+
+	@BeforeEach
+	void init() {
+		executor = new TimingWheelScheduledExecutor(Duration.ofMillis(1));
+	}
+
+	@AfterEach
+	void end() {
+		executor.shutdown();
+	}
+
+	@Test
+	void testSchedule() throws Exception {
+		final var fired = new ConcurrentLinkedQueue<Integer>();
+		final var start = System.nanoTime();
+		for (final var delay : List.of(30, 2, 15)) {
+			executor.schedule(() -> {
+				assertTrue(System.nanoTime() - start >= MILLISECONDS.toNanos(delay));
+				fired.add(delay);
+			}, delay, MILLISECONDS);
+		}
+		final var last = executor.schedule(() -> "done", 40, MILLISECONDS);
+		assertTrue(last.getDelay(MILLISECONDS) > 0);
+		assertEquals("done", last.get(500, MILLISECONDS));
+		assertEquals(List.of(2, 15, 30), List.copyOf(fired));
+		assertEquals(0, executor.getPendingCount());
+	}
+
+	@Test
+	void testCancel() throws Exception {
+		final var fired = new AtomicInteger(0);
+		final var future = executor.schedule(fired::incrementAndGet, 20, MILLISECONDS);
+		assertTrue(future.cancel(false));
+		assertTrue(future.isCancelled());
+		assertThrows(CancellationException.class, future::get);
+
+		executor.schedule(() -> true, 40, MILLISECONDS).get(500, MILLISECONDS);
+		assertEquals(0, fired.get());
+	}
+
+	@Test
+	void testScheduleAtFixedRate() throws InterruptedException {
+		final var count = new CountDownLatch(5);
+		final var future = executor.scheduleAtFixedRate(count::countDown, 0, 5, MILLISECONDS);
+		assertTrue(count.await(500, MILLISECONDS));
+		assertFalse(future.isDone());
+		assertTrue(future.cancel(false));
+	}
+
+	@Test
+	void testScheduleWithFixedDelay_error() {
+		final var count = new AtomicInteger(0);
+		final var future = executor.scheduleWithFixedDelay(() -> {
+			if (count.incrementAndGet() == 3) {
+				throw new IllegalStateException("Stop");
+			}
+		}, 1, 1, MILLISECONDS);
+		final var e = assertThrows(ExecutionException.class, () -> future.get(500, MILLISECONDS));
+		assertTrue(e.getCause() instanceof IllegalStateException);
+		assertEquals(3, count.get());
+	}
+
+	@Test
+	void testInvalid() {
+		assertThrows(IllegalArgumentException.class,
+		        () -> new TimingWheelScheduledExecutor(Duration.ZERO));
+		assertThrows(IllegalArgumentException.class,
+		        () -> executor.scheduleAtFixedRate(() -> {}, 0, 0, MILLISECONDS));
+		assertThrows(IllegalArgumentException.class,
+		        () -> executor.scheduleWithFixedDelay(() -> {}, 0, -1, MILLISECONDS));
+	}
+
+	@Test
+	void testShutdown() throws InterruptedException {
+		final var delayed = executor.schedule(() -> {}, 1, HOURS);
+		final var periodic = executor.scheduleAtFixedRate(() -> {}, 1, 1, HOURS);
+		assertFalse(executor.isShutdown());
+
+		assertEquals(Set.of(delayed, periodic), Set.copyOf(executor.shutdownNow()));
+		assertTrue(delayed.isCancelled());
+		assertTrue(periodic.isCancelled());
+		assertTrue(executor.isShutdown());
+		assertTrue(executor.awaitTermination(500, MILLISECONDS));
+		assertTrue(executor.isTerminated());
+		assertThrows(RejectedExecutionException.class, () -> executor.execute(() -> {}));
+	}
+
+	@Test
+	void testShutdown_delayedStillRun() throws Exception {
+		final var delayed = executor.schedule(() -> "done", 20, MILLISECONDS);
+		final var periodic = executor.scheduleAtFixedRate(() -> {}, 1, 1, HOURS);
+
+		executor.shutdown();
+		assertTrue(executor.isShutdown());
+		assertTrue(periodic.isCancelled());
+		assertThrows(RejectedExecutionException.class, () -> executor.execute(() -> {}));
+		assertTrue(executor.awaitTermination(500, MILLISECONDS));
+		assertTrue(executor.isTerminated());
+		assertEquals("done", delayed.get());
+		assertTrue(executor.shutdownNow().isEmpty());
+	}
+
+	@Test
+	void testSubmit() throws Exception {
+		final var runIn = executor.submit(() -> Thread.currentThread().getName()).get(500, MILLISECONDS);
+		assertEquals("TimingWheelScheduledExecutor", runIn);
+	}
+
+}
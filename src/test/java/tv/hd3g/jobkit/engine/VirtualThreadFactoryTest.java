@@ -0,0 +1,44 @@
+package tv.hd3g.jobkit.engine;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.Test;
+
+class VirtualThreadFactoryTest {
+
+	@Test
+	void testNewThread() throws ReflectiveOperationException, InterruptedException {
+		if (VirtualThreadFactory.isAvailable() == false) {
+			assertThrows(UnsupportedOperationException.class, VirtualThreadFactory::new);
+			return;
+		}
+
+		final var isVirtual = Thread.class.getMethod("isVirtual");
+		final var runInVirtual = new AtomicBoolean(false);
+		final var latch = new CountDownLatch(1);
+		final var spooler = new Spooler(new ExecutionEvent() {}, new VirtualThreadFactory());
+		final var spoolExecutor = spooler.getExecutor("virtual");
+		assertEquals(Duration.ZERO, spoolExecutor.getWorkerKeepAlive());
+
+		assertTrue(spoolExecutor.addToQueue(() -> {
+			try {
+				runInVirtual.set((boolean) isVirtual.invoke(Thread.currentThread()));
+			} catch (final ReflectiveOperationException e) {
+				throw new IllegalStateException(e);
+			}
+		}, "job", 0, e -> latch.countDown()));
+
+		assertTrue(latch.await(500, MILLISECONDS));
+		assertTrue(runInVirtual.get());
+		assertEquals(1, spooler.getLastStatus().getCreatedThreadsCount());
+		spooler.waitToClose();
+	}
+
+}
@@ -16,6 +16,7 @@
  */
 package tv.hd3g.jobkit.engine.flat;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
@@ -23,6 +24,7 @@ import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.time.Duration;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -55,6 +57,16 @@ class FlatBackgroundServiceTest {
 		assertFalse(scheduledExecutor.contain(new FlatScheduledFuture(task)));
 	}
 
+	@Test
+	void testRunNow() {
+		final var count = new AtomicInteger(0);
+		flatBackgroundService = new FlatBackgroundService(scheduledExecutor, count::incrementAndGet);
+		assertThrows(IllegalStateException.class, () -> flatBackgroundService.runNow());
+		flatBackgroundService.enable();
+		assertTrue(flatBackgroundService.runNow());
+		assertEquals(1, count.get());
+	}
+
 	@Test
 	void testIsEnabled() {
 		assertFalse(flatBackgroundService.isEnabled());
@@ -23,7 +23,12 @@ import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.verify;
 
+import java.io.IOException;
 import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
@@ -51,6 +56,8 @@ class FlatJobKitEngineTest {
 		 */
 		jobKitEngine.shutdown();
 		jobKitEngine.waitToClose();
+		assertTrue(jobKitEngine.waitToClose(Duration.ZERO));
+		assertTrue(jobKitEngine.waitToClose(Duration.ZERO, true));
 	}
 
 	@Test
@@ -87,6 +94,16 @@ class FlatJobKitEngineTest {
 		assertEquals(1, i.get());
 	}
 
+	@Test
+	void testSpreadServices() {
+		final var i = new AtomicInteger();
+		task = () -> i.getAndIncrement();
+		jobKitEngine.startService(null, null, 0, TimeUnit.DAYS, task);
+		jobKitEngine.spreadServices();
+		jobKitEngine.runAllServicesOnce();
+		assertEquals(1, i.get());
+	}
+
 	@Test
 	void testIsEmptyActiveServicesList() {
 		assertTrue(jobKitEngine.isEmptyActiveServicesList());
@@ -115,6 +132,69 @@ class FlatJobKitEngineTest {
 		assertEquals(1, j.get());
 	}
 
+	@Test
+	void testRunOneShotDedup() {
+		final var i = new AtomicInteger();
+		task = () -> i.getAndIncrement();
+		final Consumer<Exception> afterRunCommand = e -> i.getAndIncrement();
+
+		assertTrue(jobKitEngine.runOneShot(null, null, 0, "key", task, afterRunCommand));
+		assertTrue(jobKitEngine.runOneShot(null, null, 0, "key", task, afterRunCommand));
+		assertEquals(4, i.get());
+	}
+
+	@Test
+	void testSubmitOneShot() {
+		final var i = new AtomicInteger();
+		task = () -> i.getAndIncrement();
+		final var handle = jobKitEngine.submitOneShot(null, null, 0, task, e -> {
+		});
+		assertEquals(1, i.get());
+		assertTrue(handle.isDone());
+	}
+
+	@Test
+	void testRunOneShotAfter() {
+		final var i = new AtomicInteger();
+		task = () -> i.getAndIncrement();
+		final var handle = jobKitEngine.runOneShotAfter(Duration.ofDays(1), null, null, 0, task, e -> {
+		});
+		assertEquals(1, i.get());
+		assertTrue(handle.isDone());
+		assertTrue(jobKitEngine.runOneShotAt(Instant.now().plusSeconds(60), null, null, 0, task, e -> {
+		}).isDone());
+		assertEquals(2, i.get());
+	}
+
+	@Test
+	void testSubmitOneShotCallable() throws Exception {
+		assertEquals("result", jobKitEngine.submitOneShot(null, null, 0, () -> "result").get());
+		assertTrue(jobKitEngine.submitOneShot(null, null, 0, () -> {
+			throw new IOException();
+		}).isCompletedExceptionally());
+	}
+
+	@Test
+	void testCreateBatcher() {
+		final var processed = new ArrayList<List<Integer>>();
+		final var error = new IOException();
+		final var batcher = jobKitEngine.<Integer> createBatcher("batcher", "spool", (key, items) -> {
+			processed.add(items);
+			if (items.get(0) == 2) {
+				throw error;
+			}
+			return null;
+		});
+		final var afterRun = new ArrayList<Exception>();
+		batcher.add("key", 1, afterRun::add);
+		batcher.add("key", 2, afterRun::add);
+		assertEquals(Arrays.asList(null, error), afterRun);
+		assertTrue(batcher.submit("key", 3).isDone());
+		assertTrue(batcher.submit("key", 2).isCompletedExceptionally());
+		assertEquals(List.of(List.of(1), List.of(2), List.of(3), List.of(2)), processed);
+		assertEquals(0, batcher.getPendingCount());
+	}
+
 	@Test
 	void testRunOneShotJob() {
 		final var job = Mockito.mock(Job.class);
@@ -126,4 +206,32 @@ class FlatJobKitEngineTest {
 		verify(job, Mockito.times(0)).onJobFail(ArgumentMatchers.any(Exception.class));
 	}
 
+	@Test
+	void testRunOneShotJobs() {
+		final var job0 = Mockito.mock(Job.class);
+		final var job1 = Mockito.mock(Job.class);
+		assertTrue(jobKitEngine.runOneShot(List.of(job0, job1)));
+
+		verify(job0, Mockito.times(1)).run();
+		verify(job0, Mockito.times(1)).onJobDone();
+		verify(job1, Mockito.times(1)).run();
+		verify(job1, Mockito.times(1)).onJobDone();
+	}
+
+	@Test
+	void testSubmitOneShotJob() {
+		final var job = Mockito.mock(Job.class);
+		assertTrue(jobKitEngine.submitOneShot(job).isDone());
+		verify(job, Mockito.times(1)).onJobStart();
+		verify(job, Mockito.times(1)).run();
+		verify(job, Mockito.times(1)).onJobDone();
+
+		final var failedJob = Mockito.mock(Job.class);
+		final var error = new IllegalStateException();
+		Mockito.doThrow(error).when(failedJob).run();
+		assertTrue(jobKitEngine.submitOneShot(failedJob).isCompletedExceptionally());
+		verify(failedJob, Mockito.times(1)).onJobFail(error);
+		verify(failedJob, Mockito.times(0)).onJobDone();
+	}
+
 }
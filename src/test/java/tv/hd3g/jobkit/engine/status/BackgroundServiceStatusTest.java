@@ -31,6 +31,10 @@ class BackgroundServiceStatusTest {
 	double retryAfterTimeFactor;
 	int sequentialErrorCount;
 	String task;
+	boolean fixedRate;
+	long periodError;
+	long misfiredRuns;
+	long skippedRuns;
 
 	BackgroundServiceStatus backgroundServiceStatus;
 
@@ -48,12 +52,32 @@ class BackgroundServiceStatusTest {
 		retryAfterTimeFactor = random.nextDouble();
 		sequentialErrorCount = random.nextInt();
 		task = String.valueOf(random.nextLong());
+		fixedRate = random.nextBoolean();
+		periodError = random.nextLong();
+		misfiredRuns = random.nextLong();
+		skippedRuns = random.nextLong();
 
 		when(backgroundService.isEnabled()).thenReturn(enabled);
 		when(backgroundService.getTimedInterval(eq(MILLISECONDS))).thenReturn(timedInterval);
 		when(backgroundService.getPriority()).thenReturn(priority);
 		when(backgroundService.getRetryAfterTimeFactor()).thenReturn(retryAfterTimeFactor);
+		when(backgroundService.isFixedRate()).thenReturn(fixedRate);
 
+		backgroundServiceStatus = new BackgroundServiceStatus(
+		        name,
+		        spoolName,
+		        nextRunReferenceDelay,
+		        previousScheduledDate,
+		        backgroundService,
+		        sequentialErrorCount,
+		        task,
+		        periodError,
+		        misfiredRuns,
+		        skippedRuns);
+	}
+
+	@Test
+	void testWithoutFixedRateCounters() {
 		backgroundServiceStatus = new BackgroundServiceStatus(
 		        name,
 		        spoolName,
@@ -62,6 +86,13 @@ class BackgroundServiceStatusTest {
 		        backgroundService,
 		        sequentialErrorCount,
 		        task);
+		assertEquals(name, backgroundServiceStatus.getName());
+		assertEquals(nextRunReferenceDelay, backgroundServiceStatus.getNextRunReferenceDelay());
+		assertEquals(task, backgroundServiceStatus.getTask());
+		assertEquals(fixedRate, backgroundServiceStatus.isFixedRate());
+		assertEquals(0, backgroundServiceStatus.getPeriodError());
+		assertEquals(0, backgroundServiceStatus.getMisfiredRuns());
+		assertEquals(0, backgroundServiceStatus.getSkippedRuns());
 	}
 
 	@Test
@@ -114,4 +145,24 @@ class BackgroundServiceStatusTest {
 		assertEquals(task, backgroundServiceStatus.getTask());
 	}
 
+	@Test
+	void testIsFixedRate() {
+		assertEquals(fixedRate, backgroundServiceStatus.isFixedRate());
+	}
+
+	@Test
+	void testGetPeriodError() {
+		assertEquals(periodError, backgroundServiceStatus.getPeriodError());
+	}
+
+	@Test
+	void testGetMisfiredRuns() {
+		assertEquals(misfiredRuns, backgroundServiceStatus.getMisfiredRuns());
+	}
+
+	@Test
+	void testGetSkippedRuns() {
+		assertEquals(skippedRuns, backgroundServiceStatus.getSkippedRuns());
+	}
+
 }
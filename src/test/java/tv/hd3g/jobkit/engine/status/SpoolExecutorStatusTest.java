@@ -4,6 +4,7 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 
 import java.lang.Thread.State;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
 
 import org.junit.jupiter.api.BeforeEach;
@@ -17,6 +18,10 @@ class SpoolExecutorStatusTest {
 
 	@Mock
 	List<SpoolJobStatus> queue;
+	@Mock
+	List<SpoolWorkerStatus> currentOperations;
+	@Mock
+	Map<String, Long> runtimeEstimates;
 
 	String spoolName;
 	String currentOperationName;
@@ -25,6 +30,7 @@ class SpoolExecutorStatusTest {
 	String currentThreadName;
 	int queueSize;
 	boolean isShutdown;
+	int maxConcurrentJobs;
 
 	private SpoolExecutorStatus spoolExecutorStatus;
 
@@ -39,6 +45,7 @@ class SpoolExecutorStatusTest {
 		currentThreadName = String.valueOf(System.nanoTime());
 		queueSize = new Random().nextInt();
 		isShutdown = true;
+		maxConcurrentJobs = new Random().nextInt();
 
 		spoolExecutorStatus = new SpoolExecutorStatus(
 		        spoolName,
@@ -47,7 +54,10 @@ class SpoolExecutorStatusTest {
 		        currentThreadState,
 		        currentThreadName,
 		        queue,
-		        isShutdown);
+		        isShutdown,
+		        currentOperations,
+		        maxConcurrentJobs,
+		        runtimeEstimates);
 
 	}
 
@@ -86,4 +96,45 @@ class SpoolExecutorStatusTest {
 		assertEquals(isShutdown, spoolExecutorStatus.isShutdown());
 	}
 
+	@Test
+	void testGetCurrentOperations() {
+		assertEquals(currentOperations, spoolExecutorStatus.getCurrentOperations());
+	}
+
+	@Test
+	void testGetMaxConcurrentJobs() {
+		assertEquals(maxConcurrentJobs, spoolExecutorStatus.getMaxConcurrentJobs());
+	}
+
+	@Test
+	void testGetRuntimeEstimates() {
+		assertEquals(runtimeEstimates, spoolExecutorStatus.getRuntimeEstimates());
+	}
+
+	@Test
+	void testOneJobAtATime() {
+		spoolExecutorStatus = new SpoolExecutorStatus(
+		        spoolName,
+		        currentOperationName,
+		        currentThreadId,
+		        currentThreadState,
+		        currentThreadName,
+		        queue,
+		        isShutdown);
+		assertEquals(currentOperationName, spoolExecutorStatus.getCurrentOperationName());
+		assertEquals(queue, spoolExecutorStatus.getQueue());
+		assertEquals(1, spoolExecutorStatus.getMaxConcurrentJobs());
+		assertEquals(Map.of(), spoolExecutorStatus.getRuntimeEstimates());
+
+		final var operations = spoolExecutorStatus.getCurrentOperations();
+		assertEquals(1, operations.size());
+		assertEquals(currentOperationName, operations.get(0).getOperationName());
+		assertEquals(currentThreadId, operations.get(0).getThreadId());
+		assertEquals(currentThreadState, operations.get(0).getThreadState());
+		assertEquals(currentThreadName, operations.get(0).getThreadName());
+
+		assertEquals(List.of(), new SpoolExecutorStatus(spoolName, null, -1, null, null, queue, isShutdown)
+		        .getCurrentOperations());
+	}
+
 }
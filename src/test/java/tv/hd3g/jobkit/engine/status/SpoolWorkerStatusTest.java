@@ -0,0 +1,48 @@
+package tv.hd3g.jobkit.engine.status;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.lang.Thread.State;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class SpoolWorkerStatusTest {
+
+	String operationName;
+	long threadId;
+	State threadState;
+	String threadName;
+
+	SpoolWorkerStatus spoolWorkerStatus;
+
+	@BeforeEach
+	void init() throws Exception {
+		operationName = String.valueOf(System.nanoTime());
+		threadId = System.nanoTime();
+		threadState = State.RUNNABLE;
+		threadName = String.valueOf(System.nanoTime());
+		spoolWorkerStatus = new SpoolWorkerStatus(operationName, threadId, threadState, threadName);
+	}
+
+	@Test
+	void testGetOperationName() {
+		assertEquals(operationName, spoolWorkerStatus.getOperationName());
+	}
+
+	@Test
+	void testGetThreadId() {
+		assertEquals(threadId, spoolWorkerStatus.getThreadId());
+	}
+
+	@Test
+	void testGetThreadState() {
+		assertEquals(threadState, spoolWorkerStatus.getThreadState());
+	}
+
+	@Test
+	void testGetThreadName() {
+		assertEquals(threadName, spoolWorkerStatus.getThreadName());
+	}
+
+}
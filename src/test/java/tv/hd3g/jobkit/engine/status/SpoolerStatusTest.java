@@ -1,8 +1,11 @@
 package tv.hd3g.jobkit.engine.status;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.junit.jupiter.api.BeforeEach;
@@ -15,6 +18,10 @@ class SpoolerStatusTest {
 	@Mock
 	private Set<SpoolExecutorStatus> spoolExecutors;
 	private long createdThreadsCount;
+	@Mock
+	private List<String> waitingSpools;
+	@Mock
+	private Map<String, Double> admissionShares;
 
 	private SpoolerStatus spoolerStatus;
 
@@ -22,7 +29,20 @@ class SpoolerStatusTest {
 	void init() throws Exception {
 		MockitoAnnotations.openMocks(this).close();
 		createdThreadsCount = System.nanoTime();
-		spoolerStatus = new SpoolerStatus(spoolExecutors, createdThreadsCount, true);
+		spoolerStatus = new SpoolerStatus(spoolExecutors, createdThreadsCount, true, 10, 5, waitingSpools, admissionShares, 3);
+	}
+
+	@Test
+	void testWithoutLimit() {
+		spoolerStatus = new SpoolerStatus(spoolExecutors, createdThreadsCount, false);
+		assertEquals(spoolExecutors, spoolerStatus.getSpoolExecutors());
+		assertEquals(createdThreadsCount, spoolerStatus.getCreatedThreadsCount());
+		assertFalse(spoolerStatus.isShutdown());
+		assertEquals(Integer.MAX_VALUE, spoolerStatus.getMaxRunningJobs());
+		assertEquals(0, spoolerStatus.getRunningJobs());
+		assertEquals(List.of(), spoolerStatus.getWaitingSpools());
+		assertEquals(Map.of(), spoolerStatus.getAdmissionShares());
+		assertEquals(0, spoolerStatus.getEvictedExecutorsCount());
 	}
 
 	@Test
@@ -40,4 +60,29 @@ class SpoolerStatusTest {
 		assertTrue(spoolerStatus.isShutdown());
 	}
 
+	@Test
+	void testGetMaxRunningJobs() {
+		assertEquals(10, spoolerStatus.getMaxRunningJobs());
+	}
+
+	@Test
+	void testGetRunningJobs() {
+		assertEquals(5, spoolerStatus.getRunningJobs());
+	}
+
+	@Test
+	void testGetWaitingSpools() {
+		assertEquals(waitingSpools, spoolerStatus.getWaitingSpools());
+	}
+
+	@Test
+	void testGetAdmissionShares() {
+		assertEquals(admissionShares, spoolerStatus.getAdmissionShares());
+	}
+
+	@Test
+	void testGetEvictedExecutorsCount() {
+		assertEquals(3, spoolerStatus.getEvictedExecutorsCount());
+	}
+
 }
@@ -16,6 +16,7 @@
  */
 package tv.hd3g.jobkit.engine.watchfolder;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
@@ -40,6 +41,7 @@ import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
 import tv.hd3g.commons.IORuntimeException;
+import tv.hd3g.jobkit.engine.BackoffRetryDelayPolicy;
 import tv.hd3g.jobkit.engine.flat.FlatJobKitEngine;
 import tv.hd3g.transfertfiles.AbstractFileSystemURL;
 
@@ -167,7 +169,11 @@ class WatchfoldersTest {
 		assertNull(watchfolders.getService());
 
 		watchfolders.startScans();
-		assertNotNull(watchfolders.getService());
+		final var service = watchfolders.getService();
+		assertNotNull(service);
+		final var retryDelayPolicy = (BackoffRetryDelayPolicy) service.getRetryDelayPolicy();
+		assertEquals(Watchfolders.RETRY_AFTER_TIME_FACTOR, retryDelayPolicy.getFactor());
+		assertEquals(Watchfolders.RETRY_AFTER_TIME_FACTOR, service.getRetryAfterTimeFactor());
 		watchfolders.stopScans();
 		assertNull(watchfolders.getService());
 	}